@@ -57,6 +57,12 @@ app.add_middleware(
 class SearchRequest(BaseModel):
     query: str
     top_k: int = 3
+    # Relevance floor on the 0-100 scale cases are returned in (default 54)
+    min_score: Optional[float] = None
+    # Keep only the best chunk of each case; over-fetches so top_k distinct cases can still be filled
+    dedupe_by_citation: bool = False
+    # Caller already has a verdict for this query (e.g. a widened follow-up search)
+    skip_classification: bool = False
 
 class ValidationRequest(BaseModel):
     query: str
@@ -402,6 +408,10 @@ async def validate_question(request: ValidationRequest):
 # ==========================================
 # SEARCH ENDPOINT
 # ==========================================
+RELEVANCE_THRESHOLD = 0.54
+DEDUPE_OVERFETCH = 3
+MAX_FETCH_K = 50
+
 @app.post("/search")
 async def search_cases(request: SearchRequest):
     """Search cases with Gemini classification"""
@@ -419,7 +429,10 @@ async def search_cases(request: SearchRequest):
         query = request.query
         
         # Gemini validation
-        is_valid, category, reason, confidence = classify_with_gemini(query)
+        if request.skip_classification:
+            is_valid, category, reason, confidence = True, 'LEGAL', None, None
+        else:
+            is_valid, category, reason, confidence = classify_with_gemini(query)
         
         if not is_valid:
             print(f"   ❌ Gemini rejected: {category}")
@@ -451,9 +464,13 @@ async def search_cases(request: SearchRequest):
             normalize_embeddings=True
         ).tolist()
         
+        fetch_k = request.top_k
+        if request.dedupe_by_citation:
+            fetch_k = min(request.top_k * DEDUPE_OVERFETCH, MAX_FETCH_K)
+        
         results = pinecone_index.query(
             vector=query_embedding,
-            top_k=request.top_k,
+            top_k=fetch_k,
             include_metadata=True
         )
         
@@ -468,12 +485,28 @@ async def search_cases(request: SearchRequest):
             }
         
         # Relevance check
-        RELEVANCE_THRESHOLD = 0.54
+        threshold = request.min_score / 100 if request.min_score is not None else RELEVANCE_THRESHOLD
         relevant_matches = [
             m for m in results['matches']
-            if m['score'] >= RELEVANCE_THRESHOLD
+            if m['score'] >= threshold
         ]
         
+        # Matches come best first, so the first chunk seen per case is its best
+        if request.dedupe_by_citation:
+            seen = set()
+            unique_matches = []
+            for m in relevant_matches:
+                citation = m['metadata'].get("case_number", "") or m['id']
+                if citation not in seen:
+                    seen.add(citation)
+                    unique_matches.append(m)
+            relevant_matches = unique_matches
+        relevant_matches = relevant_matches[:request.top_k]
+        
+        # True when a wider search cannot add anything above the threshold
+        exhausted = (len(results['matches']) < fetch_k
+                     or results['matches'][-1]['score'] < threshold)
+        
         if not relevant_matches:
             best_score = max(m['score'] for m in results['matches'])
             return {
@@ -483,7 +516,8 @@ async def search_cases(request: SearchRequest):
                 "rejected": True,
                 "rejection_stage": "low_relevance",
                 "rejection_reason": f"Best score {best_score:.1%} below threshold",
-                "confidence": best_score
+                "confidence": best_score,
+                "exhausted": exhausted
             }
         
         # Format cases
@@ -503,7 +537,8 @@ async def search_cases(request: SearchRequest):
             "count": len(cases),
             "query": query,
             "rejected": False,
-            "confidence": max(m['score'] for m in relevant_matches)
+            "confidence": max(m['score'] for m in relevant_matches),
+            "exhausted": exhausted
         }
         
     except Exception as e:
@@ -1,5 +1,7 @@
 package com.wachichaw;
 
+import java.util.Map;
+
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.scheduling.annotation.EnableScheduling;
@@ -8,6 +10,11 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 public class AllyApplication {	
 
 	public static void main(String[] args) {
-		SpringApplication.run(AllyApplication.class, args);
+		SpringApplication app = new SpringApplication(AllyApplication.class);
+		// Tomcat request handling and @Scheduled tasks run on virtual threads, so a
+		// request parked on Gemini or the RAG service does not hold a platform thread.
+		// Opt out with spring.threads.virtual.enabled=false.
+		app.setDefaultProperties(Map.of("spring.threads.virtual.enabled", "true"));
+		app.run(args);
 	}
 }
@@ -0,0 +1,68 @@
+package com.wachichaw.AllyChatAI.Entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * A chatbot conversation. Rows are written by ChatTranscriptService through JDBC;
+ * the entity exists so the table is managed with the rest of the schema.
+ */
+@Entity
+@Table(name = "ChatSession", indexes = {
+    @Index(name = "idx_chat_session_client", columnList = "client_key, last_activity_at")
+})
+public class ChatSessionEntity {
+
+    @Id
+    @Column(name = "session_id", length = 36)
+    private String sessionId;
+
+    // "user:<id>" for logged-in users, "ip:<address>" otherwise
+    @Column(name = "client_key", nullable = false, length = 100)
+    private String clientKey;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "last_activity_at", nullable = false)
+    private LocalDateTime lastActivityAt;
+
+    public ChatSessionEntity() {}
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public String getClientKey() {
+        return clientKey;
+    }
+
+    public void setClientKey(String clientKey) {
+        this.clientKey = clientKey;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getLastActivityAt() {
+        return lastActivityAt;
+    }
+
+    public void setLastActivityAt(LocalDateTime lastActivityAt) {
+        this.lastActivityAt = lastActivityAt;
+    }
+}
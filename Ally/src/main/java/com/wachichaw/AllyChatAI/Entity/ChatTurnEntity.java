@@ -0,0 +1,133 @@
+package com.wachichaw.AllyChatAI.Entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * One question and answer in a chat session. The id is generated on the request
+ * path, so replaying the journal after a crash cannot insert a turn twice.
+ */
+@Entity
+@Table(name = "ChatTurn", indexes = {
+    @Index(name = "idx_chat_turn_session", columnList = "session_id, created_at")
+})
+public class ChatTurnEntity {
+
+    @Id
+    @Column(name = "turn_id", length = 36)
+    private String turnId;
+
+    @Column(name = "session_id", nullable = false, length = 36)
+    private String sessionId;
+
+    @Column(name = "client_key", nullable = false, length = 100)
+    private String clientKey;
+
+    @Column(name = "question", columnDefinition = "TEXT", nullable = false)
+    private String question;
+
+    @Column(name = "answer", columnDefinition = "MEDIUMTEXT")
+    private String answer;
+
+    @Column(name = "rag_enabled", nullable = false)
+    private boolean ragEnabled;
+
+    @Column(name = "case_count")
+    private Integer caseCount;
+
+    @Column(name = "confidence", length = 64)
+    private String confidence;
+
+    @Column(name = "rejected", nullable = false)
+    private boolean rejected;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public ChatTurnEntity() {}
+
+    public String getTurnId() {
+        return turnId;
+    }
+
+    public void setTurnId(String turnId) {
+        this.turnId = turnId;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public String getClientKey() {
+        return clientKey;
+    }
+
+    public void setClientKey(String clientKey) {
+        this.clientKey = clientKey;
+    }
+
+    public String getQuestion() {
+        return question;
+    }
+
+    public void setQuestion(String question) {
+        this.question = question;
+    }
+
+    public String getAnswer() {
+        return answer;
+    }
+
+    public void setAnswer(String answer) {
+        this.answer = answer;
+    }
+
+    public boolean isRagEnabled() {
+        return ragEnabled;
+    }
+
+    public void setRagEnabled(boolean ragEnabled) {
+        this.ragEnabled = ragEnabled;
+    }
+
+    public Integer getCaseCount() {
+        return caseCount;
+    }
+
+    public void setCaseCount(Integer caseCount) {
+        this.caseCount = caseCount;
+    }
+
+    public String getConfidence() {
+        return confidence;
+    }
+
+    public void setConfidence(String confidence) {
+        this.confidence = confidence;
+    }
+
+    public boolean isRejected() {
+        return rejected;
+    }
+
+    public void setRejected(boolean rejected) {
+        this.rejected = rejected;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,14 @@
+package com.wachichaw.AllyChatAI.Repo;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.wachichaw.AllyChatAI.Entity.ChatTurnEntity;
+
+@Repository
+public interface ChatTurnRepo extends JpaRepository<ChatTurnEntity, String> {
+
+    List<ChatTurnEntity> findBySessionIdAndClientKeyOrderByCreatedAtAsc(String sessionId, String clientKey);
+}
@@ -0,0 +1,112 @@
+package com.wachichaw.AllyChatAI.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.wachichaw.AllyRAG.ChatResponse;
+
+/**
+ * An asynchronous chat request and, once finished, its result.
+ */
+public class ChatJob {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, REJECTED, FAILED;
+
+        public boolean isFinished() {
+            return this == COMPLETED || this == REJECTED || this == FAILED;
+        }
+    }
+
+    private final String jobId;
+    private final String createdAt;
+    private volatile Status status = Status.QUEUED;
+    private volatile ChatResponse response;
+    private volatile String error;
+    private volatile String completedAt;
+
+    @JsonIgnore
+    private final String owner;
+
+    @JsonIgnore
+    private volatile long finishedAtMillis;
+
+    @JsonIgnore
+    private final List<SseEmitter> subscribers = new ArrayList<>();
+
+    ChatJob(String jobId, String owner) {
+        this.jobId = jobId;
+        this.owner = owner;
+        this.createdAt = LocalDateTime.now().toString();
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public ChatResponse getResponse() {
+        return response;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public String getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getCompletedAt() {
+        return completedAt;
+    }
+
+    String getOwner() {
+        return owner;
+    }
+
+    long getFinishedAtMillis() {
+        return finishedAtMillis;
+    }
+
+    void markRunning() {
+        status = Status.RUNNING;
+    }
+
+    /**
+     * Records the final state and hands back the subscribers to notify.
+     */
+    synchronized List<SseEmitter> finish(Status finalStatus, ChatResponse finalResponse, String finalError) {
+        response = finalResponse;
+        error = finalError;
+        completedAt = LocalDateTime.now().toString();
+        finishedAtMillis = System.currentTimeMillis();
+        status = finalStatus;
+
+        List<SseEmitter> toNotify = new ArrayList<>(subscribers);
+        subscribers.clear();
+        return toNotify;
+    }
+
+    /**
+     * Registers a subscriber, unless the job already finished (returns false).
+     */
+    synchronized boolean subscribe(SseEmitter emitter) {
+        if (status.isFinished()) {
+            return false;
+        }
+        subscribers.add(emitter);
+        return true;
+    }
+
+    synchronized void unsubscribe(SseEmitter emitter) {
+        subscribers.remove(emitter);
+    }
+}
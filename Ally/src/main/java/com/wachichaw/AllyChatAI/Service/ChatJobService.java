@@ -0,0 +1,222 @@
+package com.wachichaw.AllyChatAI.Service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.wachichaw.AllyRAG.ChatRequest;
+import com.wachichaw.AllyRAG.ChatResponse;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs chat requests off the servlet thread. A job is accepted immediately and
+ * the pipeline runs on a virtual thread; clients poll or subscribe over SSE.
+ *
+ * - Each client (user id, or IP when anonymous) may have a limited number of jobs
+ *   in flight; further submissions are refused rather than queued.
+ * - A global limit caps how many pipelines run at once; jobs beyond it wait as QUEUED.
+ * - Finished jobs are kept for a short TTL in a bounded store.
+ */
+@Service
+public class ChatJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatJobService.class);
+
+    @Value("${chat.jobs.per-client-limit:2}")
+    private int perClientLimit;
+
+    @Value("${chat.jobs.max-concurrent:32}")
+    private int maxConcurrent;
+
+    @Value("${chat.jobs.max-retained:1000}")
+    private int maxRetained;
+
+    @Value("${chat.jobs.result-ttl-seconds:300}")
+    private long resultTtlSeconds;
+
+    @Value("${chat.jobs.sse-timeout-ms:120000}")
+    private long sseTimeoutMs;
+
+    private final ChatPipelineService chatPipelineService;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, ChatJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, Integer> inFlightByClient = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("chat-job-", 0).factory());
+
+    private Semaphore pipelineSlots;
+
+    public ChatJobService(ChatPipelineService chatPipelineService, MeterRegistry meterRegistry) {
+        this.chatPipelineService = chatPipelineService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        pipelineSlots = new Semaphore(maxConcurrent);
+        Gauge.builder("chat.jobs.retained", jobs, Map::size)
+                .description("Chat jobs held in the result store")
+                .register(meterRegistry);
+        Gauge.builder("chat.jobs.running", pipelineSlots, s -> maxConcurrent - s.availablePermits())
+                .description("Chat pipelines currently running")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Accepts a job, or returns null when the client already has too many in
+     * flight or the store is full.
+     */
+    public ChatJob submit(String clientKey, ChatRequest request) {
+        if (jobs.size() >= maxRetained) {
+            evictExpired();
+            if (jobs.size() >= maxRetained) {
+                meterRegistry.counter("chat.jobs.refused", "reason", "store_full").increment();
+                return null;
+            }
+        }
+        if (!tryAcquireClientSlot(clientKey)) {
+            meterRegistry.counter("chat.jobs.refused", "reason", "client_limit").increment();
+            return null;
+        }
+
+        ChatJob job = new ChatJob(UUID.randomUUID().toString(), clientKey);
+        jobs.put(job.getJobId(), job);
+        try {
+            executor.execute(() -> run(job, request));
+        } catch (RuntimeException e) {
+            jobs.remove(job.getJobId());
+            releaseClientSlot(clientKey);
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * The job if it exists, has not expired and belongs to this client.
+     */
+    public ChatJob get(String jobId, String clientKey) {
+        ChatJob job = jobs.get(jobId);
+        if (job == null || !job.getOwner().equals(clientKey) || isExpired(job, System.currentTimeMillis())) {
+            return null;
+        }
+        return job;
+    }
+
+    /**
+     * SSE stream that receives a single "result" event when the job finishes.
+     */
+    public SseEmitter subscribe(ChatJob job) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        emitter.onTimeout(() -> job.unsubscribe(emitter));
+        emitter.onCompletion(() -> job.unsubscribe(emitter));
+        if (!job.subscribe(emitter)) {
+            sendResult(emitter, job);
+        }
+        return emitter;
+    }
+
+    private void run(ChatJob job, ChatRequest request) {
+        long start = System.nanoTime();
+        ChatJob.Status status;
+        ChatResponse response = null;
+        String error = null;
+        try {
+            pipelineSlots.acquire();
+            try {
+                job.markRunning();
+                ChatPipelineService.ChatOutcome outcome = chatPipelineService.process(request, job.getOwner());
+                if (outcome.isTimedOut()) {
+                    status = ChatJob.Status.FAILED;
+                    error = ChatPipelineService.TIMEOUT_RESPONSE;
+                } else {
+                    response = outcome.getResponse();
+                    status = outcome.isRejected() ? ChatJob.Status.REJECTED : ChatJob.Status.COMPLETED;
+                }
+            } finally {
+                pipelineSlots.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = ChatJob.Status.FAILED;
+            error = "Chat job was cancelled";
+        } catch (Exception e) {
+            logger.error("Chat job {} failed", job.getJobId(), e);
+            status = ChatJob.Status.FAILED;
+            error = "Failed to generate a response. Please try again.";
+        } finally {
+            releaseClientSlot(job.getOwner());
+        }
+
+        meterRegistry.timer("chat.jobs.duration", "status", status.name())
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        for (SseEmitter emitter : job.finish(status, response, error)) {
+            sendResult(emitter, job);
+        }
+    }
+
+    private void sendResult(SseEmitter emitter, ChatJob job) {
+        try {
+            emitter.send(SseEmitter.event().name("result").data(job));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; the result stays available for polling
+            emitter.completeWithError(e);
+        }
+    }
+
+    private boolean tryAcquireClientSlot(String clientKey) {
+        boolean[] acquired = new boolean[1];
+        inFlightByClient.compute(clientKey, (key, count) -> {
+            int current = count == null ? 0 : count;
+            if (current >= perClientLimit) {
+                return count;
+            }
+            acquired[0] = true;
+            return current + 1;
+        });
+        return acquired[0];
+    }
+
+    private void releaseClientSlot(String clientKey) {
+        inFlightByClient.computeIfPresent(clientKey, (key, count) -> count <= 1 ? null : count - 1);
+    }
+
+    private boolean isExpired(ChatJob job, long now) {
+        return job.getStatus().isFinished()
+                && now - job.getFinishedAtMillis() > TimeUnit.SECONDS.toMillis(resultTtlSeconds);
+    }
+
+    @Scheduled(fixedDelayString = "${chat.jobs.eviction-interval-ms:30000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        List<String> expired = jobs.values().stream()
+                .filter(job -> isExpired(job, now))
+                .map(ChatJob::getJobId)
+                .toList();
+        expired.forEach(jobs::remove);
+    }
+}
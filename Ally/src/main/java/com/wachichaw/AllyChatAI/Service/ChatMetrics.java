@@ -0,0 +1,73 @@
+package com.wachichaw.AllyChatAI.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Meters for the chat pipeline.
+ *
+ * - ally.chat.stage{stage,outcome}: latency of each pipeline stage
+ * - ally.chat.request{outcome}: end-to-end latency
+ * - ally.chat.prompt.chars / ally.chat.response.chars: size distributions
+ *
+ * Timers publish percentile histograms so p95/p99 can be aggregated in Prometheus.
+ */
+@Component
+public class ChatMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final DistributionSummary promptChars;
+    private final DistributionSummary responseChars;
+
+    public ChatMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.promptChars = DistributionSummary.builder("ally.chat.prompt.chars")
+                .description("Size of the prompt sent to Gemini")
+                .baseUnit("chars")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.responseChars = DistributionSummary.builder("ally.chat.response.chars")
+                .description("Size of the answer returned by Gemini")
+                .baseUnit("chars")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void stage(Timer.Sample sample, String stage, String outcome) {
+        sample.stop(timer("ally.chat.stage", stage, outcome));
+    }
+
+    public void request(Timer.Sample sample, String outcome) {
+        sample.stop(timer("ally.chat.request", null, outcome));
+    }
+
+    public void promptSize(int chars) {
+        promptChars.record(chars);
+    }
+
+    public void responseSize(int chars) {
+        responseChars.record(chars);
+    }
+
+    private Timer timer(String name, String stage, String outcome) {
+        String key = name + '|' + stage + '|' + outcome;
+        return timers.computeIfAbsent(key, k -> {
+            Timer.Builder builder = Timer.builder(name).tag("outcome", outcome).publishPercentileHistogram();
+            if (stage != null) {
+                builder.tag("stage", stage);
+            }
+            return builder.register(meterRegistry);
+        });
+    }
+}
@@ -0,0 +1,425 @@
+package com.wachichaw.AllyChatAI.Service;
+
+import com.wachichaw.AllyRAG.*;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+/**
+ * The chat pipeline: local intent check, remote validation, RAG retrieval and
+ * Gemini generation. Shared by the /prompt endpoint and async chat jobs.
+ *
+ * Each run owns a StructuredScope: the outbound calls are forked onto virtual threads
+ * under one deadline, and cancelling the scope (client gone, deadline passed) interrupts
+ * whatever is still in flight. Remote validation and RAG search run side by side;
+ * a rejected question cancels its search.
+ */
+@Service
+public class ChatPipelineService {
+
+    @Autowired
+    private GeminiChatService geminiChatService;
+
+    @Autowired
+    private RagService ragService;
+
+    @Value("${chat.pipeline.deadline-ms:90000}")
+    private long deadlineMs;
+
+    @Value("${chat.pipeline.parallel-search:true}")
+    private boolean parallelSearch;
+
+    @Autowired
+    private LegalQuestionValidator validator;
+
+    @Autowired
+    private RetrievalPlanner retrievalPlanner;
+
+    @Autowired
+    private LocalIntentClassifier intentClassifier;
+
+    @Autowired
+    private PromptContextPacker contextPacker;
+
+    @Autowired
+    private ChatTranscriptService transcriptService;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    @Autowired
+    private RejectionCatalog rejectionCatalog;
+
+    @Autowired
+    private ObservationRegistry observationRegistry;
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatPipelineService.class);
+
+    private static final Pattern SESSION_ID = Pattern.compile("[A-Za-z0-9-]{1,36}");
+
+    static final String TIMEOUT_RESPONSE = "⏱️ This is taking longer than expected. Please try again in a moment.";
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("chat-pipeline-", 0).factory());
+
+    public static class ChatOutcome {
+        private final boolean rejected;
+        private final boolean timedOut;
+        private final ChatResponse response;
+        private final RejectionCatalog.Rejection rejection;
+
+        private ChatOutcome(boolean rejected, boolean timedOut, ChatResponse response,
+                            RejectionCatalog.Rejection rejection) {
+            this.rejected = rejected;
+            this.timedOut = timedOut;
+            this.response = response;
+            this.rejection = rejection;
+        }
+
+        static ChatOutcome answered(ChatResponse response) {
+            return new ChatOutcome(false, false, response, null);
+        }
+
+        static ChatOutcome rejected(ChatResponse response, RejectionCatalog.Rejection rejection) {
+            return new ChatOutcome(true, false, response, rejection);
+        }
+
+        static ChatOutcome timedOut(ChatResponse response) {
+            return new ChatOutcome(false, true, response, null);
+        }
+
+        public boolean isRejected() {
+            return rejected;
+        }
+
+        /** The deadline passed before an answer was ready; nothing is recorded. */
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        public ChatResponse getResponse() {
+            return response;
+        }
+
+        /** The pre-rendered payload behind a rejection, null otherwise. */
+        public RejectionCatalog.Rejection getRejection() {
+            return rejection;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public long getDeadlineMs() {
+        return deadlineMs;
+    }
+
+    /**
+     * Runs the pipeline on the calling thread and queues the turn for the transcript store.
+     *
+     * @param clientKey "user:<id>" or "ip:<address>", owner of the session
+     */
+    public ChatOutcome process(ChatRequest request, String clientKey) {
+        try (StructuredScope scope = new StructuredScope("chat", Duration.ofMillis(deadlineMs))) {
+            return process(request, clientKey, scope);
+        }
+    }
+
+    /**
+     * Runs the pipeline on its own virtual thread. Cancelling the returned future
+     * cancels the scope, so the outbound calls in flight are interrupted.
+     */
+    public CompletableFuture<ChatOutcome> processAsync(ChatRequest request, String clientKey) {
+        StructuredScope scope = new StructuredScope("chat", Duration.ofMillis(deadlineMs));
+        CompletableFuture<ChatOutcome> result = new CompletableFuture<>();
+        result.whenComplete((outcome, error) -> {
+            if (result.isCancelled()) {
+                scope.cancel();
+            }
+        });
+        executor.execute(() -> {
+            try (scope) {
+                result.complete(process(request, clientKey, scope));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result;
+    }
+
+    private ChatOutcome process(ChatRequest request, String clientKey, StructuredScope scope) {
+        if (request.getSessionId() == null || !SESSION_ID.matcher(request.getSessionId()).matches()) {
+            request.setSessionId(UUID.randomUUID().toString());
+        }
+        String question = request.getMessage();
+
+        Timer.Sample total = chatMetrics.start();
+        ChatOutcome outcome;
+        try {
+            outcome = Observation.createNotStarted("ally.chat", observationRegistry)
+                    .lowCardinalityKeyValue("rag", String.valueOf(request.isUseRAG()))
+                    .observe(() -> runPipeline(request, scope));
+        } catch (StructuredScope.DeadlineExceededException e) {
+            chatMetrics.request(total, "timeout");
+            logger.warn("Chat request exceeded the {} ms deadline (session={})", deadlineMs, request.getSessionId());
+            ChatResponse timeout = new ChatResponse();
+            timeout.setResponse(TIMEOUT_RESPONSE);
+            timeout.setRagEnabled(request.isUseRAG());
+            timeout.setTimestamp(LocalDateTime.now().toString());
+            timeout.setSessionId(request.getSessionId());
+            return ChatOutcome.timedOut(timeout);
+        } catch (RuntimeException e) {
+            chatMetrics.request(total, "error");
+            throw e;
+        }
+        chatMetrics.request(total, outcome.isRejected() ? "rejected" : "answered");
+
+        outcome.getResponse().setSessionId(request.getSessionId());
+        transcriptService.record(request.getSessionId(), clientKey, question, outcome.getResponse(), outcome.isRejected());
+        return outcome;
+    }
+
+    private ChatOutcome runPipeline(ChatRequest request, StructuredScope scope) {
+        ChatResponse chatResponse = new ChatResponse();
+        chatResponse.setRagEnabled(request.isUseRAG());
+        chatResponse.setTimestamp(LocalDateTime.now().toString());
+
+        logger.info("Chat request received (session={}, rag={}, chars={})",
+                request.getSessionId(), request.isUseRAG(), request.getMessage() != null ? request.getMessage().length() : 0);
+        logger.debug("Chat message: {}", request.getMessage());
+        
+        String enhancedPrompt = request.getMessage();
+
+        // ==========================================
+        // Basic Java Validation (checked first, rejecting costs nothing)
+        // ==========================================
+        LegalQuestionValidator.ValidationResult javaValidation = validator.validate(request.getMessage());
+
+        if (!javaValidation.isValid()) {
+            logger.debug("Rejected by Java validator: {}", javaValidation.getMessage());
+            return reject(request, rejectionCatalog.length(javaValidation.getMessage()));
+        }
+        
+        // ==========================================
+        // STAGE 0: Local intent check (no network)
+        // ==========================================
+        Timer.Sample stage = chatMetrics.start();
+        LocalIntentClassifier.IntentResult intent = intentClassifier.classify(request.getMessage());
+
+        if (intent.getIntent() == LocalIntentClassifier.Intent.GREETING
+                || intent.getIntent() == LocalIntentClassifier.Intent.META) {
+            chatMetrics.stage(stage, "intent", intent.getIntent().name().toLowerCase());
+            logger.info("Greeting/meta question answered locally ({})", intent.getIntent());
+
+            chatResponse.setResponse(intent.getIntent() == LocalIntentClassifier.Intent.GREETING
+                    ? LocalIntentClassifier.GREETING_RESPONSE
+                    : LocalIntentClassifier.META_RESPONSE);
+            chatResponse.setRagEnabled(false);
+            chatResponse.setRelevantCases(null);
+            chatResponse.setCaseCount(0);
+            chatResponse.setConfidence(null);
+
+            return ChatOutcome.answered(chatResponse);
+        }
+
+        if (intentClassifier.shouldRejectLocally(intent)) {
+            chatMetrics.stage(stage, "intent", "rejected");
+            logger.debug("Rejected by local intent classifier (confidence={})", intent.getConfidence());
+            return reject(request, rejectionCatalog.localIntent());
+        }
+
+        boolean skipRemoteValidation = intentClassifier.shouldSkipRemoteValidation(intent);
+        chatMetrics.stage(stage, "intent", skipRemoteValidation ? "legal" : "unknown");
+
+        // ==========================================
+        // STAGE 1: Python Gemini Validation
+        // ==========================================
+        ValidationResponse pythonValidation = null;
+        StructuredScope.Subtask<RagSearchResponse> search = null;
+        RetrievalPlanner.Retrieval cachedRetrieval = request.isUseRAG()
+                ? retrievalPlanner.cached(request.getSessionId(), request.getMessage())
+                : null;
+        if (skipRemoteValidation) {
+            logger.debug("Stage 1 skipped, local classifier confident this is legal (confidence={})", intent.getConfidence());
+        } else {
+            stage = chatMetrics.start();
+            StructuredScope.Subtask<ValidationResponse> validation =
+                    fork(scope, () -> ragService.validateQuestion(request.getMessage()));
+            // Search does not depend on the verdict; start it now, a rejection cancels it with the scope
+            if (request.isUseRAG() && parallelSearch && cachedRetrieval == null) {
+                search = fork(scope, () -> retrievalPlanner.firstPage(request.getMessage()));
+            }
+            pythonValidation = validation.join();
+            intentClassifier.recordOutcome(request.getMessage(), pythonValidation);
+            chatMetrics.stage(stage, "validate", validationOutcome(pythonValidation));
+        }
+        
+        if (pythonValidation != null && pythonValidation.getIsValid() != null && !pythonValidation.getIsValid()) {
+            logger.debug("Rejected by Gemini classifier (method={}, confidence={})",
+                    pythonValidation.getMethod(), pythonValidation.getConfidence());
+            // The Python message is shown as is
+            return reject(request, rejectionCatalog.classifier(pythonValidation.getRejectionReason()));
+        }
+        
+        if (pythonValidation != null) {
+            logger.debug("Passed Gemini validation (confidence={})", pythonValidation.getConfidence());
+        }
+
+        // ==========================================
+        // STAGE 3: RAG Processing (if enabled)
+        // ==========================================
+        if (request.isUseRAG()) {
+            stage = chatMetrics.start();
+            RetrievalPlanner.Retrieval retrieval = cachedRetrieval;
+            if (retrieval == null) {
+                if (search == null) {
+                    search = fork(scope, () -> retrievalPlanner.firstPage(request.getMessage()));
+                }
+                RagSearchResponse firstPage = search.join();
+                // May widen with a second remote search, so it runs under the scope deadline too
+                retrieval = fork(scope, () ->
+                        retrievalPlanner.complete(request.getSessionId(), request.getMessage(), firstPage)).join();
+            }
+
+            if (retrieval.getOutcome() == RetrievalPlanner.Outcome.REJECTED) {
+                RagSearchResponse ragResults = retrieval.getResponse();
+                chatMetrics.stage(stage, "search", "rejected");
+                logger.debug("Rejected by RAG ({}): {}", ragResults.getRejectionStage(), ragResults.getRejectionReason());
+                return reject(request, rejectionCatalog.rag(ragResults.getRejectionStage(), ragResults.getRejectionReason()));
+            }
+            chatMetrics.stage(stage, "search", retrieval.getSource());
+
+            stage = chatMetrics.start();
+            String promptOutcome;
+
+            switch (retrieval.getOutcome()) {
+                case CASES -> {
+                    // Near-duplicate passages are dropped, the rest share the prompt budget by score
+                    PromptContextPacker.PackedContext packed = contextPacker.pack(retrieval.getCases(), request.getMessage());
+                    List<LegalCase> promptCases = packed.getCases();
+
+                    chatResponse.setRelevantCases(promptCases);
+                    chatResponse.setCaseCount(promptCases.size());
+                    
+                    double topScore = promptCases.get(0).getScore();
+                    chatResponse.setConfidence(String.format("%.0f%%", topScore));
+                    
+                    if (logger.isDebugEnabled()) {
+                        for (int i = 0; i < promptCases.size(); i++) {
+                            LegalCase legalCase = promptCases.get(i);
+                            logger.debug("Case {}: {} ({}%)", i + 1, legalCase.getTitle(), legalCase.getScore());
+                        }
+                    }
+                    
+                    enhancedPrompt = packed.getPrompt();
+                    promptOutcome = "cases";
+                    
+                    logger.info("Prompt built with {} cases (top relevance {}%, ~{} tokens)",
+                            promptCases.size(), topScore, packed.getEstimatedTokens());
+                }
+                case LOW_RELEVANCE -> {
+                    logger.info("No cases above {}% threshold, answering with guidance", retrieval.getThreshold());
+                    
+                    chatResponse.setRelevantCases(null);
+                    chatResponse.setCaseCount(0);
+                    chatResponse.setConfidence("Low relevance");
+                    
+                    enhancedPrompt = contextPacker.lowRelevancePrompt(request.getMessage());
+                    promptOutcome = "low_relevance";
+                }
+                case NO_CASES -> {
+                    logger.info("No cases found");
+                    
+                    chatResponse.setRelevantCases(null);
+                    chatResponse.setCaseCount(0);
+                    chatResponse.setConfidence(null);
+                    
+                    enhancedPrompt = contextPacker.noCasesPrompt(request.getMessage());
+                    promptOutcome = "no_cases";
+                }
+                default -> {
+                    // RAG service skipped by the resilience layer - answer without case context
+                    logger.warn("RAG service unavailable, answering without cases");
+                    request.setUseRAG(false);
+                    chatResponse.setRagEnabled(false);
+                    chatResponse.setRelevantCases(null);
+                    chatResponse.setCaseCount(0);
+                    promptOutcome = "degraded";
+                }
+            }
+            chatMetrics.stage(stage, "prompt", promptOutcome);
+            
+        } else {
+            logger.debug("RAG not enabled, sending directly to Gemini");
+        }
+        
+        // RAG prompts carry their own context, so identical ones can share a single call
+        boolean stateless = request.isUseRAG();
+        chatMetrics.promptSize(enhancedPrompt != null ? enhancedPrompt.length() : 0);
+        stage = chatMetrics.start();
+        String prompt = enhancedPrompt;
+        String sessionId = request.getSessionId();
+        String response = fork(scope, () -> stateless
+                ? geminiChatService.sendStatelessMessage(prompt)
+                : geminiChatService.sendMessage(sessionId, prompt)).join();
+        chatMetrics.stage(stage, "generate", GeminiChatService.isErrorResponse(response) ? "error" : stateless ? "stateless" : "conversation");
+        chatMetrics.responseSize(response.length());
+        chatResponse.setResponse(response);
+        logger.info("Response generated ({} chars)", response.length());
+        
+        return ChatOutcome.answered(chatResponse);
+    }
+
+    private ChatOutcome reject(ChatRequest request, RejectionCatalog.Rejection rejection) {
+        rejectionCatalog.count(rejection);
+        return ChatOutcome.rejected(
+                rejectionCatalog.toResponse(rejection, request.isUseRAG(), LocalDateTime.now().toString()), rejection);
+    }
+
+    /**
+     * Forks a pipeline call, carrying the current observation over so the
+     * outbound spans stay children of ally.chat.
+     */
+    private <T> StructuredScope.Subtask<T> fork(StructuredScope scope, Callable<T> task) {
+        Observation parent = observationRegistry.getCurrentObservation();
+        if (parent == null) {
+            return scope.fork(task);
+        }
+        return scope.fork(() -> {
+            try (Observation.Scope ignored = parent.openScope()) {
+                return task.call();
+            }
+        });
+    }
+
+    private static String validationOutcome(ValidationResponse validation) {
+        if (validation == null || validation.getIsValid() == null) {
+            return "unknown";
+        }
+        if (validation.getMethod() != null && validation.getMethod().contains("fallback")) {
+            return "fallback";
+        }
+        return validation.getIsValid() ? "passed" : "rejected";
+    }
+}
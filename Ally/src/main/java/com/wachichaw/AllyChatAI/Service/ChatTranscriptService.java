@@ -0,0 +1,425 @@
+package com.wachichaw.AllyChatAI.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wachichaw.AllyChatAI.Entity.ChatTurnEntity;
+import com.wachichaw.AllyChatAI.Repo.ChatTurnRepo;
+import com.wachichaw.AllyRAG.ChatResponse;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Write-behind store for chatbot transcripts.
+ *
+ * The request path only appends the turn to a local journal file and an in-memory
+ * queue. A background thread drains the queue into the database in JDBC batches,
+ * when a batch fills up or the flush interval passes. The journal is truncated
+ * once everything in it has been written, so after a crash the unwritten turns are
+ * replayed on the next start. Turn ids are generated up front and inserted with
+ * INSERT IGNORE, so a replay never duplicates a turn.
+ */
+@Service
+public class ChatTranscriptService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatTranscriptService.class);
+
+    private static final String UPSERT_SESSION =
+        "INSERT INTO chat_session (session_id, client_key, created_at, last_activity_at) VALUES (?, ?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE last_activity_at = GREATEST(last_activity_at, VALUES(last_activity_at))";
+
+    private static final String INSERT_TURN =
+        "INSERT IGNORE INTO chat_turn (turn_id, session_id, client_key, question, answer, rag_enabled, " +
+        "case_count, confidence, rejected, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final long MAX_RETRY_BACKOFF_MS = 30_000;
+
+    @Value("${chat.transcript.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chat.transcript.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${chat.transcript.batch-size:100}")
+    private int batchSize;
+
+    @Value("${chat.transcript.flush-interval-ms:2000}")
+    private long flushIntervalMs;
+
+    @Value("${chat.transcript.journal-path:${java.io.tmpdir}/ally-transcripts/journal.jsonl}")
+    private String journalPath;
+
+    @Value("${chat.transcript.journal-fsync:false}")
+    private boolean journalFsync;
+
+    @Value("${chat.transcript.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    /**
+     * A turn as it is journaled and queued. Times are epoch millis so the journal
+     * format does not depend on Jackson's date handling.
+     */
+    public record TranscriptTurn(String turnId, String sessionId, String clientKey, String question,
+                                 String answer, boolean ragEnabled, Integer caseCount, String confidence,
+                                 boolean rejected, long createdAtMillis) {
+
+        static TranscriptTurn of(String sessionId, String clientKey, String question, ChatResponse response,
+                                 boolean rejected) {
+            return new TranscriptTurn(UUID.randomUUID().toString(), sessionId, clientKey, question,
+                    response.getResponse(), response.isRagEnabled(), response.getCaseCount(),
+                    response.getConfidence(), rejected, System.currentTimeMillis());
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ChatTurnRepo chatTurnRepo;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    // Guards the journal and queue together so truncation never loses a queued turn.
+    // A ReentrantLock rather than synchronized: a virtual thread that blocks on file I/O
+    // inside a synchronized block pins its carrier thread.
+    private final ReentrantLock journalLock = new ReentrantLock();
+
+    private BlockingQueue<TranscriptTurn> queue;
+    private FileChannel journal;
+    private List<TranscriptTurn> recovered = List.of();
+    private volatile List<TranscriptTurn> inFlight = List.of();
+    private volatile boolean running;
+    // Set once a batch could not be written; the journal is then kept for the next start
+    private volatile boolean keepJournal;
+    private Thread writerThread;
+
+    private Counter flushedTurns;
+    private Counter droppedTurns;
+    private Counter flushFailures;
+    private Timer flushTimer;
+
+    public ChatTranscriptService(JdbcTemplate jdbcTemplate, ChatTurnRepo chatTurnRepo, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.chatTurnRepo = chatTurnRepo;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        flushedTurns = meterRegistry.counter("chat.transcript.flushed");
+        droppedTurns = meterRegistry.counter("chat.transcript.dropped");
+        flushFailures = meterRegistry.counter("chat.transcript.flush.failures");
+        flushTimer = meterRegistry.timer("chat.transcript.flush");
+        Gauge.builder("chat.transcript.queue.size", queue, BlockingQueue::size)
+                .description("Chat turns waiting to be written to the database")
+                .register(meterRegistry);
+
+        try {
+            Path path = Paths.get(journalPath).toAbsolutePath();
+            Files.createDirectories(path.getParent());
+            recovered = readJournal(path);
+            journal = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            if (!recovered.isEmpty()) {
+                logger.info("Replaying {} chat turns from transcript journal", recovered.size());
+            }
+        } catch (IOException e) {
+            // Without a journal turns are still written, just not crash-safe
+            logger.warn("Transcript journal unavailable at {}: {}", journalPath, e.getMessage());
+        }
+
+        running = true;
+        writerThread = new Thread(this::writeLoop, "chat-transcript-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (writerThread == null) {
+            return;
+        }
+        // The writer drains what is left in the queue before it exits
+        running = false;
+        try {
+            writerThread.join(shutdownTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            logger.warn("Transcript writer did not finish within {} ms; unwritten turns stay in the journal", shutdownTimeoutMs);
+        }
+        closeJournal();
+    }
+
+    /**
+     * Queues a finished turn. Never touches the database; if the queue is full the
+     * turn is dropped and counted rather than slowing the chat response.
+     */
+    public void record(String sessionId, String clientKey, String question, ChatResponse response, boolean rejected) {
+        if (!enabled || queue == null || response == null) {
+            return;
+        }
+        TranscriptTurn turn = TranscriptTurn.of(sessionId, clientKey, question, response, rejected);
+        byte[] line;
+        try {
+            line = (mapper.writeValueAsString(turn) + "\n").getBytes(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            logger.warn("Could not serialize chat turn: {}", e.getMessage());
+            return;
+        }
+
+        journalLock.lock();
+        try {
+            if (!queue.offer(turn)) {
+                droppedTurns.increment();
+                return;
+            }
+            if (journal != null) {
+                try {
+                    ByteBuffer buffer = ByteBuffer.wrap(line);
+                    while (buffer.hasRemaining()) {
+                        journal.write(buffer);
+                    }
+                    if (journalFsync) {
+                        journal.force(false);
+                    }
+                } catch (IOException e) {
+                    logger.warn("Could not journal chat turn: {}", e.getMessage());
+                }
+            }
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    /**
+     * Turns of a session, oldest first, including ones not yet written to the database.
+     */
+    public List<ChatTurnEntity> getSessionTurns(String sessionId, String clientKey) {
+        Map<String, ChatTurnEntity> turns = new LinkedHashMap<>();
+        for (ChatTurnEntity turn : chatTurnRepo.findBySessionIdAndClientKeyOrderByCreatedAtAsc(sessionId, clientKey)) {
+            turns.put(turn.getTurnId(), turn);
+        }
+        if (queue != null) {
+            List<TranscriptTurn> pending = new ArrayList<>(inFlight);
+            pending.addAll(queue);
+            for (TranscriptTurn turn : pending) {
+                if (turn.sessionId().equals(sessionId) && turn.clientKey().equals(clientKey)) {
+                    turns.putIfAbsent(turn.turnId(), toEntity(turn));
+                }
+            }
+        }
+        List<ChatTurnEntity> result = new ArrayList<>(turns.values());
+        result.sort(Comparator.comparing(ChatTurnEntity::getCreatedAt));
+        return result;
+    }
+
+    private void writeLoop() {
+        for (int from = 0; from < recovered.size(); from += batchSize) {
+            flushWithRetry(recovered.subList(from, Math.min(from + batchSize, recovered.size())));
+        }
+        recovered = List.of();
+        truncateJournalIfIdle();
+
+        List<TranscriptTurn> batch = new ArrayList<>(batchSize);
+        long lastFlush = System.currentTimeMillis();
+        while (running || !queue.isEmpty() || !batch.isEmpty()) {
+            try {
+                long waitMs = Math.max(1, flushIntervalMs - (System.currentTimeMillis() - lastFlush));
+                TranscriptTurn turn = queue.poll(running ? waitMs : 0, TimeUnit.MILLISECONDS);
+                if (turn != null) {
+                    batch.add(turn);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+            boolean due = now - lastFlush >= flushIntervalMs;
+            if (batch.size() >= batchSize || (!batch.isEmpty() && (due || !running))) {
+                flushWithRetry(batch);
+                batch.clear();
+                truncateJournalIfIdle();
+                lastFlush = now;
+            } else if (due) {
+                lastFlush = now;
+            }
+        }
+    }
+
+    /**
+     * Retries with backoff while the application is running. During shutdown a
+     * failed batch is left to the journal instead of blocking the exit.
+     */
+    private void flushWithRetry(List<TranscriptTurn> batch) {
+        inFlight = List.copyOf(batch);
+        long backoffMs = flushIntervalMs;
+        try {
+            while (true) {
+                try {
+                    flushTimer.record(() -> flush(batch));
+                    flushedTurns.increment(batch.size());
+                    return;
+                } catch (RuntimeException e) {
+                    flushFailures.increment();
+                    if (!running) {
+                        logger.warn("Writing {} chat turns failed during shutdown, keeping them in the journal: {}",
+                                batch.size(), e.getMessage());
+                        keepJournal = true;
+                        return;
+                    }
+                    logger.warn("Writing {} chat turns failed, retrying in {} ms: {}", batch.size(), backoffMs, e.getMessage());
+                    Thread.sleep(backoffMs);
+                    backoffMs = Math.min(backoffMs * 2, MAX_RETRY_BACKOFF_MS);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            keepJournal = true;
+        } finally {
+            inFlight = List.of();
+        }
+    }
+
+    private void flush(List<TranscriptTurn> batch) {
+        // One session row per session in the batch, spanning its first and last turn
+        Map<String, TranscriptTurn[]> sessions = new LinkedHashMap<>();
+        for (TranscriptTurn turn : batch) {
+            sessions.merge(turn.sessionId(), new TranscriptTurn[] { turn, turn }, (a, b) -> new TranscriptTurn[] {
+                a[0].createdAtMillis() <= b[0].createdAtMillis() ? a[0] : b[0],
+                a[1].createdAtMillis() >= b[1].createdAtMillis() ? a[1] : b[1]
+            });
+        }
+        List<TranscriptTurn[]> sessionRows = new ArrayList<>(sessions.values());
+        jdbcTemplate.batchUpdate(UPSERT_SESSION, sessionRows, sessionRows.size(), (ps, span) -> {
+            ps.setString(1, span[0].sessionId());
+            ps.setString(2, span[0].clientKey());
+            ps.setTimestamp(3, new Timestamp(span[0].createdAtMillis()));
+            ps.setTimestamp(4, new Timestamp(span[1].createdAtMillis()));
+        });
+
+        jdbcTemplate.batchUpdate(INSERT_TURN, batch, batch.size(), (ps, turn) -> {
+            ps.setString(1, turn.turnId());
+            ps.setString(2, turn.sessionId());
+            ps.setString(3, turn.clientKey());
+            ps.setString(4, turn.question());
+            ps.setString(5, turn.answer());
+            ps.setBoolean(6, turn.ragEnabled());
+            ps.setObject(7, turn.caseCount());
+            ps.setString(8, turn.confidence());
+            ps.setBoolean(9, turn.rejected());
+            ps.setTimestamp(10, new Timestamp(turn.createdAtMillis()));
+        });
+    }
+
+    private void truncateJournalIfIdle() {
+        journalLock.lock();
+        try {
+            if (journal == null || keepJournal || !queue.isEmpty() || !inFlight.isEmpty()) {
+                return;
+            }
+            try {
+                journal.truncate(0);
+            } catch (IOException e) {
+                logger.warn("Could not truncate transcript journal: {}", e.getMessage());
+            }
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    private List<TranscriptTurn> readJournal(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return List.of();
+        }
+        List<TranscriptTurn> turns = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    TranscriptTurn turn = mapper.readValue(line, TranscriptTurn.class);
+                    if (seen.add(turn.turnId())) {
+                        turns.add(turn);
+                    }
+                } catch (IOException e) {
+                    // A crash mid-write leaves at most one torn line at the end
+                    logger.debug("Skipping unreadable journal line: {}", e.getMessage());
+                }
+            }
+        }
+        return turns;
+    }
+
+    private void closeJournal() {
+        journalLock.lock();
+        try {
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    logger.debug("Could not close transcript journal: {}", e.getMessage());
+                }
+                journal = null;
+            }
+        } finally {
+            journalLock.unlock();
+        }
+    }
+
+    private static ChatTurnEntity toEntity(TranscriptTurn turn) {
+        ChatTurnEntity entity = new ChatTurnEntity();
+        entity.setTurnId(turn.turnId());
+        entity.setSessionId(turn.sessionId());
+        entity.setClientKey(turn.clientKey());
+        entity.setQuestion(turn.question());
+        entity.setAnswer(turn.answer());
+        entity.setRagEnabled(turn.ragEnabled());
+        entity.setCaseCount(turn.caseCount());
+        entity.setConfidence(turn.confidence());
+        entity.setRejected(turn.rejected());
+        entity.setCreatedAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(turn.createdAtMillis()), ZoneId.systemDefault()));
+        return entity;
+    }
+}
@@ -1,14 +1,26 @@
 package com.wachichaw.AllyChatAI.Service;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import com.google.auth.oauth2.GoogleCredentials;
+import org.springframework.scheduling.annotation.Scheduled;
+import com.wachichaw.AllyRAG.RequestCoalescer;
+import com.wachichaw.Config.DependencyHealthMonitor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.*;
 
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.springframework.http.*;
 import org.springframework.web.client.RestTemplate;
@@ -16,74 +28,153 @@ import org.springframework.web.client.RestTemplate;
 @Service
 public class GeminiChatService {
 
+    private static final Logger logger = LoggerFactory.getLogger(GeminiChatService.class);
+
+    private static final String ERROR_PREFIX = "Error: ";
+    private static final String NO_TEXT = "No response text found.";
+
     @Value("${google.project-id}")
     private String projectId;
 
     @Value("${google.model-id}")
     private String modelId;
 
-    private final GoogleCredentials googleCredentials;
-    private final List<ObjectNode> conversationHistory = new ArrayList<>();
+    @Value("${google.vertex.base-url:https://us-central1-aiplatform.googleapis.com}")
+    private String vertexBaseUrl;
+
+    @Value("${chat.history.max-turns:20}")
+    private int maxHistoryTurns;
+
+    @Value("${chat.history.idle-minutes:30}")
+    private long historyIdleMinutes;
+
+    private final VertexAccessTokenManager tokenManager;
+    private final RestTemplate restTemplate;
+    private final ObservationRegistry observationRegistry;
+    private final DependencyHealthMonitor healthMonitor;
+    // Conversation history per chat session; idle sessions are evicted
+    private final Map<String, Conversation> conversations = new ConcurrentHashMap<>();
 
     private final ObjectMapper mapper = new ObjectMapper();
 
-    public GeminiChatService(GoogleCredentials googleCredentials) throws IOException {
-        this.googleCredentials = googleCredentials
-                .createScoped(List.of("https://www.googleapis.com/auth/cloud-platform"));
-        this.googleCredentials.refreshIfExpired();
+    private final RequestCoalescer<String> statelessCoalescer = new RequestCoalescer<>();
+
+    public GeminiChatService(VertexAccessTokenManager tokenManager,
+                             @Qualifier("geminiRestTemplate") RestTemplate restTemplate,
+                             ObservationRegistry observationRegistry,
+                             DependencyHealthMonitor healthMonitor) {
+        this.tokenManager = tokenManager;
+        this.restTemplate = restTemplate;
+        this.observationRegistry = observationRegistry;
+        this.healthMonitor = healthMonitor;
     }
 
-    public String sendMessage(String prompt) {
+    /**
+     * True for the placeholder texts returned instead of a model answer.
+     */
+    public static boolean isErrorResponse(String response) {
+        return response == null || response.startsWith(ERROR_PREFIX) || NO_TEXT.equals(response);
+    }
+
+    /**
+     * Sends the prompt with the session's earlier turns as context. The history is copied
+     * before the call and both turns are added only once the model has answered, so
+     * concurrent chats never see each other's turns and a failed or cancelled call
+     * leaves no unanswered turn behind.
+     */
+    public String sendMessage(String sessionId, String prompt) {
+        Conversation conversation = conversations.computeIfAbsent(sessionId, id -> new Conversation());
         try {
-            // Add user message to history
-            ObjectNode userNode = mapper.createObjectNode();
-            userNode.put("role", "user");
-            ArrayNode userParts = mapper.createArrayNode();
-            userParts.addObject().put("text", prompt);
-            userNode.set("parts", userParts);
-            conversationHistory.add(userNode);
+            ObjectNode userTurn = buildContent("user", prompt);
 
             // Build request body
-            ObjectNode requestBody = mapper.createObjectNode();
-            ArrayNode contentsNode = mapper.createArrayNode();
-            for (ObjectNode msg : conversationHistory) {
-                contentsNode.add(msg);
-            }
-            requestBody.set("contents", contentsNode);
+            ArrayNode contentsNode = conversation.snapshot();
+            contentsNode.add(userTurn);
 
-            // Auth headers
-            String token = googleCredentials.getAccessToken().getTokenValue();
-            HttpHeaders headers = new HttpHeaders();
-            headers.setBearerAuth(token);
-            headers.setContentType(MediaType.APPLICATION_JSON);
+            String modelResponseText = generateContent(contentsNode, "conversation");
 
-            HttpEntity<String> entity = new HttpEntity<>(requestBody.toString(), headers);
+            if (!isErrorResponse(modelResponseText)) {
+                conversation.append(userTurn, buildContent("model", modelResponseText), maxHistoryTurns);
+            }
 
-            String endpoint = String.format(
-                "https://us-central1-aiplatform.googleapis.com/v1/projects/%s/locations/us-central1/endpoints/%s:generateContent",
-                projectId, modelId
-            );
+            return modelResponseText;
 
-            // Send request
-            RestTemplate restTemplate = new RestTemplate();
-            ResponseEntity<String> response = restTemplate.postForEntity(endpoint, entity, String.class);
+        } catch (Exception e) {
+            cancelIfInterrupted();
+            logger.error("Gemini request failed", e);
+            return ERROR_PREFIX + e.getMessage();
+        }
+    }
 
-            // Optional: Add model response to history
-            String modelResponseText = extractTextFromResponse(response.getBody());
+    /**
+     * Single-turn prompt that does not read or write the conversation history.
+     * Identical concurrent prompts are coalesced into one Vertex AI call.
+     */
+    public String sendStatelessMessage(String prompt) {
+        return statelessCoalescer.execute(RequestCoalescer.normalize(prompt), () -> {
+            try {
+                ArrayNode contentsNode = mapper.createArrayNode();
+                contentsNode.add(buildContent("user", prompt));
+                return generateContent(contentsNode, "stateless");
+            } catch (Exception e) {
+                cancelIfInterrupted();
+                logger.error("Gemini request failed", e);
+                return ERROR_PREFIX + e.getMessage();
+            }
+        });
+    }
 
-            ObjectNode modelNode = mapper.createObjectNode();
-            modelNode.put("role", "model");
-            ArrayNode modelParts = mapper.createArrayNode();
-            modelParts.addObject().put("text", modelResponseText);
-            modelNode.set("parts", modelParts);
-            conversationHistory.add(modelNode);
+    /**
+     * A chat that was cancelled interrupts its Vertex AI call, which then fails with
+     * a closed socket. That is not an error answer; let the cancellation through.
+     */
+    private static void cancelIfInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Gemini request cancelled");
+        }
+    }
 
-            return modelResponseText;
+    private ObjectNode buildContent(String role, String text) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("role", role);
+        ArrayNode parts = mapper.createArrayNode();
+        parts.addObject().put("text", text);
+        node.set("parts", parts);
+        return node;
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            return "Error: " + e.getMessage();
+    private String generateContent(ArrayNode contentsNode, String mode) {
+        return Observation.createNotStarted("gemini.generate", observationRegistry)
+                .lowCardinalityKeyValue("mode", mode)
+                .observe(() -> callGenerateContent(contentsNode));
+    }
+
+    private String callGenerateContent(ArrayNode contentsNode) {
+        // Fail fast while the probes see the endpoint down instead of waiting out the read timeout
+        if (healthMonitor.isGeminiDown()) {
+            throw new IllegalStateException("Vertex AI endpoint is unavailable");
         }
+
+        ObjectNode requestBody = mapper.createObjectNode();
+        requestBody.set("contents", contentsNode);
+
+        // Auth headers (token is refreshed in the background)
+        String token = tokenManager.getTokenValue();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        HttpEntity<String> entity = new HttpEntity<>(requestBody.toString(), headers);
+
+        String endpoint = String.format(
+            "%s/v1/projects/%s/locations/us-central1/endpoints/%s:generateContent",
+            vertexBaseUrl, projectId, modelId
+        );
+
+        // Send request over the shared pooled client
+        ResponseEntity<String> response = restTemplate.postForEntity(endpoint, entity, String.class);
+
+        return extractTextFromResponse(response.getBody());
     }
 
     private String extractTextFromResponse(String json) {
@@ -94,13 +185,55 @@ public class GeminiChatService {
                 return candidates.get(0).path("content").path("parts").get(0).path("text").asText();
             }
         } catch (IOException e) {
-            e.printStackTrace();
+            logger.warn("Could not parse Gemini response: {}", e.getMessage());
         }
-        return "No response text found.";
+        return NO_TEXT;
     }
 
-    // Reset conversation history
-    public void resetHistory() {
-        conversationHistory.clear();
+    // Reset conversation history of one session
+    public void resetHistory(String sessionId) {
+        conversations.remove(sessionId);
+    }
+
+    @Scheduled(fixedDelayString = "${chat.history.eviction-interval-ms:60000}")
+    public void evictIdleConversations() {
+        long idleBefore = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(historyIdleMinutes);
+        conversations.values().removeIf(conversation -> conversation.lastUsedMillis < idleBefore);
+    }
+
+    /**
+     * The turns of one session, oldest first, at most max-turns question/answer pairs.
+     */
+    private final class Conversation {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Deque<ObjectNode> turns = new ArrayDeque<>();
+        private volatile long lastUsedMillis = System.currentTimeMillis();
+
+        ArrayNode snapshot() {
+            lastUsedMillis = System.currentTimeMillis();
+            ArrayNode contents = mapper.createArrayNode();
+            lock.lock();
+            try {
+                turns.forEach(contents::add);
+            } finally {
+                lock.unlock();
+            }
+            return contents;
+        }
+
+        void append(ObjectNode userTurn, ObjectNode modelTurn, int maxTurns) {
+            lastUsedMillis = System.currentTimeMillis();
+            lock.lock();
+            try {
+                turns.addLast(userTurn);
+                turns.addLast(modelTurn);
+                while (turns.size() > 2 * Math.max(maxTurns, 1)) {
+                    turns.removeFirst();
+                    turns.removeFirst();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
     }
 }
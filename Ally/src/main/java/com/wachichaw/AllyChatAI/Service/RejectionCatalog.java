@@ -0,0 +1,211 @@
+package com.wachichaw.AllyChatAI.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wachichaw.AllyRAG.ChatResponse;
+import com.wachichaw.AllyRAG.LocalIntentClassifier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Pre-rendered responses for rejected chats.
+ *
+ * Each rejection is built once: its message, its confidence label and the fixed part
+ * of the ChatResponse JSON, already encoded to bytes. Per request only the timestamp
+ * and session id are appended. Messages that embed a reason from the classifier are
+ * interned the same way the first time each reason is seen, up to max-interned entries.
+ *
+ * ally.chat.rejections{stage} counts rejections per stage.
+ */
+@Component
+public class RejectionCatalog {
+
+    public enum Stage {
+        LOCAL_INTENT("local_intent"),
+        CLASSIFIER("classifier"),
+        LENGTH("length"),
+        GEMINI_FILTER("gemini_filter"),
+        NO_RESULTS("no_results"),
+        LOW_RELEVANCE("low_relevance"),
+        RAG_OTHER("rag_other");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * An immutable rejection payload.
+     */
+    public static final class Rejection {
+        private final Stage stage;
+        private final String message;
+        private final String confidence;
+        private final byte[] jsonPrefix;
+
+        private Rejection(Stage stage, String message, String confidence, byte[] jsonPrefix) {
+            this.stage = stage;
+            this.message = message;
+            this.confidence = confidence;
+            this.jsonPrefix = jsonPrefix;
+        }
+
+        public Stage getStage() {
+            return stage;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public String getConfidence() {
+            return confidence;
+        }
+    }
+
+    private static final String DEFAULT_REASON = "This question is outside what I can help with.";
+
+    private static final String GEMINI_FILTER_GUIDANCE = "\n\n" +
+        "💡 I specialize in Philippine law. Please ask about:\n" +
+        "• Legal rights and obligations\n" +
+        "• Court cases and procedures\n" +
+        "• Philippine laws and regulations\n" +
+        "• Legal remedies and penalties";
+
+    private static final String NO_RESULTS_MESSAGE = "❌ No relevant Supreme Court cases found.\n\n" +
+        "💡 Try:\n" +
+        "• Rephrasing with more general legal terms\n" +
+        "• Adding more context about your situation\n" +
+        "• Specifying the legal area (labor, criminal, civil, etc.)";
+
+    private static final String LOW_RELEVANCE_MESSAGE = "❌ Cases found but relevance too low.\n\n" +
+        "To get better results:\n" +
+        "• Use specific legal terms (e.g., 'illegal dismissal' vs 'fired unfairly')\n" +
+        "• Add more details about your situation\n" +
+        "• Specify the legal area involved\n\n" +
+        "💡 The more detailed your question, the better I can help!";
+
+    private static final String RAG_OTHER_GUIDANCE = "\n\n💡 Please rephrase with more legal context.";
+
+    @Value("${chat.rejections.max-interned:512}")
+    private int maxInterned;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<Stage, Counter> counters = new EnumMap<>(Stage.class);
+    private final Map<String, Rejection> interned = new ConcurrentHashMap<>();
+
+    private final Rejection localIntent;
+    private final Rejection noResults;
+    private final Rejection lowRelevance;
+
+    public RejectionCatalog(MeterRegistry meterRegistry) {
+        for (Stage stage : Stage.values()) {
+            counters.put(stage, Counter.builder("ally.chat.rejections")
+                    .description("Chats rejected, by pipeline stage")
+                    .tag("stage", stage.tag)
+                    .register(meterRegistry));
+        }
+        localIntent = build(Stage.LOCAL_INTENT, LocalIntentClassifier.OFF_TOPIC_RESPONSE, "Rejected - Local");
+        noResults = build(Stage.NO_RESULTS, NO_RESULTS_MESSAGE, "Rejected - no_results");
+        lowRelevance = build(Stage.LOW_RELEVANCE, LOW_RELEVANCE_MESSAGE, "Rejected - low_relevance");
+    }
+
+    public Rejection localIntent() {
+        return localIntent;
+    }
+
+    /** Rejected by the remote classifier; its reason is shown as is. */
+    public Rejection classifier(String reason) {
+        return intern(Stage.CLASSIFIER, "Rejected - Gemini", reason != null ? reason : DEFAULT_REASON, r -> r);
+    }
+
+    public Rejection length(String validatorMessage) {
+        return intern(Stage.LENGTH, "Rejected - Length", validatorMessage, r -> r);
+    }
+
+    /**
+     * Rejected by the RAG service's /search stages.
+     */
+    public Rejection rag(String rejectionStage, String reason) {
+        String stage = rejectionStage != null ? rejectionStage : "";
+        String shownReason = reason != null ? reason : DEFAULT_REASON;
+        return switch (stage) {
+            case "gemini_filter" -> intern(Stage.GEMINI_FILTER, "Rejected - gemini_filter", shownReason,
+                    r -> "❌ " + r + GEMINI_FILTER_GUIDANCE);
+            case "no_results" -> noResults;
+            case "low_relevance" -> lowRelevance;
+            default -> intern(Stage.RAG_OTHER, "Rejected - " + rejectionStage, shownReason,
+                    r -> "❌ " + r + RAG_OTHER_GUIDANCE);
+        };
+    }
+
+    public void count(Rejection rejection) {
+        counters.get(rejection.getStage()).increment();
+    }
+
+    public ChatResponse toResponse(Rejection rejection, boolean ragEnabled, String timestamp) {
+        ChatResponse response = new ChatResponse();
+        response.setResponse(rejection.getMessage());
+        response.setRelevantCases(null);
+        response.setCaseCount(0);
+        response.setConfidence(rejection.getConfidence());
+        response.setRagEnabled(ragEnabled);
+        response.setTimestamp(timestamp);
+        return response;
+    }
+
+    /**
+     * The ChatResponse JSON for this rejection. Timestamps are ISO dates and session
+     * ids are validated to [A-Za-z0-9-], so neither needs escaping.
+     */
+    public byte[] render(Rejection rejection, boolean ragEnabled, String timestamp, String sessionId) {
+        String tail = "\"ragEnabled\":" + ragEnabled
+                + ",\"timestamp\":" + (timestamp != null ? "\"" + timestamp + "\"" : "null")
+                + ",\"sessionId\":" + (sessionId != null ? "\"" + sessionId + "\"" : "null") + "}";
+        byte[] tailBytes = tail.getBytes(StandardCharsets.US_ASCII);
+        byte[] json = new byte[rejection.jsonPrefix.length + tailBytes.length];
+        System.arraycopy(rejection.jsonPrefix, 0, json, 0, rejection.jsonPrefix.length);
+        System.arraycopy(tailBytes, 0, json, rejection.jsonPrefix.length, tailBytes.length);
+        return json;
+    }
+
+    /**
+     * @param format turns the reason into the shown message; only applied the first time a reason is seen
+     */
+    private Rejection intern(Stage stage, String confidence, String reason, UnaryOperator<String> format) {
+        String key = stage.tag + '|' + confidence + '|' + reason;
+        Rejection rejection = interned.get(key);
+        if (rejection != null) {
+            return rejection;
+        }
+        rejection = build(stage, format.apply(reason), confidence);
+        // Past the cap new reasons are still rendered, just not kept
+        if (interned.size() < maxInterned) {
+            interned.putIfAbsent(key, rejection);
+        }
+        return rejection;
+    }
+
+    private Rejection build(Stage stage, String message, String confidence) {
+        try {
+            String prefix = "{\"response\":" + mapper.writeValueAsString(message)
+                    + ",\"relevantCases\":null,\"caseCount\":0"
+                    + ",\"confidence\":" + mapper.writeValueAsString(confidence) + ",";
+            return new Rejection(stage, message, confidence, prefix.getBytes(StandardCharsets.UTF_8));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not render rejection message", e);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.wachichaw.AllyChatAI.Service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps a valid OAuth access token for Vertex AI off the request path.
+ * A background thread refreshes the token before it expires and swaps it into
+ * an AtomicReference, so chat requests only do a lock-free read.
+ *
+ * With google.vertex.auth.enabled=false (local stand-in servers) no credentials
+ * are loaded and a fixed placeholder token is used.
+ */
+@Component
+public class VertexAccessTokenManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(VertexAccessTokenManager.class);
+
+    // Google does not always report an expiry; assume the usual one-hour lifetime
+    private static final long DEFAULT_LIFETIME_MS = TimeUnit.MINUTES.toMillis(60);
+
+    @Value("${google.vertex.token.refresh-margin-seconds:300}")
+    private long refreshMarginSeconds;
+
+    @Value("${google.vertex.token.retry-seconds:15}")
+    private long retrySeconds;
+
+    @Value("${google.vertex.auth.static-token:stand-in}")
+    private String staticToken;
+
+    private final GoogleCredentials credentials;
+    private final AtomicReference<AccessToken> currentToken = new AtomicReference<>();
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "vertex-token-refresher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Timer refreshTimer;
+    private final Counter refreshFailures;
+
+    public VertexAccessTokenManager(ObjectProvider<GoogleCredentials> googleCredentials, MeterRegistry meterRegistry) {
+        GoogleCredentials available = googleCredentials.getIfAvailable();
+        this.credentials = available != null
+                ? available.createScoped(List.of("https://www.googleapis.com/auth/cloud-platform"))
+                : null;
+        this.refreshTimer = Timer.builder("vertex.token.refresh")
+                .description("Latency of Vertex AI access token refreshes")
+                .register(meterRegistry);
+        this.refreshFailures = Counter.builder("vertex.token.refresh.failures")
+                .description("Failed Vertex AI access token refreshes")
+                .register(meterRegistry);
+        Gauge.builder("vertex.token.expires.in.seconds", this, VertexAccessTokenManager::secondsUntilExpiry)
+                .description("Seconds until the cached Vertex AI access token expires")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (credentials == null) {
+            logger.info("Vertex AI authentication disabled, using a static token");
+            currentToken.set(new AccessToken(staticToken, null));
+            return;
+        }
+        // First refresh runs at startup so the first chat already has a token
+        refresh();
+    }
+
+    @PreDestroy
+    public void stop() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Current bearer token. Never blocks on a refresh.
+     */
+    public String getTokenValue() {
+        AccessToken token = currentToken.get();
+        if (token == null) {
+            throw new IllegalStateException("Vertex AI access token is not available yet");
+        }
+        return token.getTokenValue();
+    }
+
+    private void refresh() {
+        Timer.Sample sample = Timer.start();
+        try {
+            credentials.refresh();
+            AccessToken token = credentials.getAccessToken();
+            currentToken.set(token);
+            long delayMs = Math.max(nextRefreshDelayMs(token), TimeUnit.SECONDS.toMillis(retrySeconds));
+            logger.debug("Vertex AI token refreshed, next refresh in {} s", delayMs / 1000);
+            refresher.schedule(this::refresh, delayMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            refreshFailures.increment();
+            logger.error("Vertex AI token refresh failed, retrying in {} s: {}", retrySeconds, e.getMessage());
+            refresher.schedule(this::refresh, retrySeconds, TimeUnit.SECONDS);
+        } finally {
+            sample.stop(refreshTimer);
+        }
+    }
+
+    private long nextRefreshDelayMs(AccessToken token) {
+        Date expiry = token.getExpirationTime();
+        long lifetimeMs = expiry != null
+                ? expiry.getTime() - System.currentTimeMillis()
+                : DEFAULT_LIFETIME_MS;
+        return lifetimeMs - TimeUnit.SECONDS.toMillis(refreshMarginSeconds);
+    }
+
+    private double secondsUntilExpiry() {
+        AccessToken token = currentToken.get();
+        if (token == null || token.getExpirationTime() == null) {
+            return 0;
+        }
+        return (token.getExpirationTime().getTime() - System.currentTimeMillis()) / 1000.0;
+    }
+}
@@ -6,4 +6,5 @@ import lombok.Data;
 public class ChatRequest {
     private String message;
     private boolean useRAG = false;  // Default to false
+    private String sessionId;        // Optional, a new session is started when missing
 }
\ No newline at end of file
@@ -11,4 +11,5 @@ public class ChatResponse {
     private String confidence;
     private boolean ragEnabled;
     private String timestamp;
+    private String sessionId;
 }
\ No newline at end of file
@@ -0,0 +1,112 @@
+package com.wachichaw.AllyRAG;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton over a fixed keyword list. One pass over the input
+ * finds every keyword, regardless of how many keywords are registered.
+ * Matches must sit on word boundaries, so "hi" does not match inside "this".
+ *
+ * Build once, then share: after build() the automaton is read-only.
+ */
+public class KeywordAutomaton<T extends Enum<T>> {
+
+    private static class Node<T> {
+        final Map<Character, Node<T>> next = new HashMap<>();
+        final List<Keyword<T>> outputs = new ArrayList<>();
+        Node<T> fail;
+    }
+
+    private record Keyword<T>(int length, T category) {
+    }
+
+    private final Class<T> categoryType;
+    private final Node<T> root = new Node<>();
+    private boolean built;
+
+    public KeywordAutomaton(Class<T> categoryType) {
+        this.categoryType = categoryType;
+    }
+
+    public KeywordAutomaton<T> add(T category, String... keywords) {
+        if (built) {
+            throw new IllegalStateException("Automaton is already built");
+        }
+        for (String keyword : keywords) {
+            String normalized = keyword.toLowerCase().trim();
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            Node<T> node = root;
+            for (int i = 0; i < normalized.length(); i++) {
+                node = node.next.computeIfAbsent(normalized.charAt(i), c -> new Node<>());
+            }
+            node.outputs.add(new Keyword<>(normalized.length(), category));
+        }
+        return this;
+    }
+
+    public KeywordAutomaton<T> build() {
+        Queue<Node<T>> queue = new ArrayDeque<>();
+        root.fail = root;
+        for (Node<T> child : root.next.values()) {
+            child.fail = root;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            Node<T> node = queue.poll();
+            for (Map.Entry<Character, Node<T>> edge : node.next.entrySet()) {
+                Node<T> child = edge.getValue();
+                Node<T> fail = node.fail;
+                while (fail != root && !fail.next.containsKey(edge.getKey())) {
+                    fail = fail.fail;
+                }
+                Node<T> target = fail.next.get(edge.getKey());
+                child.fail = target != null && target != child ? target : root;
+                child.outputs.addAll(child.fail.outputs);
+                queue.add(child);
+            }
+        }
+        built = true;
+        return this;
+    }
+
+    /**
+     * Number of whole-word keyword hits per category in the text.
+     */
+    public Map<T, Integer> countMatches(String text) {
+        if (!built) {
+            throw new IllegalStateException("Automaton is not built");
+        }
+        Map<T, Integer> counts = new EnumMap<>(categoryType);
+        if (text == null || text.isEmpty()) {
+            return counts;
+        }
+        String lower = text.toLowerCase();
+        Node<T> node = root;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            while (node != root && !node.next.containsKey(c)) {
+                node = node.fail;
+            }
+            node = node.next.getOrDefault(c, root);
+            for (Keyword<T> keyword : node.outputs) {
+                int start = i - keyword.length() + 1;
+                if (isBoundary(lower, start - 1) && isBoundary(lower, i + 1)) {
+                    counts.merge(keyword.category(), 1, Integer::sum);
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static boolean isBoundary(String text, int index) {
+        return index < 0 || index >= text.length() || !Character.isLetterOrDigit(text.charAt(index));
+    }
+}
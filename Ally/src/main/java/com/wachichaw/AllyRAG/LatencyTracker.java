@@ -0,0 +1,62 @@
+package com.wachichaw.AllyRAG;
+
+import java.util.Arrays;
+
+/**
+ * Rolling window of recent call latencies used to derive adaptive timeouts.
+ * Percentiles are recomputed lazily, at most once per batch of new samples.
+ */
+public class LatencyTracker {
+
+    private static final int RECOMPUTE_EVERY = 8;
+
+    private final long[] samples;
+    private int index;
+    private int count;
+    private int sinceRecompute = RECOMPUTE_EVERY;
+
+    private long p95;
+    private long p99;
+
+    public LatencyTracker(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(long latencyMs) {
+        samples[index] = latencyMs;
+        index = (index + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+        sinceRecompute++;
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    public synchronized long getP95() {
+        recomputeIfStale();
+        return p95;
+    }
+
+    public synchronized long getP99() {
+        recomputeIfStale();
+        return p99;
+    }
+
+    private void recomputeIfStale() {
+        if (sinceRecompute < RECOMPUTE_EVERY || count == 0) {
+            return;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        p95 = sorted[percentileIndex(0.95)];
+        p99 = sorted[percentileIndex(0.99)];
+        sinceRecompute = 0;
+    }
+
+    private int percentileIndex(double quantile) {
+        return Math.min(count - 1, Math.max(0, (int) Math.ceil(quantile * count) - 1));
+    }
+}
@@ -0,0 +1,551 @@
+package com.wachichaw.AllyRAG;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * In-JVM BM25 index over the Supreme Court case chunks produced by the Python
+ * pipeline (processed-for-rag/metadata.jsonl).
+ *
+ * Posting lists (delta-encoded doc ids + term frequencies as varints) and chunk
+ * texts are written once to local files and memory-mapped read-only, so the heap
+ * only holds the term dictionary and per-chunk metadata. Each build writes to a new
+ * directory under work-dir, so it never truncates files another process has mapped,
+ * and the files are unlinked once mapped where the OS allows it.
+ *
+ * Queries are evaluated document at a time: the query terms' posting lists are
+ * merged by doc id, so a query holds one cursor per term and the top-K heap rather
+ * than a score per document.
+ *
+ * Used as a fallback when the Python RAG service is unavailable, and optionally to
+ * rerank remote results into a hybrid score.
+ */
+@Component
+public class LocalCaseIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalCaseIndex.class);
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final Set<String> STOPWORDS = Set.of(
+        "a", "an", "and", "are", "as", "at", "be", "by", "can", "do", "for", "from", "has", "have",
+        "he", "her", "his", "how", "if", "in", "is", "it", "its", "my", "no", "not", "of", "on",
+        "or", "she", "that", "the", "their", "there", "they", "this", "to", "was", "were", "what",
+        "when", "where", "which", "who", "why", "will", "with", "would", "you", "your", "me", "i"
+    );
+
+    @Value("${rag.local-index.path:}")
+    private String metadataPath;
+
+    @Value("${rag.local-index.work-dir:${java.io.tmpdir}/ally-bm25}")
+    private String workDir;
+
+    @Value("${rag.local-index.min-score:15.0}")
+    private double minScore;
+
+    @Value("${rag.local-index.hybrid-weight:0.0}")
+    private double hybridWeight;
+
+    private final ResourceLoader resourceLoader;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    // Immutable snapshot, swapped in once the build completes
+    private volatile Snapshot snapshot;
+
+    public LocalCaseIndex(ResourceLoader resourceLoader) {
+        this.resourceLoader = resourceLoader;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (metadataPath == null || metadataPath.isBlank()) {
+            logger.info("Local case index disabled (rag.local-index.path not set)");
+            return;
+        }
+        Thread loader = new Thread(() -> {
+            try {
+                long start = System.currentTimeMillis();
+                snapshot = build(resourceLoader.getResource(metadataPath));
+                logger.info("Local case index ready: {} chunks, {} terms in {} ms",
+                        snapshot.docCount, snapshot.termIds.size(), System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                logger.error("Failed to build local case index from {}: {}", metadataPath, e.getMessage());
+            }
+        }, "local-case-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    public double getMinScore() {
+        return minScore;
+    }
+
+    public boolean isHybridEnabled() {
+        return hybridWeight > 0 && isReady();
+    }
+
+    /**
+     * Top-K chunks for the query, scored 0-100 (BM25 relative to the best score
+     * the query terms could reach), filtered by rag.local-index.min-score.
+     */
+    public RagSearchResponse search(String query, int topK) {
+        RagSearchResponse response = new RagSearchResponse();
+        response.setQuery(query);
+        response.setCases(new ArrayList<>());
+        response.setCount(0);
+
+        Snapshot index = snapshot;
+        if (index == null) {
+            response.setDegraded(true);
+            return response;
+        }
+
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        double maxPossible = 0;
+        List<PostingCursor> cursors = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            Integer termId = index.termIds.get(term);
+            if (termId == null) {
+                continue;
+            }
+            PostingCursor cursor = new PostingCursor(index, termId);
+            maxPossible += cursor.idf * (K1 + 1);
+            if (cursor.next()) {
+                cursors.add(cursor);
+            }
+        }
+
+        if (cursors.isEmpty() || maxPossible == 0 || topK <= 0) {
+            return response;
+        }
+
+        // Min-heap of the best topK so far
+        PriorityQueue<ScoredDoc> top = new PriorityQueue<>(topK + 1, (a, b) -> Double.compare(a.score(), b.score()));
+        while (!cursors.isEmpty()) {
+            int docId = Integer.MAX_VALUE;
+            for (PostingCursor cursor : cursors) {
+                docId = Math.min(docId, cursor.docId);
+            }
+            double norm = K1 * (1 - B + B * index.docLengths[docId] / index.avgDocLength);
+            double score = 0;
+            for (int i = cursors.size() - 1; i >= 0; i--) {
+                PostingCursor cursor = cursors.get(i);
+                if (cursor.docId == docId) {
+                    score += cursor.idf * cursor.tf * (K1 + 1) / (cursor.tf + norm);
+                    if (!cursor.next()) {
+                        cursors.remove(i);
+                    }
+                }
+            }
+            if (top.size() < topK) {
+                top.offer(new ScoredDoc(docId, score));
+            } else if (score > top.peek().score()) {
+                top.poll();
+                top.offer(new ScoredDoc(docId, score));
+            }
+        }
+
+        List<LegalCase> cases = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            ScoredDoc scored = top.poll();
+            int docId = scored.docId();
+            double normalized = Math.round(scored.score() / maxPossible * 1000) / 10.0;
+            if (normalized < minScore) {
+                continue;
+            }
+            cases.add(0, index.toLegalCase(docId, normalized));
+        }
+
+        response.setCases(cases);
+        response.setCount(cases.size());
+        if (!cases.isEmpty()) {
+            response.setConfidence(cases.get(0).getScore() / 100.0);
+        }
+        return response;
+    }
+
+    /**
+     * Blends remote (vector) scores with local BM25 scores:
+     * hybrid = (1 - w) * remote + w * local, then sorts descending.
+     */
+    public List<LegalCase> rerank(String query, List<LegalCase> cases) {
+        Snapshot index = snapshot;
+        if (index == null || hybridWeight <= 0 || cases == null) {
+            return cases;
+        }
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        // Remote responses may be shared between coalesced callers, so score copies
+        List<LegalCase> sorted = new ArrayList<>(cases.size());
+        for (LegalCase legalCase : cases) {
+            LegalCase copy = new LegalCase();
+            copy.setTitle(legalCase.getTitle());
+            copy.setContent(legalCase.getContent());
+            copy.setCitation(legalCase.getCitation());
+            copy.setSection(legalCase.getSection());
+            copy.setScore(legalCase.getScore());
+            if (legalCase.getScore() != null) {
+                double local = index.scoreText(terms, legalCase.getContent());
+                double hybrid = (1 - hybridWeight) * legalCase.getScore() + hybridWeight * local;
+                copy.setScore(Math.round(hybrid * 10) / 10.0);
+            }
+            sorted.add(copy);
+        }
+        sorted.sort((a, b) -> Double.compare(
+                b.getScore() != null ? b.getScore() : 0,
+                a.getScore() != null ? a.getScore() : 0));
+        return sorted;
+    }
+
+    // ==========================================
+    // Index build
+    // ==========================================
+
+    private Snapshot build(Resource source) throws IOException {
+        Path parent = Paths.get(workDir);
+        Files.createDirectories(parent);
+        // A directory of our own: other processes may have mapped the files of earlier builds
+        Path dir = Files.createTempDirectory(parent, "index-");
+        Path postingsFile = dir.resolve("postings.bin");
+        Path storeFile = dir.resolve("store.bin");
+
+        Map<String, Integer> termIds = new HashMap<>();
+        List<IntList> postingBuilders = new ArrayList<>();
+        List<String> titles = new ArrayList<>();
+        List<String> citations = new ArrayList<>();
+        List<String> sections = new ArrayList<>();
+        IntList docLengths = new IntList();
+        IntList storeOffsets = new IntList();
+        long totalLength = 0;
+        int storePosition = 0;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(source.getInputStream(), StandardCharsets.UTF_8));
+             OutputStream store = Files.newOutputStream(storeFile)) {
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode chunk = mapper.readTree(line);
+                String text = chunk.path("text").asText("");
+                int docId = titles.size();
+
+                titles.add(chunk.path("case_title").asText("Unknown"));
+                citations.add(chunk.path("case_number").asText(""));
+                sections.add(chunk.path("chunk_type").asText(""));
+
+                byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                store.write(bytes);
+                storeOffsets.add(storePosition);
+                storePosition += bytes.length;
+
+                List<String> tokens = tokenize(text);
+                docLengths.add(tokens.size());
+                totalLength += tokens.size();
+
+                Map<String, Integer> tf = new HashMap<>();
+                for (String token : tokens) {
+                    tf.merge(token, 1, Integer::sum);
+                }
+                for (Map.Entry<String, Integer> entry : tf.entrySet()) {
+                    Integer termId = termIds.get(entry.getKey());
+                    if (termId == null) {
+                        termId = postingBuilders.size();
+                        termIds.put(entry.getKey(), termId);
+                        postingBuilders.add(new IntList());
+                    }
+                    IntList postings = postingBuilders.get(termId);
+                    postings.add(docId);
+                    postings.add(entry.getValue());
+                }
+            }
+            storeOffsets.add(storePosition);
+        }
+
+        int termCount = postingBuilders.size();
+        int[] postingOffsets = new int[termCount];
+        int[] docFreqs = new int[termCount];
+        VarIntWriter writer = new VarIntWriter();
+        for (int termId = 0; termId < termCount; termId++) {
+            IntList postings = postingBuilders.get(termId);
+            postingOffsets[termId] = writer.size();
+            docFreqs[termId] = postings.size / 2;
+            int previous = 0;
+            for (int i = 0; i < postings.size; i += 2) {
+                writer.write(postings.values[i] - previous);
+                writer.write(postings.values[i + 1]);
+                previous = postings.values[i];
+            }
+            postingBuilders.set(termId, null);
+        }
+        Files.write(postingsFile, writer.toByteArray());
+
+        int docCount = titles.size();
+        Snapshot built = new Snapshot(
+                termIds, postingOffsets, docFreqs, map(postingsFile), map(storeFile),
+                storeOffsets.toArray(), docLengths.toArray(),
+                docCount == 0 ? 1 : (double) totalLength / docCount, docCount,
+                titles.toArray(new String[0]), citations.toArray(new String[0]), sections.toArray(new String[0]));
+        for (Path path : List.of(postingsFile, storeFile, dir)) {
+            removeWhenUnused(path);
+        }
+        return built;
+    }
+
+    /**
+     * A mapping outlives its file on POSIX systems; where a mapped file cannot be deleted
+     * (Windows) it goes when the JVM exits.
+     */
+    private static void removeWhenUnused(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            path.toFile().deleteOnExit();
+        }
+    }
+
+    private static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String token = lower.substring(start, i);
+                if (token.length() > 1 && !STOPWORDS.contains(token)) {
+                    tokens.add(token);
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Reads a varint at an absolute position; returns value in the low 32 bits
+     * and the next position in the high 32 bits. Absolute reads keep it thread-safe.
+     */
+    private static long readVarInt(MappedByteBuffer buffer, int position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get(position++);
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return ((long) position << 32) | (value & 0xFFFFFFFFL);
+    }
+
+    // ==========================================
+    // Internal structures
+    // ==========================================
+
+    private record ScoredDoc(int docId, double score) {
+    }
+
+    /**
+     * Position in one term's posting list; docId and tf are the current posting's.
+     */
+    private static final class PostingCursor {
+        private final MappedByteBuffer postings;
+        private final double idf;
+        private int remaining;
+        private int position;
+        private int docId;
+        private int tf;
+
+        PostingCursor(Snapshot index, int termId) {
+            this.postings = index.postings;
+            this.idf = index.idf(termId);
+            this.remaining = index.docFreqs[termId];
+            this.position = index.postingOffsets[termId];
+        }
+
+        boolean next() {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            long packed = readVarInt(postings, position);
+            docId += (int) packed;
+            position = (int) (packed >>> 32);
+            long tfPacked = readVarInt(postings, position);
+            tf = (int) tfPacked;
+            position = (int) (tfPacked >>> 32);
+            return true;
+        }
+    }
+
+    private static final class Snapshot {
+        final Map<String, Integer> termIds;
+        final int[] postingOffsets;
+        final int[] docFreqs;
+        final MappedByteBuffer postings;
+        final MappedByteBuffer store;
+        final int[] storeOffsets;
+        final int[] docLengths;
+        final double avgDocLength;
+        final int docCount;
+        final String[] titles;
+        final String[] citations;
+        final String[] sections;
+
+        Snapshot(Map<String, Integer> termIds, int[] postingOffsets, int[] docFreqs,
+                 MappedByteBuffer postings, MappedByteBuffer store, int[] storeOffsets, int[] docLengths,
+                 double avgDocLength, int docCount, String[] titles, String[] citations, String[] sections) {
+            this.termIds = termIds;
+            this.postingOffsets = postingOffsets;
+            this.docFreqs = docFreqs;
+            this.postings = postings;
+            this.store = store;
+            this.storeOffsets = storeOffsets;
+            this.docLengths = docLengths;
+            this.avgDocLength = avgDocLength;
+            this.docCount = docCount;
+            this.titles = titles;
+            this.citations = citations;
+            this.sections = sections;
+        }
+
+        double idf(int termId) {
+            int df = docFreqs[termId];
+            return Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+        }
+
+        LegalCase toLegalCase(int docId, double score) {
+            LegalCase legalCase = new LegalCase();
+            legalCase.setTitle(titles[docId]);
+            legalCase.setCitation(citations[docId]);
+            legalCase.setSection(sections[docId]);
+            legalCase.setScore(score);
+            legalCase.setContent(readText(docId));
+            return legalCase;
+        }
+
+        String readText(int docId) {
+            int start = storeOffsets[docId];
+            byte[] bytes = new byte[storeOffsets[docId + 1] - start];
+            store.get(start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * BM25 of an arbitrary text against the corpus statistics, scaled 0-100.
+         */
+        double scoreText(List<String> queryTerms, String text) {
+            List<String> tokens = tokenize(text);
+            if (tokens.isEmpty()) {
+                return 0;
+            }
+            Map<String, Integer> tf = new HashMap<>();
+            for (String token : tokens) {
+                tf.merge(token, 1, Integer::sum);
+            }
+            double score = 0;
+            double maxPossible = 0;
+            double norm = K1 * (1 - B + B * tokens.size() / avgDocLength);
+            for (String term : queryTerms) {
+                Integer termId = termIds.get(term);
+                if (termId == null) {
+                    continue;
+                }
+                double idf = idf(termId);
+                maxPossible += idf * (K1 + 1);
+                int f = tf.getOrDefault(term, 0);
+                score += idf * f * (K1 + 1) / (f + norm);
+            }
+            return maxPossible == 0 ? 0 : score / maxPossible * 100;
+        }
+    }
+
+    private static final class IntList {
+        int[] values = new int[8];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static final class VarIntWriter {
+        private byte[] bytes = new byte[1 << 16];
+        private int size;
+
+        void write(int value) {
+            while ((value & ~0x7F) != 0) {
+                put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            put((byte) value);
+        }
+
+        private void put(byte b) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, size * 2);
+            }
+            bytes[size++] = b;
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package com.wachichaw.AllyRAG;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import weka.classifiers.bayes.NaiveBayesMultinomial;
+import weka.classifiers.meta.FilteredClassifier;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.filters.unsupervised.attribute.StringToWordVector;
+
+/**
+ * In-process first pass over chat messages, run before the remote Gemini validator.
+ *
+ * - Greetings and questions about Ally itself are answered from canned text.
+ * - Obvious legal questions skip the remote /api/validate round trip.
+ * - Obvious off-topic questions are rejected locally.
+ * Everything else is UNKNOWN and goes through remote validation as before.
+ *
+ * Signals are precompiled regexes, an Aho-Corasick keyword automaton and a small
+ * Weka text model (StringToWordVector + multinomial Naive Bayes) trained on the
+ * outcomes of past remote validations, which are appended to a local log.
+ *
+ * One keyword is not enough to skip remote validation ("loan" also appears in questions
+ * about apps and banks): that takes two legal keywords, or the text model agreeing.
+ *
+ * The log holds users' questions, so it lives under the user's home directory rather
+ * than the shared temp directory, is readable by its owner only where the file system
+ * allows, and is rotated at training-log-max-bytes, keeping one previous file.
+ */
+@Component
+public class LocalIntentClassifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalIntentClassifier.class);
+
+    public enum Intent {
+        GREETING, META, LEGAL, OFF_TOPIC, UNKNOWN
+    }
+
+    private enum KeywordType {
+        LEGAL, OFF_TOPIC
+    }
+
+    public static class IntentResult {
+        private final Intent intent;
+        private final double confidence;
+
+        IntentResult(Intent intent, double confidence) {
+            this.intent = intent;
+            this.confidence = confidence;
+        }
+
+        public Intent getIntent() {
+            return intent;
+        }
+
+        public double getConfidence() {
+            return confidence;
+        }
+    }
+
+    public static final String GREETING_RESPONSE =
+        "👋 Hi! I'm Ally, your legal information assistant for Philippine law.\n\n" +
+        "Ask me about your rights, legal procedures, or a legal problem you're facing " +
+        "and I'll point you to relevant Supreme Court decisions where I can.\n\n" +
+        "⚠️ This is legal information, not legal advice.";
+
+    public static final String META_RESPONSE =
+        "🤖 I'm Ally, a legal information assistant built as a capstone project.\n\n" +
+        "I answer questions about Philippine law using a fine-tuned Gemini model and a " +
+        "database of Philippine Supreme Court decisions. You can ask me about labor, family, " +
+        "criminal, civil or property law, and I'll cite relevant cases where I can.\n\n" +
+        "⚠️ This is legal information, not legal advice. For your specific situation, " +
+        "please consult a qualified lawyer.";
+
+    public static final String OFF_TOPIC_RESPONSE =
+        "❌ This doesn't look like a legal question.\n\n" +
+        "💡 I specialize in Philippine law. Please ask about:\n" +
+        "• Your legal rights and obligations\n" +
+        "• Legal procedures and requirements\n" +
+        "• Laws and regulations in the Philippines\n" +
+        "• Legal problems you're facing";
+
+    // Below any sensible skip threshold: a lone keyword needs the model to agree
+    private static final double SINGLE_KEYWORD_CONFIDENCE = 0.6;
+    private static final double KEYWORDS_CONFIDENCE = 0.95;
+
+    private static final List<String> CLASSES = List.of(Intent.LEGAL.name(), Intent.OFF_TOPIC.name());
+
+    private static final Pattern GREETING = Pattern.compile(
+        "^(hi|hello|hey|sup|good morning|good afternoon|good evening|how are you|what'?s up)\\s*[.!?]*$");
+    // Each needs the question to be about the assistant itself: "what happens if you are
+    // caught" or "can you help" are ordinary questions and go to the model
+    private static final Pattern ALLY_QUESTION = Pattern.compile(
+        "\\bally\\b.*\\b(who|what|why|how)\\b|\\b(who|what|why|how)\\b.*\\bally\\b");
+    private static final Pattern ABOUT_YOU = Pattern.compile(
+        "\\b(who|what)\\s+(are|r)\\s+(you|u)\\b"
+            + "|\\b(who|what)\\s+is\\s+this\\s+(bot|chatbot|assistant)\\b"
+            + "|\\bwho\\s+(made|built|created|developed|trained)\\s+(you|this\\s+(bot|chatbot|assistant))\\b");
+    private static final Pattern ABOUT_PROJECT = Pattern.compile(
+        "\\byour\\s+(name|creators?|developers?|team|purpose)\\b");
+    private static final Pattern SCHOOL_PROJECT = Pattern.compile(
+        "\\b(you|your|this\\s+(bot|chatbot|assistant))\\b.*\\b(capstone|thesis|school\\s+project)\\b"
+            + "|\\b(capstone|thesis|school\\s+project)\\b.*\\b(you|your|this\\s+(bot|chatbot|assistant))\\b");
+    private static final Pattern LINE_BREAKS = Pattern.compile("[\\t\\r\\n]+");
+
+    private static final KeywordAutomaton<KeywordType> KEYWORDS = new KeywordAutomaton<>(KeywordType.class)
+        .add(KeywordType.LEGAL,
+            "law", "laws", "legal", "illegal", "lawyer", "attorney", "court", "judge", "sue", "sued",
+            "lawsuit", "complaint", "affidavit", "notary", "notarized", "contract", "agreement",
+            "annulment", "nullity", "divorce", "legal separation", "custody", "child support", "adoption",
+            "inheritance", "heir", "heirs", "estate", "probate", "last will", "testament",
+            "estafa", "theft", "robbery", "murder", "homicide", "rape", "assault", "libel", "cyber libel",
+            "slander", "vawc", "bp 22", "bouncing check", "arrest", "warrant", "bail", "barangay",
+            "prescription period", "damages", "ejectment", "unlawful detainer", "eviction",
+            "landlord", "tenant", "lease", "land title", "deed of sale", "property rights",
+            "illegal dismissal", "separation pay", "backwages", "13th month", "labor code", "dole",
+            "nlrc", "employer", "employee", "resignation", "terminated", "unpaid wages", "minimum wage",
+            "civil code", "family code", "revised penal code", "constitution", "supreme court",
+            "republic act", "statute", "ordinance", "jurisprudence", "plaintiff", "defendant",
+            "accused", "prosecutor", "fiscal", "subpoena", "small claims", "debt collection", "loan")
+        .add(KeywordType.OFF_TOPIC,
+            "recipe", "recipes", "cook", "cooking", "bake", "baking", "weather", "movie", "movies",
+            "song", "songs", "lyrics", "video game", "basketball", "nba", "football", "poem", "joke",
+            "jokes", "horoscope", "zodiac", "python code", "javascript", "write code", "homework",
+            "math problem", "crypto price", "stock price", "anime", "dating advice", "workout",
+            "diet plan", "travel itinerary")
+        .build();
+
+    @Value("${ally.intent.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ally.intent.skip-threshold:0.85}")
+    private double skipThreshold;
+
+    @Value("${ally.intent.reject-threshold:0.8}")
+    private double rejectThreshold;
+
+    @Value("${ally.intent.training-log:${user.home}/.ally/intent/validation-log.tsv}")
+    private String trainingLogPath;
+
+    @Value("${ally.intent.training-log-max-bytes:2097152}")
+    private long trainingLogMaxBytes;
+
+    @Value("${ally.intent.min-training-samples:50}")
+    private int minTrainingSamples;
+
+    @Value("${ally.intent.max-training-samples:5000}")
+    private int maxTrainingSamples;
+
+    // Model and header are swapped together; classification is synchronized
+    // because Weka filters keep per-call state
+    private volatile TextModel model;
+    private final AtomicInteger samplesSinceTraining = new AtomicInteger();
+
+    private record TextModel(FilteredClassifier classifier, Instances header, int trainingSize) {
+    }
+
+    public IntentResult classify(String message) {
+        if (!enabled || message == null || message.trim().isEmpty()) {
+            return new IntentResult(Intent.UNKNOWN, 0.0);
+        }
+
+        String lower = message.toLowerCase().trim();
+
+        if (lower.length() <= 30 && GREETING.matcher(lower).matches()) {
+            return new IntentResult(Intent.GREETING, 1.0);
+        }
+
+        Map<KeywordType, Integer> hits = KEYWORDS.countMatches(lower);
+        int legalHits = hits.getOrDefault(KeywordType.LEGAL, 0);
+        int offTopicHits = hits.getOrDefault(KeywordType.OFF_TOPIC, 0);
+
+        // "What are your rights as a tenant" mentions "your" but is a legal question
+        if (legalHits == 0 && isMetaQuestion(lower)) {
+            return new IntentResult(Intent.META, 0.95);
+        }
+
+        double legalProbability = legalProbability(message);
+
+        if (legalHits > 0 && offTopicHits == 0) {
+            double confidence = legalHits > 1 ? KEYWORDS_CONFIDENCE : SINGLE_KEYWORD_CONFIDENCE;
+            return new IntentResult(Intent.LEGAL, Math.max(confidence, legalProbability));
+        }
+
+        // Keywords alone never reject; the text model has to agree
+        if (offTopicHits > 0 && legalHits == 0 && legalProbability >= 0) {
+            double offTopicProbability = 1.0 - legalProbability;
+            if (offTopicProbability >= rejectThreshold) {
+                return new IntentResult(Intent.OFF_TOPIC, offTopicProbability);
+            }
+        }
+
+        if (legalProbability >= skipThreshold && offTopicHits == 0) {
+            return new IntentResult(Intent.LEGAL, legalProbability);
+        }
+
+        return new IntentResult(Intent.UNKNOWN, 0.0);
+    }
+
+    public boolean shouldSkipRemoteValidation(IntentResult result) {
+        return result.getIntent() == Intent.LEGAL && result.getConfidence() >= skipThreshold;
+    }
+
+    public boolean shouldRejectLocally(IntentResult result) {
+        return result.getIntent() == Intent.OFF_TOPIC && result.getConfidence() >= rejectThreshold;
+    }
+
+    /**
+     * Records a definitive remote validation verdict as a training sample.
+     * Fallback verdicts (service down) say nothing about the question and are skipped.
+     */
+    public void recordOutcome(String message, ValidationResponse validation) {
+        if (!enabled || message == null || validation == null || validation.getIsValid() == null) {
+            return;
+        }
+        String method = validation.getMethod();
+        if (method == null || method.contains("fallback")) {
+            return;
+        }
+
+        String label = validation.getIsValid() ? Intent.LEGAL.name() : Intent.OFF_TOPIC.name();
+        String line = label + "\t" + LINE_BREAKS.matcher(message.trim()).replaceAll(" ") + "\n";
+        try {
+            Path path = Paths.get(trainingLogPath).toAbsolutePath();
+            synchronized (this) {
+                if (!Files.exists(path)) {
+                    createOwnerOnly(path);
+                } else if (Files.size(path) >= trainingLogMaxBytes) {
+                    // The previous file still holds the most recent samples for training
+                    Files.move(path, rotated(path), StandardCopyOption.REPLACE_EXISTING);
+                    createOwnerOnly(path);
+                }
+                Files.writeString(path, line, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            }
+            samplesSinceTraining.incrementAndGet();
+        } catch (IOException e) {
+            logger.warn("Could not append intent training sample: {}", e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void trainOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        Thread trainer = new Thread(this::retrain, "intent-model-trainer");
+        trainer.setDaemon(true);
+        trainer.start();
+    }
+
+    @Scheduled(fixedDelayString = "${ally.intent.retrain-interval-ms:3600000}",
+               initialDelayString = "${ally.intent.retrain-interval-ms:3600000}")
+    public void retrainIfNeeded() {
+        if (enabled && samplesSinceTraining.get() > 0) {
+            retrain();
+        }
+    }
+
+    private void retrain() {
+        try {
+            List<String[]> samples = loadSamples();
+            if (samples.size() < minTrainingSamples || !hasBothClasses(samples)) {
+                logger.info("Intent model not trained: {} usable samples (need {} with both classes)",
+                    samples.size(), minTrainingSamples);
+                return;
+            }
+
+            samplesSinceTraining.set(0);
+
+            ArrayList<Attribute> attributes = new ArrayList<>();
+            attributes.add(new Attribute("text", (List<String>) null));
+            attributes.add(new Attribute("intent", CLASSES));
+            Instances data = new Instances("intent", attributes, samples.size());
+            data.setClassIndex(1);
+            for (String[] sample : samples) {
+                DenseInstance instance = new DenseInstance(2);
+                instance.setDataset(data);
+                instance.setValue(0, sample[1]);
+                instance.setValue(1, sample[0]);
+                data.add(instance);
+            }
+
+            StringToWordVector vectorizer = new StringToWordVector();
+            vectorizer.setLowerCaseTokens(true);
+            vectorizer.setOutputWordCounts(true);
+            vectorizer.setWordsToKeep(2000);
+
+            FilteredClassifier classifier = new FilteredClassifier();
+            classifier.setFilter(vectorizer);
+            classifier.setClassifier(new NaiveBayesMultinomial());
+            classifier.buildClassifier(data);
+
+            model = new TextModel(classifier, new Instances(data, 0), samples.size());
+            logger.info("Intent model trained on {} samples", samples.size());
+        } catch (Exception e) {
+            logger.warn("Intent model training failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Most recent samples from the rotated and the current log, capped at max-training-samples.
+     */
+    private List<String[]> loadSamples() throws IOException {
+        Path path = Paths.get(trainingLogPath).toAbsolutePath();
+        Deque<String[]> recent = new ArrayDeque<>();
+        for (Path file : List.of(rotated(path), path)) {
+            if (!Files.exists(file)) {
+                continue;
+            }
+            try (var lines = Files.lines(file, StandardCharsets.UTF_8)) {
+                lines.forEach(line -> {
+                    int tab = line.indexOf('\t');
+                    if (tab <= 0 || tab == line.length() - 1) {
+                        return;
+                    }
+                    String label = line.substring(0, tab);
+                    if (!CLASSES.contains(label)) {
+                        return;
+                    }
+                    recent.addLast(new String[] { label, line.substring(tab + 1) });
+                    if (recent.size() > maxTrainingSamples) {
+                        recent.removeFirst();
+                    }
+                });
+            }
+        }
+        return new ArrayList<>(recent);
+    }
+
+    private static Path rotated(Path path) {
+        return path.resolveSibling(path.getFileName() + ".1");
+    }
+
+    private static void createOwnerOnly(Path path) throws IOException {
+        Path dir = path.getParent();
+        boolean posix = dir.getFileSystem().supportedFileAttributeViews().contains("posix");
+        if (!Files.exists(dir)) {
+            if (posix) {
+                Files.createDirectories(dir, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            } else {
+                Files.createDirectories(dir);
+            }
+        }
+        if (posix) {
+            Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            Files.createFile(path);
+        }
+    }
+
+    private static boolean hasBothClasses(List<String[]> samples) {
+        boolean legal = false;
+        boolean offTopic = false;
+        for (String[] sample : samples) {
+            legal |= Intent.LEGAL.name().equals(sample[0]);
+            offTopic |= Intent.OFF_TOPIC.name().equals(sample[0]);
+        }
+        return legal && offTopic;
+    }
+
+    /**
+     * P(LEGAL) from the text model, or -1 when no model is trained yet.
+     */
+    private double legalProbability(String message) {
+        TextModel current = model;
+        if (current == null) {
+            return -1;
+        }
+        try {
+            synchronized (current) {
+                // Reuse a single string slot instead of growing the header's value list
+                current.header().attribute(0).setStringValue(message);
+                DenseInstance instance = new DenseInstance(2);
+                instance.setDataset(current.header());
+                instance.setValue(0, 0);
+                instance.setMissing(1);
+                return current.classifier().distributionForInstance(instance)[0];
+            }
+        } catch (Exception e) {
+            logger.debug("Intent model scoring failed: {}", e.getMessage());
+            return -1;
+        }
+    }
+
+    private static boolean isMetaQuestion(String lower) {
+        return ALLY_QUESTION.matcher(lower).find()
+            || ABOUT_YOU.matcher(lower).find()
+            || ABOUT_PROJECT.matcher(lower).find()
+            || SCHOOL_PROJECT.matcher(lower).find();
+    }
+}
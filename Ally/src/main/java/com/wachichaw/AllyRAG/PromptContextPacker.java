@@ -0,0 +1,305 @@
+package com.wachichaw.AllyRAG;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds the Gemini prompt for RAG chats: the case-grounded prompt within a fixed
+ * token budget, and the guidance prompts used when no usable case was found.
+ *
+ * - Tokens are estimated from character count (about 4 chars per token for English).
+ * - Passages that mostly repeat an already included case (5-word shingle Jaccard
+ *   overlap) are dropped.
+ * - The budget left after the fixed parts of the prompt is split across cases in
+ *   proportion to their relevance score; budget a short case does not use is
+ *   handed on to the others.
+ * - The prompt is assembled in one StringBuilder sized up front from the allowances,
+ *   so it never grows while appending.
+ */
+@Component
+public class PromptContextPacker {
+
+    private static final String HEADER = "Based on the following relevant Philippine Supreme Court cases:\n\n";
+
+    private static final String INSTRUCTIONS = "\n\n" +
+        "INSTRUCTIONS:\n" +
+        "Please answer the user's question using the above Supreme Court cases as reference. " +
+        "Cite specific cases using [Case 1], [Case 2] format in your response. " +
+        "Provide a clear answer with legal basis and practical implications. " +
+        "End with the disclaimer: '⚠️ This is legal information, not legal advice. " +
+        "For your specific situation, please consult a qualified lawyer.'";
+
+    private static final String LOW_RELEVANCE_TEMPLATE =
+        "⚠️ I searched my database but couldn't find cases closely matching your question.\n\n" +
+        "Your question: %s\n\n" +
+        "For better case references, please:\n" +
+        "• Add more specific details\n" +
+        "• Specify the legal area (labor, criminal, civil, family)\n" +
+        "• Use legal terms if you know them\n\n" +
+        "I'll still provide general legal information, but with more details, " +
+        "I can find relevant Supreme Court cases to support my answer.\n\n" +
+        "Please provide a general answer anyway, noting no specific cases were found.";
+
+    private static final String NO_CASES_TEMPLATE =
+        "⚠️ No legal cases found in the database.\n\n" +
+        "User Question: %s\n\n" +
+        "INSTRUCTIONS:\n" +
+        "Provide a general answer based on Philippine law knowledge, but inform the user:\n" +
+        "1. No specific Supreme Court cases were found\n" +
+        "2. They should verify with a qualified lawyer\n" +
+        "3. Suggest rephrasing with more specific legal terms\n\n" +
+        "Be helpful but cautious.";
+
+    private static final String ELLIPSIS = "...";
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final String QUESTION_LABEL = "User Question: ";
+    private static final String CONTENT_LABEL = "Content: ";
+
+    @Value("${rag.prompt.token-budget:1800}")
+    private int tokenBudget;
+
+    @Value("${rag.prompt.chars-per-token:4.0}")
+    private double charsPerToken;
+
+    @Value("${rag.prompt.min-case-tokens:60}")
+    private int minCaseTokens;
+
+    @Value("${rag.prompt.shingle-size:5}")
+    private int shingleSize;
+
+    @Value("${rag.prompt.max-overlap:0.6}")
+    private double maxOverlap;
+
+    public static class PackedContext {
+        private final String prompt;
+        private final List<LegalCase> cases;
+        private final int estimatedTokens;
+
+        PackedContext(String prompt, List<LegalCase> cases, int estimatedTokens) {
+            this.prompt = prompt;
+            this.cases = cases;
+            this.estimatedTokens = estimatedTokens;
+        }
+
+        public String getPrompt() {
+            return prompt;
+        }
+
+        /** Cases that made it into the prompt, in [CASE n] order. */
+        public List<LegalCase> getCases() {
+            return cases;
+        }
+
+        public int getEstimatedTokens() {
+            return estimatedTokens;
+        }
+    }
+
+    public int estimateTokens(CharSequence text) {
+        return text == null ? 0 : (int) Math.ceil(text.length() / charsPerToken);
+    }
+
+    /**
+     * @param cases relevant cases, highest score first
+     */
+    public PackedContext pack(List<LegalCase> cases, String question) {
+        List<LegalCase> selected = dropRedundant(cases);
+
+        // Everything but the case contents, separators included
+        String[] headers = new String[selected.size()];
+        int fixedChars = HEADER.length() + QUESTION_LABEL.length() + String.valueOf(question).length()
+                + INSTRUCTIONS.length();
+        for (int i = 0; i < selected.size(); i++) {
+            headers[i] = caseHeader(new StringBuilder(), i, selected.get(i)).toString();
+            fixedChars += headers[i].length() + CONTENT_LABEL.length() + 2;
+        }
+        int fixedTokens = (int) Math.ceil(fixedChars / charsPerToken);
+
+        int[] allowances = allocate(selected, Math.max(0, tokenBudget - fixedTokens));
+        int[] maxChars = new int[selected.size()];
+        int capacity = fixedChars;
+        for (int i = 0; i < selected.size(); i++) {
+            maxChars[i] = (int) (allowances[i] * charsPerToken);
+            capacity += maxChars[i];
+        }
+
+        StringBuilder prompt = new StringBuilder(capacity);
+        prompt.append(HEADER);
+        for (int i = 0; i < selected.size(); i++) {
+            prompt.append(headers[i]);
+            prompt.append(CONTENT_LABEL);
+            appendTruncated(prompt, selected.get(i).getContent(), maxChars[i]);
+            prompt.append("\n\n");
+        }
+        prompt.append(QUESTION_LABEL).append(question);
+        prompt.append(INSTRUCTIONS);
+
+        return new PackedContext(prompt.toString(), selected, estimateTokens(prompt));
+    }
+
+    /**
+     * Prompt for when cases were found but none reached the relevance threshold.
+     */
+    public String lowRelevancePrompt(String question) {
+        return String.format(LOW_RELEVANCE_TEMPLATE, question);
+    }
+
+    /**
+     * Prompt for when the search found no cases at all.
+     */
+    public String noCasesPrompt(String question) {
+        return String.format(NO_CASES_TEMPLATE, question);
+    }
+
+    private StringBuilder caseHeader(StringBuilder out, int index, LegalCase legalCase) {
+        out.append("[CASE ").append(index + 1).append("] ").append(legalCase.getTitle())
+           .append(" (Relevance: ").append(formatScore(legalCase.getScore())).append("%)\n");
+        if (legalCase.getCitation() != null && !legalCase.getCitation().isEmpty()) {
+            out.append("Citation: ").append(legalCase.getCitation()).append('\n');
+        }
+        if (legalCase.getSection() != null && !legalCase.getSection().isEmpty()) {
+            out.append("Section: ").append(legalCase.getSection()).append('\n');
+        }
+        return out;
+    }
+
+    /**
+     * Score-proportional split of the content budget. A case never gets more than
+     * its full content needs; the remainder is redistributed until it is used up.
+     */
+    int[] allocate(List<LegalCase> cases, int budget) {
+        int n = cases.size();
+        int[] allowances = new int[n];
+        int[] needs = new int[n];
+        boolean[] settled = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            needs[i] = estimateTokens(cases.get(i).getContent());
+        }
+
+        int remaining = budget;
+        boolean changed = true;
+        while (remaining > 0 && changed) {
+            changed = false;
+            double scoreSum = 0;
+            for (int i = 0; i < n; i++) {
+                if (!settled[i]) {
+                    scoreSum += weight(cases.get(i));
+                }
+            }
+            if (scoreSum <= 0) {
+                break;
+            }
+
+            int pool = remaining;
+            for (int i = 0; i < n; i++) {
+                if (settled[i]) {
+                    continue;
+                }
+                int share = (int) (pool * weight(cases.get(i)) / scoreSum);
+                int grant = Math.min(share, needs[i] - allowances[i]);
+                if (grant > 0) {
+                    allowances[i] += grant;
+                    remaining -= grant;
+                    changed = true;
+                }
+                if (allowances[i] >= needs[i]) {
+                    settled[i] = true;
+                    changed = true;
+                }
+            }
+        }
+
+        // Even a tight budget keeps a little of every selected case
+        for (int i = 0; i < n; i++) {
+            allowances[i] = Math.max(allowances[i], Math.min(minCaseTokens, needs[i]));
+        }
+        return allowances;
+    }
+
+    private static double weight(LegalCase legalCase) {
+        return legalCase.getScore() != null && legalCase.getScore() > 0 ? legalCase.getScore() : 1.0;
+    }
+
+    /**
+     * Keeps cases in order, skipping any whose content mostly overlaps one already kept.
+     */
+    List<LegalCase> dropRedundant(List<LegalCase> cases) {
+        List<LegalCase> kept = new ArrayList<>(cases.size());
+        List<Set<Long>> keptShingles = new ArrayList<>(cases.size());
+        for (LegalCase legalCase : cases) {
+            Set<Long> shingles = shingles(legalCase.getContent());
+            boolean redundant = false;
+            for (Set<Long> other : keptShingles) {
+                if (jaccard(shingles, other) >= maxOverlap) {
+                    redundant = true;
+                    break;
+                }
+            }
+            if (!redundant) {
+                kept.add(legalCase);
+                keptShingles.add(shingles);
+            }
+        }
+        return kept;
+    }
+
+    private Set<Long> shingles(String content) {
+        if (content == null || content.isBlank()) {
+            return Set.of();
+        }
+        String[] words = NON_WORD.split(content.toLowerCase());
+        Set<Long> result = new HashSet<>();
+        for (int i = 0; i + shingleSize <= words.length; i++) {
+            long hash = 1125899906842597L;
+            for (int j = i; j < i + shingleSize; j++) {
+                hash = 31 * hash + words[j].hashCode();
+            }
+            result.add(hash);
+        }
+        return result;
+    }
+
+    private static double jaccard(Set<Long> a, Set<Long> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0.0;
+        }
+        Set<Long> smaller = a.size() <= b.size() ? a : b;
+        Set<Long> larger = smaller == a ? b : a;
+        int intersection = 0;
+        for (Long shingle : smaller) {
+            if (larger.contains(shingle)) {
+                intersection++;
+            }
+        }
+        return (double) intersection / (a.size() + b.size() - intersection);
+    }
+
+    /**
+     * Appends up to maxChars of the content, cut back to a word boundary.
+     */
+    private static void appendTruncated(StringBuilder out, String content, int maxChars) {
+        if (content == null) {
+            return;
+        }
+        if (content.length() <= maxChars) {
+            out.append(content);
+            return;
+        }
+        int end = Math.max(0, maxChars - ELLIPSIS.length());
+        int space = content.lastIndexOf(' ', end);
+        if (space > end / 2) {
+            end = space;
+        }
+        out.append(content, 0, end).append(ELLIPSIS);
+    }
+
+    private static String formatScore(Double score) {
+        return score == null ? "0.0" : String.valueOf(Math.round(score * 10) / 10.0);
+    }
+}
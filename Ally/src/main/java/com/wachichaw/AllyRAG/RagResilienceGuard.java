@@ -0,0 +1,290 @@
+package com.wachichaw.AllyRAG;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.wachichaw.Config.DependencyHealthMonitor;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Resilience layer in front of the Python RAG service.
+ *
+ * - Circuit breaker: after repeated failures calls fail fast to the fallback,
+ *   with half-open probes to detect recovery.
+ * - Bulkhead: caps concurrent outbound calls; excess callers get the fallback at once.
+ * - Adaptive timeout: callers wait p99 * multiplier of recent calls, clamped to
+ *   [min, max], instead of the full socket timeout. A timed-out call counts as a sample
+ *   at the timeout, so rising latency pushes the timeout up instead of freezing it.
+ *   Half-open probes always get the max timeout.
+ * - Hedging (optional): if a call is still running after p95, a second identical
+ *   call is fired and the first successful answer wins.
+ *
+ * - Health probes: while DependencyHealthMonitor reports the service DOWN, calls go
+ *   straight to the fallback without spending breaker probes or timeouts on it.
+ *
+ * Calls run on virtual threads. When the waiting caller is interrupted (its chat was
+ * cancelled) the outbound call is interrupted too and CancellationException is thrown
+ * instead of computing a fallback nobody will read.
+ */
+@Component
+public class RagResilienceGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(RagResilienceGuard.class);
+
+    @Value("${rag.resilience.max-concurrent:32}")
+    private int maxConcurrent;
+
+    @Value("${rag.resilience.window-size:20}")
+    private int windowSize;
+
+    @Value("${rag.resilience.minimum-calls:10}")
+    private int minimumCalls;
+
+    @Value("${rag.resilience.failure-rate-threshold:0.5}")
+    private double failureRateThreshold;
+
+    @Value("${rag.resilience.open-duration-ms:15000}")
+    private long openDurationMs;
+
+    @Value("${rag.resilience.half-open-probes:2}")
+    private int halfOpenProbes;
+
+    @Value("${rag.resilience.initial-timeout-ms:10000}")
+    private long initialTimeoutMs;
+
+    @Value("${rag.resilience.min-timeout-ms:1000}")
+    private long minTimeoutMs;
+
+    @Value("${rag.resilience.max-timeout-ms:${rag.service.timeout:30000}}")
+    private long maxTimeoutMs;
+
+    @Value("${rag.resilience.timeout-multiplier:1.5}")
+    private double timeoutMultiplier;
+
+    @Value("${rag.resilience.min-samples:20}")
+    private int minSamples;
+
+    @Value("${rag.resilience.hedging.enabled:false}")
+    private boolean hedgingEnabled;
+
+    @Value("${rag.resilience.use-health-probe:true}")
+    private boolean useHealthProbe;
+
+    private final MeterRegistry meterRegistry;
+    private final DependencyHealthMonitor healthMonitor;
+    private final Map<String, LatencyTracker> latencies = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("rag-call-", 0).factory());
+
+    private CircuitBreaker circuitBreaker;
+    private Semaphore bulkhead;
+
+    public RagResilienceGuard(MeterRegistry meterRegistry, DependencyHealthMonitor healthMonitor) {
+        this.meterRegistry = meterRegistry;
+        this.healthMonitor = healthMonitor;
+    }
+
+    @PostConstruct
+    public void init() {
+        circuitBreaker = new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold, openDurationMs, halfOpenProbes);
+        bulkhead = new Semaphore(maxConcurrent);
+
+        Gauge.builder("rag.circuit.state", circuitBreaker, cb -> cb.getState().ordinal())
+                .description("RAG circuit breaker state (0=closed, 1=open, 2=half-open)")
+                .register(meterRegistry);
+        Gauge.builder("rag.bulkhead.in.use", bulkhead, b -> maxConcurrent - b.availablePermits())
+                .description("Outbound RAG calls currently in flight")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    /**
+     * Runs a remote RAG call through the breaker, bulkhead and adaptive timeout.
+     * The remote supplier must throw on failure; the fallback is returned whenever
+     * the call is rejected, fails or times out.
+     *
+     * @param hedgeable the call is idempotent and may be sent a second time; whether that
+     *                  happens is decided here, by rag.resilience.hedging.enabled
+     */
+    public <T> T call(String operation, Supplier<T> remote, Supplier<T> fallback, boolean hedgeable) {
+        if (useHealthProbe && healthMonitor.isRagDown()) {
+            countRejection(operation, "probe_down");
+            return fallback.get();
+        }
+
+        CircuitBreaker.State permission = circuitBreaker.tryAcquirePermission();
+        if (permission == null) {
+            countRejection(operation, "circuit_open");
+            return fallback.get();
+        }
+
+        CompletableFuture<T> primary = submit(remote);
+        if (primary == null) {
+            circuitBreaker.release(permission);
+            countRejection(operation, "bulkhead_full");
+            return fallback.get();
+        }
+
+        LatencyTracker tracker = latencies.computeIfAbsent(operation, op -> new LatencyTracker(256));
+        // A probe decides whether the breaker closes, so it is not cut short by a timeout learned before the outage
+        long timeoutMs = permission == CircuitBreaker.State.HALF_OPEN ? maxTimeoutMs : adaptiveTimeoutMs(tracker);
+        long start = System.nanoTime();
+        CompletableFuture<T> hedge = null;
+
+        try {
+            T result;
+            long hedgeAfterMs = hedgeable ? hedgeDelayMs(tracker, timeoutMs) : -1;
+            if (hedgeAfterMs > 0) {
+                try {
+                    result = primary.get(hedgeAfterMs, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException slow) {
+                    hedge = submit(remote);
+                    if (hedge != null) {
+                        meterRegistry.counter("rag.hedged.calls", "operation", operation).increment();
+                    }
+                    CompletableFuture<T> winner = hedge != null ? firstSuccessful(primary, hedge) : primary;
+                    result = winner.get(timeoutMs - hedgeAfterMs, TimeUnit.MILLISECONDS);
+                }
+            } else {
+                result = primary.get(timeoutMs, TimeUnit.MILLISECONDS);
+            }
+
+            tracker.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            circuitBreaker.onSuccess(permission);
+            return result;
+
+        } catch (TimeoutException e) {
+            // Censored at the timeout: the call took at least this long
+            tracker.record(timeoutMs);
+            primary.cancel(true);
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+            circuitBreaker.onFailure(permission);
+            countRejection(operation, "timeout");
+            logger.warn("RAG {} timed out after {} ms", operation, timeoutMs);
+            return fallback.get();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            primary.cancel(true);
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+            circuitBreaker.release(permission);
+            throw new CancellationException("RAG " + operation + " cancelled");
+
+        } catch (ExecutionException e) {
+            circuitBreaker.onFailure(permission);
+            countRejection(operation, "error");
+            logger.warn("RAG {} failed: {}", operation, e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            return fallback.get();
+        }
+    }
+
+    /**
+     * Starts the call if a bulkhead permit is free. The permit is held until the
+     * remote call itself finishes, not until the caller stops waiting.
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> remote) {
+        if (!bulkhead.tryAcquire()) {
+            return null;
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicReference<Thread> runner = new AtomicReference<>();
+        try {
+            executor.execute(() -> {
+                runner.set(Thread.currentThread());
+                try {
+                    if (!result.isCancelled()) {
+                        result.complete(remote.get());
+                    }
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                } finally {
+                    bulkhead.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            bulkhead.release();
+            throw e;
+        }
+        // CompletableFuture.cancel does not interrupt, so hand it on to the running call
+        result.whenComplete((value, error) -> {
+            Thread thread = runner.get();
+            if (result.isCancelled() && thread != null) {
+                thread.interrupt();
+            }
+        });
+        return result;
+    }
+
+    private long adaptiveTimeoutMs(LatencyTracker tracker) {
+        if (tracker.getCount() < minSamples) {
+            return Math.min(initialTimeoutMs, maxTimeoutMs);
+        }
+        long adaptive = (long) (tracker.getP99() * timeoutMultiplier);
+        return Math.max(minTimeoutMs, Math.min(adaptive, maxTimeoutMs));
+    }
+
+    private long hedgeDelayMs(LatencyTracker tracker, long timeoutMs) {
+        if (!hedgingEnabled || tracker.getCount() < minSamples) {
+            return -1;
+        }
+        long p95 = tracker.getP95();
+        return p95 > 0 && p95 < timeoutMs ? p95 : -1;
+    }
+
+    private static <T> CompletableFuture<T> firstSuccessful(CompletableFuture<T> a, CompletableFuture<T> b) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<T> f : List.of(a, b)) {
+            f.whenComplete((value, error) -> {
+                if (error == null) {
+                    result.complete(value);
+                } else if (failures.incrementAndGet() == 2) {
+                    result.completeExceptionally(error);
+                }
+            });
+        }
+        // Whichever attempt loses is no longer needed
+        result.whenComplete((value, error) -> {
+            a.cancel(true);
+            b.cancel(true);
+        });
+        return result;
+    }
+
+    private void countRejection(String operation, String reason) {
+        meterRegistry.counter("rag.calls.degraded", "operation", operation, "reason", reason).increment();
+    }
+}
@@ -1,5 +1,8 @@
 package com.wachichaw.AllyRAG;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import lombok.Data;
 import java.util.List;
 
@@ -10,7 +13,19 @@ public class RagSearchResponse {
     private String query;
 
     private Boolean rejected = false;
+
+    @JsonProperty("rejection_stage")
     private String rejectionStage;
+
+    @JsonProperty("rejection_reason")
     private String rejectionReason;
+
     private Double confidence;
+
+    // True when a wider search could not add cases above the threshold (absent from older services)
+    private Boolean exhausted;
+
+    // Set locally when the RAG service was skipped (circuit open, bulkhead full, timeout)
+    @JsonIgnore
+    private boolean degraded;
 }
@@ -1,5 +1,6 @@
 package com.wachichaw.AllyRAG;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
@@ -7,6 +8,11 @@ import org.springframework.web.client.RestTemplate;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 
 @Service
 public class RagService {
@@ -15,9 +21,18 @@ public class RagService {
     private String ragServiceUrl;
 
     private final RestTemplate restTemplate;
+    private final RagResilienceGuard resilienceGuard;
+    private final ObservationRegistry observationRegistry;
+
+    // Concurrent identical questions share one outbound call
+    private final RequestCoalescer<ValidationResponse> validateCoalescer = new RequestCoalescer<>();
+    private final RequestCoalescer<RagSearchResponse> searchCoalescer = new RequestCoalescer<>();
 
-    public RagService(RestTemplate restTemplate) {
+    public RagService(@Qualifier("ragRestTemplate") RestTemplate restTemplate, RagResilienceGuard resilienceGuard,
+                      ObservationRegistry observationRegistry) {
         this.restTemplate = restTemplate;
+        this.resilienceGuard = resilienceGuard;
+        this.observationRegistry = observationRegistry;
     }
 
     /**
@@ -25,78 +40,109 @@ public class RagService {
      * This runs REGARDLESS of RAG setting
      */
     public ValidationResponse validateQuestion(String query) {
-        try {
-            String url = ragServiceUrl + "/api/validate";
-
-            Map<String, Object> request = new HashMap<>();
-            request.put("query", query);
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(request, headers);
-
-            ResponseEntity<ValidationResponse> response = restTemplate.postForEntity(
-                url, entity, ValidationResponse.class
-            );
-
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                return response.getBody();
-            }
-
-            // If validation endpoint fails, allow through (fail open)
-            ValidationResponse fallback = new ValidationResponse();
-            fallback.setValid(true);
-            fallback.setMethod("fallback");
-            return fallback;
-
-        } catch (Exception e) {
-            System.err.println("Python validation error: " + e.getMessage());
-            // On error, allow through (fail open)
-            ValidationResponse fallback = new ValidationResponse();
-            fallback.setValid(true);
-            fallback.setMethod("error");
-            return fallback;
+        return observe("rag.validate", () -> validateCoalescer.execute(RequestCoalescer.normalize(query), () ->
+            resilienceGuard.call("validate",
+                () -> callValidate(query),
+                // If validation is unavailable, allow through (fail open)
+                () -> fallbackValidation("fallback"),
+                // A read, safe to send twice
+                true)),
+            result -> "fallback".equals(result.getMethod()) ? "fallback"
+                    : Boolean.FALSE.equals(result.getIsValid()) ? "rejected" : "passed");
+    }
+
+    private ValidationResponse callValidate(String query) {
+        String url = ragServiceUrl + "/api/validate";
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("query", query);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(request, headers);
+
+        ResponseEntity<ValidationResponse> response = restTemplate.postForEntity(
+            url, entity, ValidationResponse.class
+        );
+
+        if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
+            return response.getBody();
         }
+
+        throw new IllegalStateException("Validation returned " + response.getStatusCode());
+    }
+
+    private ValidationResponse fallbackValidation(String method) {
+        ValidationResponse fallback = new ValidationResponse();
+        fallback.setValid(true);
+        fallback.setMethod(method);
+        return fallback;
     }
 
     /**
-     * Search relevant cases (only when RAG is enabled)
+     * Search relevant cases (only when RAG is enabled).
+     * The service filters by minScore (0-100) and returns at most one chunk per case.
+     *
+     * @param skipClassification the query was already classified, e.g. by the first page of a widened search
      */
-    public RagSearchResponse searchRelevantCases(String query, int topK) {
-        try {
-            String url = ragServiceUrl + "/search";
-
-            Map<String, Object> request = new HashMap<>();
-            request.put("query", query);
-            request.put("top_k", topK);
+    public RagSearchResponse searchRelevantCases(String query, int topK, double minScore, boolean skipClassification) {
+        String key = topK + "|" + minScore + "|" + skipClassification + "|" + RequestCoalescer.normalize(query);
+        return observe("rag.search", () -> searchCoalescer.execute(key, () ->
+            resilienceGuard.call("search",
+                () -> callSearch(query, topK, minScore, skipClassification),
+                // Degrade to a non-RAG answer instead of waiting on the service
+                this::degradedSearchResponse,
+                true)),
+            result -> result.isDegraded() ? "degraded"
+                    : Boolean.TRUE.equals(result.getRejected()) ? "rejected" : "ok");
+    }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(request, headers);
+    private RagSearchResponse callSearch(String query, int topK, double minScore, boolean skipClassification) {
+        String url = ragServiceUrl + "/search";
 
-            ResponseEntity<RagSearchResponse> response = restTemplate.postForEntity(
-                url, entity, RagSearchResponse.class
-            );
+        Map<String, Object> request = new HashMap<>();
+        request.put("query", query);
+        request.put("top_k", topK);
+        request.put("min_score", minScore);
+        request.put("dedupe_by_citation", true);
+        request.put("skip_classification", skipClassification);
 
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                return response.getBody();
-            }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(request, headers);
 
-            return new RagSearchResponse();
+        ResponseEntity<RagSearchResponse> response = restTemplate.postForEntity(
+            url, entity, RagSearchResponse.class
+        );
 
-        } catch (Exception e) {
-            System.err.println("RAG service error: " + e.getMessage());
-            return new RagSearchResponse();
+        if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
+            return response.getBody();
         }
+
+        throw new IllegalStateException("Search returned " + response.getStatusCode());
     }
 
-    public boolean isRagServiceHealthy() {
-        try {
-            String healthUrl = ragServiceUrl + "/health";
-            ResponseEntity<String> response = restTemplate.getForEntity(healthUrl, String.class);
-            return response.getStatusCode().is2xxSuccessful();
-        } catch (Exception e) {
-            return false;
+    private RagSearchResponse degradedSearchResponse() {
+        RagSearchResponse degraded = new RagSearchResponse();
+        degraded.setDegraded(true);
+        return degraded;
+    }
+
+    /**
+     * Wraps a call in an observation (timer, and a span once a tracing bridge is on
+     * the classpath) tagged with a low-cardinality outcome.
+     */
+    private <T> T observe(String name, Supplier<T> call, Function<T, String> outcome) {
+        Observation observation = Observation.start(name, observationRegistry);
+        try (Observation.Scope scope = observation.openScope()) {
+            T result = call.get();
+            observation.lowCardinalityKeyValue("outcome", outcome.apply(result));
+            return result;
+        } catch (RuntimeException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.stop();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,96 @@
+package com.wachichaw.AllyRAG;
+
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Single-flight deduplication of identical outbound calls.
+ * The first caller for a key runs the call on its own thread; concurrent callers
+ * with the same key attach to the same in-flight future and share its result.
+ * Nothing is cached once the call completes.
+ *
+ * Waiting callers stay interruptible. If the leader is cancelled, a waiting caller
+ * takes over and runs the call itself rather than inheriting the cancellation.
+ */
+public class RequestCoalescer<V> {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final ConcurrentMap<String, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong leaderCalls = new AtomicLong();
+    private final AtomicLong coalescedCalls = new AtomicLong();
+
+    public V execute(String key, Supplier<V> call) {
+        while (true) {
+            CompletableFuture<V> created = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+
+            if (existing != null) {
+                coalescedCalls.incrementAndGet();
+                try {
+                    return await(existing);
+                } catch (CancellationException e) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw e;
+                    }
+                    // The leader's caller went away, this one still wants the answer
+                    inFlight.remove(key, existing);
+                    continue;
+                }
+            }
+
+            leaderCalls.incrementAndGet();
+            try {
+                V result = call.get();
+                created.complete(result);
+                return result;
+            } catch (RuntimeException | Error e) {
+                created.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, created);
+            }
+        }
+    }
+
+    private V await(CompletableFuture<V> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a coalesced call");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new CompletionException(cause);
+        }
+    }
+
+    /**
+     * Normalizes free text so trivially different spellings of the same
+     * question ("What is  estafa?" / "what is estafa?") share one call.
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return WHITESPACE.matcher(text.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    public int getInFlightCount() { return inFlight.size(); }
+    public long getLeaderCalls() { return leaderCalls.get(); }
+    public long getCoalescedCalls() { return coalescedCalls.get(); }
+}
@@ -0,0 +1,242 @@
+package com.wachichaw.AllyRAG;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Plans case retrieval for a chat question so the prompt gets enough distinct,
+ * relevant cases in one or two calls.
+ *
+ * - The relevance threshold and dedupe-by-citation are applied by the RAG service,
+ *   which over-fetches so top-K can be filled with distinct cases.
+ * - If fewer than min-cases pass and the service reports more could exist
+ *   (exhausted=false), one follow-up search at widened-top-K runs without classifying
+ *   the question again. Widening cannot raise scores, so an exhausted page is not retried.
+ * - When the RAG service is skipped, the local BM25 index answers instead; otherwise
+ *   remote results are optionally reranked with it (hybrid scoring).
+ * - Results are cached per session and normalized question, so a repeated or
+ *   regenerated question in the same session does not search again.
+ */
+@Component
+public class RetrievalPlanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetrievalPlanner.class);
+
+    public enum Outcome { CASES, LOW_RELEVANCE, NO_CASES, REJECTED, DEGRADED }
+
+    public static class Retrieval {
+        private final Outcome outcome;
+        private final List<LegalCase> cases;
+        private final RagSearchResponse response;
+        private final double threshold;
+        private final String source;
+
+        Retrieval(Outcome outcome, List<LegalCase> cases, RagSearchResponse response, double threshold, String source) {
+            this.outcome = outcome;
+            this.cases = cases;
+            this.response = response;
+            this.threshold = threshold;
+            this.source = source;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        /** Distinct cases above the threshold, best first. */
+        public List<LegalCase> getCases() {
+            return cases;
+        }
+
+        /** Last search response, carries the rejection stage and reason. */
+        public RagSearchResponse getResponse() {
+            return response;
+        }
+
+        public double getThreshold() {
+            return threshold;
+        }
+
+        /** remote, widened, reranked, local_fallback or cached; used as a metric tag. */
+        public String getSource() {
+            return source;
+        }
+
+        Retrieval fromCache() {
+            return new Retrieval(outcome, cases, response, threshold, "cached");
+        }
+    }
+
+    private record CachedRetrieval(Retrieval retrieval, long createdAtMillis) {
+    }
+
+    @Value("${rag.relevance.threshold:54.0}")
+    private double relevanceThreshold;
+
+    @Value("${rag.retrieval.initial-top-k:3}")
+    private int initialTopK;
+
+    @Value("${rag.retrieval.widened-top-k:8}")
+    private int widenedTopK;
+
+    @Value("${rag.retrieval.min-cases:2}")
+    private int minCases;
+
+    @Value("${rag.retrieval.cache-size:5000}")
+    private int cacheSize;
+
+    @Value("${rag.retrieval.cache-ttl-seconds:900}")
+    private long cacheTtlSeconds;
+
+    private final RagService ragService;
+    private final LocalCaseIndex localCaseIndex;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, CachedRetrieval> cache = new ConcurrentHashMap<>();
+
+    public RetrievalPlanner(RagService ragService, LocalCaseIndex localCaseIndex, MeterRegistry meterRegistry) {
+        this.ragService = ragService;
+        this.localCaseIndex = localCaseIndex;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("rag.retrieval.cache.size", cache, Map::size)
+                .description("Session retrieval results held in memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The cached retrieval for this question in this session, or null.
+     */
+    public Retrieval cached(String sessionId, String question) {
+        CachedRetrieval entry = cache.get(cacheKey(sessionId, question));
+        boolean hit = entry != null && !isExpired(entry, System.currentTimeMillis());
+        meterRegistry.counter("rag.retrieval.cache", "result", hit ? "hit" : "miss").increment();
+        return hit ? entry.retrieval().fromCache() : null;
+    }
+
+    /**
+     * The first remote search. Split out so it can run while the question is still being validated.
+     */
+    public RagSearchResponse firstPage(String question) {
+        return ragService.searchRelevantCases(question, initialTopK, relevanceThreshold, false);
+    }
+
+    /**
+     * Turns the first page into the final case list, widening or falling back as needed.
+     */
+    public Retrieval complete(String sessionId, String question, RagSearchResponse firstPage) {
+        Retrieval retrieval = plan(question, firstPage);
+        if (retrieval.getOutcome() != Outcome.DEGRADED && !"local_fallback".equals(retrieval.getSource())) {
+            store(cacheKey(sessionId, question), retrieval);
+        }
+        return retrieval;
+    }
+
+    private Retrieval plan(String question, RagSearchResponse page) {
+        if (page == null) {
+            return new Retrieval(Outcome.NO_CASES, List.of(), null, relevanceThreshold, "remote");
+        }
+        if (page.isDegraded()) {
+            if (!localCaseIndex.isReady()) {
+                return new Retrieval(Outcome.DEGRADED, List.of(), page, relevanceThreshold, "degraded");
+            }
+            // RAG service skipped - fall back to the in-JVM BM25 index
+            logger.warn("RAG service unavailable, searching local case index");
+            RagSearchResponse local = localCaseIndex.search(question, widenedTopK);
+            return result(local.getCases(), local, localCaseIndex.getMinScore(), "local_fallback");
+        }
+        if (Boolean.TRUE.equals(page.getRejected())) {
+            return new Retrieval(Outcome.REJECTED, List.of(), page, relevanceThreshold, "remote");
+        }
+
+        List<LegalCase> candidates = page.getCases() != null ? page.getCases() : List.of();
+        String source = "remote";
+        if (select(candidates, relevanceThreshold).size() < minCases && !Boolean.TRUE.equals(page.getExhausted())) {
+            RagSearchResponse widened = ragService.searchRelevantCases(question, widenedTopK, relevanceThreshold, true);
+            if (!widened.isDegraded() && !Boolean.TRUE.equals(widened.getRejected()) && widened.getCases() != null) {
+                List<LegalCase> merged = new ArrayList<>(candidates);
+                merged.addAll(widened.getCases());
+                candidates = merged;
+                page = widened;
+                source = "widened";
+            }
+        }
+
+        if (localCaseIndex.isHybridEnabled() && !candidates.isEmpty()) {
+            candidates = localCaseIndex.rerank(question, candidates);
+            source = "reranked";
+        }
+        return result(candidates, page, relevanceThreshold, source);
+    }
+
+    private Retrieval result(List<LegalCase> candidates, RagSearchResponse response, double threshold, String source) {
+        if (candidates == null || candidates.isEmpty()) {
+            return new Retrieval(Outcome.NO_CASES, List.of(), response, threshold, source);
+        }
+        List<LegalCase> selected = select(candidates, threshold);
+        logger.debug("{} candidate cases, {} distinct above {}% ({})", candidates.size(), selected.size(), threshold, source);
+        return new Retrieval(selected.isEmpty() ? Outcome.LOW_RELEVANCE : Outcome.CASES,
+                selected, response, threshold, source);
+    }
+
+    /**
+     * Cases at or above the threshold, one per citation (highest score wins), best first.
+     * Older RAG services ignore min_score and dedupe_by_citation, so this is applied here as well.
+     */
+    static List<LegalCase> select(List<LegalCase> candidates, double threshold) {
+        Map<Object, LegalCase> best = new LinkedHashMap<>();
+        for (LegalCase legalCase : candidates) {
+            if (legalCase.getScore() == null || legalCase.getScore() < threshold) {
+                continue;
+            }
+            String citation = legalCase.getCitation();
+            Object key = citation != null && !citation.isEmpty() ? citation : legalCase;
+            best.merge(key, legalCase, (existing, replacement) ->
+                    existing.getScore() >= replacement.getScore() ? existing : replacement);
+        }
+        List<LegalCase> selected = new ArrayList<>(best.values());
+        selected.sort(Comparator.comparing(LegalCase::getScore).reversed());
+        return List.copyOf(selected);
+    }
+
+    private void store(String key, Retrieval retrieval) {
+        if (cache.size() >= cacheSize) {
+            evictExpired();
+            if (cache.size() >= cacheSize) {
+                return;
+            }
+        }
+        cache.put(key, new CachedRetrieval(retrieval, System.currentTimeMillis()));
+    }
+
+    private static String cacheKey(String sessionId, String question) {
+        return sessionId + "|" + RequestCoalescer.normalize(question);
+    }
+
+    private boolean isExpired(CachedRetrieval entry, long now) {
+        return now - entry.createdAtMillis() > TimeUnit.SECONDS.toMillis(cacheTtlSeconds);
+    }
+
+    @Scheduled(fixedDelayString = "${rag.retrieval.eviction-interval-ms:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        cache.entrySet().removeIf(entry -> isExpired(entry.getValue(), now));
+    }
+}
@@ -0,0 +1,124 @@
+package com.wachichaw.AllyRAG;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Structured concurrency for one request: subtasks are forked onto virtual threads,
+ * joined against a shared deadline, and interrupted as soon as the scope is cancelled,
+ * the deadline passes or the scope is closed.
+ *
+ * Java 21 only ships StructuredTaskScope as a preview API, so this covers the part the
+ * chat pipeline needs on a plain ExecutorService. Interrupting a virtual thread that is
+ * blocked in socket I/O closes the socket, so abandoned outbound calls stop right away
+ * instead of holding a pooled connection until their read timeout.
+ *
+ * Forking and joining is done by the owning thread; cancel() may be called from any thread.
+ */
+public class StructuredScope implements AutoCloseable {
+
+    /**
+     * Thrown by {@link Subtask#join()} when the scope deadline passes first.
+     */
+    public static class DeadlineExceededException extends RuntimeException {
+        public DeadlineExceededException(String message) {
+            super(message);
+        }
+    }
+
+    private final String name;
+    private final long deadlineNanos;
+    private final ExecutorService executor;
+    private volatile boolean cancelled;
+
+    public StructuredScope(String name, Duration timeout) {
+        this.name = name;
+        this.deadlineNanos = System.nanoTime() + timeout.toNanos();
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-task-", 0).factory());
+    }
+
+    public <T> Subtask<T> fork(Callable<T> task) {
+        if (cancelled) {
+            throw new CancellationException(name + " scope was cancelled");
+        }
+        try {
+            return new Subtask<>(executor.submit(task));
+        } catch (RejectedExecutionException e) {
+            throw new CancellationException(name + " scope was cancelled");
+        }
+    }
+
+    /**
+     * Interrupts every running subtask; later forks and joins fail with CancellationException.
+     */
+    public void cancel() {
+        cancelled = true;
+        executor.shutdownNow();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public long remainingMillis() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+
+    /**
+     * Subtasks still running are interrupted; close() does not wait for them to exit.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    public final class Subtask<T> {
+
+        private final Future<T> future;
+
+        private Subtask(Future<T> future) {
+            this.future = future;
+        }
+
+        /**
+         * Waits for the result until the scope deadline. Failures of the subtask are
+         * rethrown as they were; a missed deadline or an interrupted owner cancels the scope.
+         */
+        public T join() {
+            try {
+                return future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                cancel();
+                throw new DeadlineExceededException(name + " deadline exceeded");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
+                throw new CancellationException(name + " was interrupted");
+            } catch (CancellationException e) {
+                throw new CancellationException(name + " scope was cancelled");
+            } catch (ExecutionException e) {
+                if (cancelled) {
+                    // The failure is most likely the interrupt itself (a socket closed under the call)
+                    throw new CancellationException(name + " scope was cancelled");
+                }
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                if (cause instanceof Error error) {
+                    throw error;
+                }
+                throw new CompletionException(cause);
+            }
+        }
+    }
+}
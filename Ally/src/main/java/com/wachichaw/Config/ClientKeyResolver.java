@@ -0,0 +1,103 @@
+package com.wachichaw.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+
+import com.wachichaw.User.Entity.UserEntity;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Identifies who is calling, for per-client limits and ownership checks:
+ * "user:<id>" when the request carries a valid JWT, otherwise "ip:<address>".
+ *
+ * The address is the peer of the connection. X-Forwarded-For is written by the client,
+ * so it is only believed when the peer is one of ratelimit.trusted-proxies (addresses or
+ * CIDR ranges, comma separated; none by default). The client is then the right-most
+ * forwarded address that is not itself a trusted proxy.
+ */
+@Component
+public class ClientKeyResolver {
+
+    @Value("${ratelimit.trusted-proxies:}")
+    private String trustedProxies;
+
+    private final JwtUtil jwtUtil;
+    private List<IpAddressMatcher> proxies = List.of();
+
+    public ClientKeyResolver(JwtUtil jwtUtil) {
+        this.jwtUtil = jwtUtil;
+    }
+
+    @PostConstruct
+    public void init() {
+        List<IpAddressMatcher> matchers = new ArrayList<>();
+        for (String proxy : trustedProxies.split(",")) {
+            if (!proxy.isBlank()) {
+                matchers.add(new IpAddressMatcher(proxy.trim()));
+            }
+        }
+        proxies = List.copyOf(matchers);
+    }
+
+    public String resolve(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserEntity user) {
+            return "user:" + user.getUserId();
+        }
+
+        // Filters may run before JwtRequestFilter has populated the security context
+        String authorizationHeader = request.getHeader("Authorization");
+        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
+            try {
+                return "user:" + jwtUtil.extractUserId(authorizationHeader.substring(7));
+            } catch (Exception e) {
+                // Invalid or expired token - fall back to the address
+            }
+        }
+
+        return "ip:" + clientAddress(request);
+    }
+
+    private String clientAddress(HttpServletRequest request) {
+        String address = request.getRemoteAddr();
+        String forwarded = request.getHeader("X-Forwarded-For");
+        if (forwarded == null || !isTrustedProxy(address)) {
+            return address;
+        }
+        // Each proxy appends the address it received from, so walk back from the nearest one
+        String[] hops = forwarded.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (hop.isEmpty()) {
+                continue;
+            }
+            address = hop;
+            if (!isTrustedProxy(hop)) {
+                break;
+            }
+        }
+        return address;
+    }
+
+    private boolean isTrustedProxy(String address) {
+        for (IpAddressMatcher proxy : proxies) {
+            try {
+                if (proxy.matches(address)) {
+                    return true;
+                }
+            } catch (IllegalArgumentException e) {
+                // Not an IP address (e.g. a forged header value) - never a proxy
+                return false;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,296 @@
+package com.wachichaw.Config;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestTemplate;
+
+import com.wachichaw.AllyChatAI.Service.VertexAccessTokenManager;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Background health probes for the Python RAG service and the Vertex AI endpoint.
+ *
+ * - Each target is probed on its own interval with random jitter, so replicas do
+ *   not probe in lockstep, over the small health connection pool.
+ * - Status is debounced: a target goes DOWN after down-after consecutive failures
+ *   and back UP after up-after consecutive successes.
+ * - Availability and latency are kept over the last window probes.
+ * - Reads return the last published snapshot and never touch the network.
+ *
+ * The Vertex probe reads the endpoint's metadata, which costs no tokens. Any answer
+ * other than 5xx, 429 or 401 counts as reachable: a 403 only means the service
+ * account may not read metadata, the endpoint itself responded.
+ */
+@Component
+public class DependencyHealthMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(DependencyHealthMonitor.class);
+
+    public enum Status { UNKNOWN, UP, DOWN }
+
+    /**
+     * Immutable view of one target, replaced after every probe.
+     */
+    public static class TargetHealth {
+        private final Status status;
+        private final double availability;
+        private final long lastLatencyMs;
+        private final long averageLatencyMs;
+        private final int consecutiveFailures;
+        private final String lastCheckedAt;
+        private final String lastError;
+
+        TargetHealth(Status status, double availability, long lastLatencyMs, long averageLatencyMs,
+                     int consecutiveFailures, String lastCheckedAt, String lastError) {
+            this.status = status;
+            this.availability = availability;
+            this.lastLatencyMs = lastLatencyMs;
+            this.averageLatencyMs = averageLatencyMs;
+            this.consecutiveFailures = consecutiveFailures;
+            this.lastCheckedAt = lastCheckedAt;
+            this.lastError = lastError;
+        }
+
+        public Status getStatus() { return status; }
+        public double getAvailability() { return availability; }
+        public long getLastLatencyMs() { return lastLatencyMs; }
+        public long getAverageLatencyMs() { return averageLatencyMs; }
+        public int getConsecutiveFailures() { return consecutiveFailures; }
+        public String getLastCheckedAt() { return lastCheckedAt; }
+        public String getLastError() { return lastError; }
+    }
+
+    private static final TargetHealth NOT_CHECKED = new TargetHealth(Status.UNKNOWN, 0.0, 0, 0, 0, null, null);
+
+    @Value("${rag.service.url}")
+    private String ragServiceUrl;
+
+    @Value("${google.project-id}")
+    private String projectId;
+
+    @Value("${google.model-id}")
+    private String modelId;
+
+    @Value("${google.vertex.base-url:https://us-central1-aiplatform.googleapis.com}")
+    private String vertexBaseUrl;
+
+    @Value("${health.probe.enabled:true}")
+    private boolean enabled;
+
+    @Value("${health.probe.gemini.enabled:true}")
+    private boolean geminiProbeEnabled;
+
+    @Value("${health.probe.interval-ms:15000}")
+    private long intervalMs;
+
+    @Value("${health.probe.jitter:0.2}")
+    private double jitter;
+
+    @Value("${health.probe.window:20}")
+    private int window;
+
+    @Value("${health.probe.down-after:2}")
+    private int downAfter;
+
+    @Value("${health.probe.up-after:2}")
+    private int upAfter;
+
+    private final RestTemplate restTemplate;
+    private final VertexAccessTokenManager tokenManager;
+    private final MeterRegistry meterRegistry;
+
+    private ScheduledExecutorService scheduler;
+    private Target rag;
+    private Target gemini;
+
+    public DependencyHealthMonitor(@Qualifier("healthRestTemplate") RestTemplate restTemplate,
+                                   VertexAccessTokenManager tokenManager, MeterRegistry meterRegistry) {
+        this.restTemplate = restTemplate;
+        this.tokenManager = tokenManager;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        rag = new Target("rag", this::probeRag);
+        gemini = new Target("gemini", this::probeGemini);
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "dependency-health-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // First probes shortly after startup, spread out like the later ones
+        scheduler.schedule(() -> probe(rag), jitteredDelay(1000), TimeUnit.MILLISECONDS);
+        if (geminiProbeEnabled) {
+            scheduler.schedule(() -> probe(gemini), jitteredDelay(1000), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public TargetHealth getRagHealth() {
+        return rag.snapshot;
+    }
+
+    public TargetHealth getGeminiHealth() {
+        return gemini.snapshot;
+    }
+
+    /** True only once the probes have confirmed an outage; UNKNOWN is not down. */
+    public boolean isRagDown() {
+        return rag.snapshot.getStatus() == Status.DOWN;
+    }
+
+    public boolean isGeminiDown() {
+        return gemini.snapshot.getStatus() == Status.DOWN;
+    }
+
+    public Map<String, TargetHealth> snapshot() {
+        return Map.of("rag", rag.snapshot, "gemini", gemini.snapshot);
+    }
+
+    private void probe(Target target) {
+        long start = System.nanoTime();
+        String error = null;
+        boolean ok;
+        try {
+            ok = target.check.getAsBoolean();
+        } catch (Exception e) {
+            ok = false;
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+        long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (!ok && error == null) {
+            error = "Unhealthy response";
+        }
+
+        meterRegistry.timer("ally.health.probe", "target", target.name, "outcome", ok ? "up" : "down")
+                .record(latencyMs, TimeUnit.MILLISECONDS);
+        Status before = target.snapshot.getStatus();
+        target.record(ok, latencyMs, error);
+        Status after = target.snapshot.getStatus();
+        if (before != after) {
+            if (after == Status.DOWN) {
+                logger.warn("{} marked DOWN after {} failed probes: {}", target.name, target.consecutiveFailures, error);
+            } else {
+                logger.info("{} marked {}", target.name, after);
+            }
+        }
+
+        if (!scheduler.isShutdown()) {
+            scheduler.schedule(() -> probe(target), jitteredDelay(intervalMs), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private boolean probeRag() {
+        return restTemplate.getForEntity(ragServiceUrl + "/health", String.class).getStatusCode().is2xxSuccessful();
+    }
+
+    private boolean probeGemini() {
+        String url = String.format("%s/v1/projects/%s/locations/us-central1/endpoints/%s",
+                vertexBaseUrl, projectId, modelId);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(tokenManager.getTokenValue());
+        try {
+            restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+            return true;
+        } catch (HttpStatusCodeException e) {
+            int code = e.getStatusCode().value();
+            return code < 500 && code != 429 && code != 401;
+        }
+    }
+
+    private long jitteredDelay(long baseMs) {
+        double factor = 1.0 + (ThreadLocalRandom.current().nextDouble() * 2 - 1) * jitter;
+        return Math.max(0, (long) (baseMs * factor));
+    }
+
+    /**
+     * Rolling probe history for one target. Written only by the probe thread;
+     * readers see the volatile snapshot.
+     */
+    private class Target {
+        private final String name;
+        private final BooleanSupplier check;
+        private final boolean[] outcomes = new boolean[Math.max(1, window)];
+        private final long[] latencies = new long[outcomes.length];
+        private int count;
+        private int next;
+        private int consecutiveFailures;
+        private int consecutiveSuccesses;
+        private Status status = Status.UNKNOWN;
+        private volatile TargetHealth snapshot = NOT_CHECKED;
+
+        Target(String name, BooleanSupplier check) {
+            this.name = name;
+            this.check = check;
+            Gauge.builder("ally.health.up", this, t -> t.snapshot.getStatus() == Status.UP ? 1 : 0)
+                    .description("1 when the dependency is considered up")
+                    .tag("target", name)
+                    .register(meterRegistry);
+            Gauge.builder("ally.health.availability", this, t -> t.snapshot.getAvailability())
+                    .description("Share of recent probes that succeeded")
+                    .tag("target", name)
+                    .register(meterRegistry);
+        }
+
+        void record(boolean ok, long latencyMs, String error) {
+            outcomes[next] = ok;
+            latencies[next] = latencyMs;
+            next = (next + 1) % outcomes.length;
+            count = Math.min(count + 1, outcomes.length);
+
+            if (ok) {
+                consecutiveSuccesses++;
+                consecutiveFailures = 0;
+                if (status != Status.UP && (status == Status.UNKNOWN || consecutiveSuccesses >= upAfter)) {
+                    status = Status.UP;
+                }
+            } else {
+                consecutiveFailures++;
+                consecutiveSuccesses = 0;
+                if (consecutiveFailures >= downAfter) {
+                    status = Status.DOWN;
+                }
+            }
+
+            int successes = 0;
+            long latencySum = 0;
+            for (int i = 0; i < count; i++) {
+                if (outcomes[i]) {
+                    successes++;
+                }
+                latencySum += latencies[i];
+            }
+            snapshot = new TargetHealth(status, (double) successes / count, latencyMs, latencySum / count,
+                    consecutiveFailures, Instant.now().toString(), ok ? null : error);
+        }
+    }
+}
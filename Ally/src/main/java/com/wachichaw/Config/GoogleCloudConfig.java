@@ -2,12 +2,11 @@ package com.wachichaw.Config;
 
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Bean;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
 
 import java.io.IOException;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import com.google.auth.oauth2.GoogleCredentials;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.FileSystemResource;
@@ -18,7 +17,9 @@ public class GoogleCloudConfig {
   @Value("${google.service.account.path}")
 private String serviceAccountPath;
 
+// Off when Vertex AI is replaced by a local stand-in (google.vertex.auth.enabled=false)
 @Bean
+@ConditionalOnProperty(name = "google.vertex.auth.enabled", havingValue = "true", matchIfMissing = true)
 public GoogleCredentials googleCredentials() throws IOException {
     Resource resource;
 
@@ -35,12 +36,4 @@ public GoogleCredentials googleCredentials() throws IOException {
             .createScoped("https://www.googleapis.com/auth/cloud-platform");
 }
 
-
-    @Bean
-    public RestTemplate restTemplate() {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(30000);
-        factory.setReadTimeout(30000);
-        return new RestTemplate(factory);
-    }
 }
\ No newline at end of file
@@ -1,24 +1,29 @@
 package com.wachichaw.Config;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.Scheduled;
-
-import java.net.HttpURLConnection;
-import java.net.URL;
+import org.springframework.web.client.RestTemplate;
 
 @Configuration
 public class KeepAliveConfig {
 
-    private static final String HEALTH_URL = "https://capstone-ally.onrender.com/actuator/health";
+    @Value("${keepalive.health-url:https://capstone-ally.onrender.com/actuator/health}")
+    private String healthUrl;
+
+    private final RestTemplate healthRestTemplate;
+
+    public KeepAliveConfig(@Qualifier("healthRestTemplate") RestTemplate healthRestTemplate) {
+        this.healthRestTemplate = healthRestTemplate;
+    }
 
     @Scheduled(fixedRate = 4 * 60 * 1000) // every 4 minutes
     public void pingSelf() {
         try {
-            URL url = new URL(HEALTH_URL);
-            HttpURLConnection con = (HttpURLConnection) url.openConnection();
-            con.setRequestMethod("GET");
-            int responseCode = con.getResponseCode();
-            System.out.println("Self-ping response: " + responseCode);
+            ResponseEntity<String> response = healthRestTemplate.getForEntity(healthUrl, String.class);
+            System.out.println("Self-ping response: " + response.getStatusCode().value());
         } catch (Exception e) {
             System.out.println("Self-ping failed: " + e.getMessage());
         }
@@ -0,0 +1,193 @@
+package com.wachichaw.Config;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+
+/**
+ * Shared outbound HTTP layer.
+ * Every remote destination (Vertex AI, the Python RAG service, the keep-alive ping)
+ * gets its own pooled keep-alive Apache HttpClient with its own pool size and timeouts.
+ *
+ * Metrics:
+ * - httpcomponents.httpclient.pool.* : pool size, leased, available and pending per destination
+ * - http.client.pool.wait            : time spent waiting to lease a pooled connection
+ * - http.client.requests             : per-host request latency (RestTemplateBuilder observation)
+ */
+@Configuration
+public class OutboundHttpConfig {
+
+    @Value("${http.client.idle-eviction-ms:30000}")
+    private long idleEvictionMs;
+
+    @Value("${http.client.connection-ttl-ms:300000}")
+    private long connectionTtlMs;
+
+    @Value("${http.client.gemini.max-connections:50}")
+    private int geminiMaxConnections;
+
+    @Value("${http.client.gemini.connect-timeout-ms:5000}")
+    private long geminiConnectTimeoutMs;
+
+    @Value("${http.client.gemini.read-timeout-ms:60000}")
+    private long geminiReadTimeoutMs;
+
+    @Value("${http.client.gemini.pool-wait-timeout-ms:2000}")
+    private long geminiPoolWaitTimeoutMs;
+
+    @Value("${http.client.rag.max-connections:20}")
+    private int ragMaxConnections;
+
+    @Value("${http.client.rag.connect-timeout-ms:5000}")
+    private long ragConnectTimeoutMs;
+
+    @Value("${http.client.rag.read-timeout-ms:${rag.service.timeout:30000}}")
+    private long ragReadTimeoutMs;
+
+    @Value("${http.client.rag.pool-wait-timeout-ms:2000}")
+    private long ragPoolWaitTimeoutMs;
+
+    @Value("${http.client.health.max-connections:2}")
+    private int healthMaxConnections;
+
+    @Value("${http.client.health.connect-timeout-ms:5000}")
+    private long healthConnectTimeoutMs;
+
+    @Value("${http.client.health.read-timeout-ms:10000}")
+    private long healthReadTimeoutMs;
+
+    @Value("${http.client.health.pool-wait-timeout-ms:1000}")
+    private long healthPoolWaitTimeoutMs;
+
+    private final MeterRegistry meterRegistry;
+    private final RestTemplateBuilder restTemplateBuilder;
+
+    public OutboundHttpConfig(MeterRegistry meterRegistry, RestTemplateBuilder restTemplateBuilder) {
+        this.meterRegistry = meterRegistry;
+        this.restTemplateBuilder = restTemplateBuilder;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient geminiHttpClient() {
+        return buildClient("gemini", geminiMaxConnections, geminiConnectTimeoutMs, geminiReadTimeoutMs, geminiPoolWaitTimeoutMs);
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient ragHttpClient() {
+        return buildClient("rag", ragMaxConnections, ragConnectTimeoutMs, ragReadTimeoutMs, ragPoolWaitTimeoutMs);
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient healthHttpClient() {
+        return buildClient("health", healthMaxConnections, healthConnectTimeoutMs, healthReadTimeoutMs, healthPoolWaitTimeoutMs);
+    }
+
+    @Bean
+    public RestTemplate geminiRestTemplate(@Qualifier("geminiHttpClient") CloseableHttpClient client) {
+        return buildRestTemplate(client);
+    }
+
+    @Bean
+    public RestTemplate ragRestTemplate(@Qualifier("ragHttpClient") CloseableHttpClient client) {
+        return buildRestTemplate(client);
+    }
+
+    @Bean
+    public RestTemplate healthRestTemplate(@Qualifier("healthHttpClient") CloseableHttpClient client) {
+        return buildRestTemplate(client);
+    }
+
+    private RestTemplate buildRestTemplate(CloseableHttpClient client) {
+        return restTemplateBuilder
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(client))
+                .build();
+    }
+
+    private CloseableHttpClient buildClient(String destination, int maxConnections,
+                                            long connectTimeoutMs, long readTimeoutMs, long poolWaitTimeoutMs) {
+        Timer waitTimer = Timer.builder("http.client.pool.wait")
+                .description("Time spent waiting for a pooled outbound connection")
+                .tag("destination", destination)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        PoolingHttpClientConnectionManager connectionManager = new TimedPoolingConnectionManager(waitTimer);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        connectionManager.setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                .setTimeToLive(TimeValue.ofMilliseconds(connectionTtlMs))
+                .setValidateAfterInactivity(TimeValue.ofSeconds(5))
+                .build());
+
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, destination).bindTo(meterRegistry);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolWaitTimeoutMs))
+                .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(idleEvictionMs))
+                .build();
+    }
+
+    /**
+     * Connection manager that records how long each caller waited for a lease.
+     */
+    private static class TimedPoolingConnectionManager extends PoolingHttpClientConnectionManager {
+
+        private final Timer waitTimer;
+
+        TimedPoolingConnectionManager(Timer waitTimer) {
+            this.waitTimer = waitTimer;
+        }
+
+        @Override
+        public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+            LeaseRequest delegate = super.lease(id, route, requestTimeout, state);
+            Timer.Sample sample = Timer.start();
+            return new LeaseRequest() {
+                @Override
+                public ConnectionEndpoint get(Timeout timeout)
+                        throws InterruptedException, ExecutionException, TimeoutException {
+                    try {
+                        return delegate.get(timeout);
+                    } finally {
+                        sample.stop(waitTimer);
+                    }
+                }
+
+                @Override
+                public boolean cancel() {
+                    return delegate.cancel();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.wachichaw.Config;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Admission control for the expensive AI endpoints.
+ *
+ * Every limited endpoint has a token bucket per client (JWT user id, else IP).
+ * Endpoints that spend a shared resource also take a token from a global bucket:
+ * chat from the outbound Gemini quota, retrain from the Weka training slot.
+ * The client bucket is checked first, so one noisy client runs out of its own
+ * tokens before it can drain the shared ones. Refused requests get 429 with Retry-After.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    // Clients beyond max-buckets share one bucket per rule instead of growing the map
+    private static final String OVERFLOW_CLIENT = "overflow";
+
+    private record Rule(String name, String method, List<String> paths, int capacity, double refillPerMinute,
+                        TokenBucket global) {
+
+        boolean matches(HttpServletRequest request) {
+            return method.equalsIgnoreCase(request.getMethod()) && paths.contains(request.getServletPath());
+        }
+    }
+
+    @Value("${ratelimit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ratelimit.max-buckets:50000}")
+    private int maxBuckets;
+
+    @Value("${ratelimit.chat.capacity:10}")
+    private int chatCapacity;
+
+    @Value("${ratelimit.chat.refill-per-minute:6}")
+    private double chatRefillPerMinute;
+
+    @Value("${ratelimit.gemini.capacity:60}")
+    private int geminiCapacity;
+
+    @Value("${ratelimit.gemini.refill-per-minute:60}")
+    private double geminiRefillPerMinute;
+
+    @Value("${ratelimit.recommend.capacity:20}")
+    private int recommendCapacity;
+
+    @Value("${ratelimit.recommend.refill-per-minute:30}")
+    private double recommendRefillPerMinute;
+
+    @Value("${ratelimit.retrain.capacity:2}")
+    private int retrainCapacity;
+
+    @Value("${ratelimit.retrain.refill-per-minute:0.2}")
+    private double retrainRefillPerMinute;
+
+    @Value("${ratelimit.retrain.global-capacity:1}")
+    private int retrainGlobalCapacity;
+
+    @Value("${ratelimit.retrain.global-refill-per-minute:1}")
+    private double retrainGlobalRefillPerMinute;
+
+    private final ClientKeyResolver clientKeyResolver;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private List<Rule> rules;
+
+    public RateLimitFilter(ClientKeyResolver clientKeyResolver, MeterRegistry meterRegistry) {
+        this.clientKeyResolver = clientKeyResolver;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        rules = List.of(
+            // /prompt and /jobs share one allowance, switching endpoints does not double it
+            new Rule("chat", "POST", List.of("/api/chat/prompt", "/api/chat/jobs"),
+                    chatCapacity, chatRefillPerMinute, new TokenBucket(geminiCapacity, geminiRefillPerMinute)),
+            new Rule("recommend", "POST", List.of("/api/lawyer-recommendation/recommend"),
+                    recommendCapacity, recommendRefillPerMinute, null),
+            new Rule("retrain", "POST", List.of("/api/lawyer-recommendation/retrain"),
+                    retrainCapacity, retrainRefillPerMinute,
+                    new TokenBucket(retrainGlobalCapacity, retrainGlobalRefillPerMinute))
+        );
+        Gauge.builder("ratelimit.buckets", buckets, Map::size)
+                .description("Per-client rate limit buckets currently tracked")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || findRule(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Rule rule = findRule(request);
+        String clientKey = clientKeyResolver.resolve(request);
+
+        long waitNanos = clientBucket(rule, clientKey).tryConsume();
+        if (waitNanos > 0) {
+            reject(response, rule, "client", waitNanos);
+            return;
+        }
+        if (rule.global() != null) {
+            waitNanos = rule.global().tryConsume();
+            if (waitNanos > 0) {
+                reject(response, rule, "global", waitNanos);
+                return;
+            }
+        }
+
+        chain.doFilter(request, response);
+    }
+
+    private Rule findRule(HttpServletRequest request) {
+        for (Rule rule : rules) {
+            if (rule.matches(request)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    private TokenBucket clientBucket(Rule rule, String clientKey) {
+        String key = rule.name() + "|" + clientKey;
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxBuckets) {
+            key = rule.name() + "|" + OVERFLOW_CLIENT;
+        }
+        return buckets.computeIfAbsent(key, k -> new TokenBucket(rule.capacity(), rule.refillPerMinute()));
+    }
+
+    private void reject(HttpServletResponse response, Rule rule, String scope, long waitNanos) throws IOException {
+        long retryAfterSeconds = Math.max(1, (long) Math.ceil(waitNanos / (double) TimeUnit.SECONDS.toNanos(1)));
+        meterRegistry.counter("ratelimit.rejected", "rule", rule.name(), "scope", scope).increment();
+        logger.debug("Rate limited {} request ({} bucket), retry after {} s", rule.name(), scope, retryAfterSeconds);
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write("{\"error\":\"Too many requests. Please try again in "
+                + retryAfterSeconds + " seconds.\",\"retryAfterSeconds\":" + retryAfterSeconds + "}");
+    }
+
+    /**
+     * A bucket that has refilled completely behaves like a new one, so it can go.
+     */
+    @Scheduled(fixedDelayString = "${ratelimit.eviction-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        buckets.entrySet().removeIf(entry -> entry.getValue().isFull());
+    }
+}
@@ -0,0 +1,61 @@
+package com.wachichaw.Config;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket, implemented as the generic cell rate algorithm.
+ *
+ * Instead of a token count the bucket stores one timestamp: the time at which it
+ * would be completely full again. Taking a token pushes that time forward by one
+ * refill interval; the request is refused if that would put it more than
+ * capacity intervals in the future. A single CAS on a long per request.
+ */
+public class TokenBucket {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+
+    /**
+     * @param capacity        burst size
+     * @param refillPerMinute sustained rate; fractions allowed (0.5 = one every two minutes)
+     */
+    public TokenBucket(int capacity, double refillPerMinute) {
+        if (capacity < 1 || refillPerMinute <= 0) {
+            throw new IllegalArgumentException("Token bucket needs capacity >= 1 and a positive refill rate");
+        }
+        this.intervalNanos = (long) (TimeUnit.MINUTES.toNanos(1) / refillPerMinute);
+        this.burstNanos = intervalNanos * capacity;
+        this.fullAt = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Takes one token.
+     *
+     * @return 0 if granted, otherwise the nanoseconds until a token is available
+     */
+    public long tryConsume() {
+        while (true) {
+            long now = System.nanoTime();
+            long current = fullAt.get();
+            long base = current - now > 0 ? current : now;
+            long next = base + intervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * True once the bucket has refilled completely, i.e. it has been idle long
+     * enough that dropping it is the same as keeping it.
+     */
+    public boolean isFull() {
+        return fullAt.get() - System.nanoTime() <= 0;
+    }
+}
@@ -2,14 +2,18 @@ package com.wachichaw.Lawyer.Repo;
 
 
 import java.util.List;
+import java.util.Optional;
 
-import org.springframework.data.jdbc.repository.query.Query;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.wachichaw.Lawyer.Entity.LawyerEntity;
 
+import jakarta.persistence.LockModeType;
+
 @Repository
 public interface LawyerRepo extends JpaRepository<LawyerEntity, Integer>{
     boolean existsByEmail(String email);
@@ -18,7 +22,18 @@ public interface LawyerRepo extends JpaRepository<LawyerEntity, Integer>{
 
     @Query("SELECT l FROM LawyerEntity l WHERE :specialization MEMBER OF l.specialization")
     List<LawyerEntity> findBySpecialization(@Param("specialization") String specialization);
+
+    // Ids of verified lawyers with a specialization (any case), in a city or province if one is given
+    @Query("SELECT DISTINCT l.userId FROM LawyerEntity l JOIN l.specialization s " +
+           "WHERE l.credentialsVerified = true AND LOWER(s) = LOWER(:specialization) " +
+           "AND (:location IS NULL OR LOWER(l.city) = LOWER(:location) OR LOWER(l.province) = LOWER(:location))")
+    List<Integer> findVerifiedIdsBySpecialization(@Param("specialization") String specialization,
+                                                  @Param("location") String location);
     
+    // Locks the lawyer's row until the transaction ends; serializes bookings for one lawyer across instances
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<LawyerEntity> findWithLockByUserId(int userId);
+
     long countByCredentialsVerifiedTrue();
     long countByCredentialsVerifiedFalse();
 }
@@ -0,0 +1,93 @@
+package com.wachichaw.Schedule.Controller;
+
+import java.time.format.DateTimeParseException;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.wachichaw.Schedule.DTO.AvailabilityRulesDTO;
+import com.wachichaw.Schedule.DTO.TimeOffDTO;
+import com.wachichaw.Schedule.Service.AvailabilityRulesService;
+
+@RestController
+@RequestMapping("/schedules/lawyer/{lawyerId}")
+public class AvailabilityRulesController {
+
+    private final AvailabilityRulesService availabilityRulesService;
+
+    public AvailabilityRulesController(AvailabilityRulesService availabilityRulesService) {
+        this.availabilityRulesService = availabilityRulesService;
+    }
+
+    /**
+     * Get a lawyer's weekly working hours, breaks and upcoming time off
+     * GET /schedules/lawyer/{lawyerId}/availability-rules
+     */
+    @GetMapping("/availability-rules")
+    public ResponseEntity<?> getRules(@PathVariable int lawyerId) {
+        try {
+            return ResponseEntity.ok(availabilityRulesService.getRules(lawyerId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to retrieve availability rules");
+        }
+    }
+
+    /**
+     * Replace a lawyer's weekly working hours and breaks
+     * PUT /schedules/lawyer/{lawyerId}/availability-rules
+     */
+    @PutMapping("/availability-rules")
+    public ResponseEntity<?> updateRules(@PathVariable int lawyerId, @RequestBody AvailabilityRulesDTO request) {
+        try {
+            return ResponseEntity.ok(availabilityRulesService.updateRules(lawyerId, request));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("Invalid time format. Use HH:mm");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Invalid day of week. Use MONDAY to SUNDAY");
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to update availability rules");
+        }
+    }
+
+    /**
+     * Add days off, e.g. a holiday or leave
+     * POST /schedules/lawyer/{lawyerId}/time-off
+     */
+    @PostMapping("/time-off")
+    public ResponseEntity<?> addTimeOff(@PathVariable int lawyerId, @RequestBody TimeOffDTO request) {
+        try {
+            return ResponseEntity.ok(availabilityRulesService.addTimeOff(lawyerId, request));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("Invalid date format. Use YYYY-MM-DD");
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to add time off");
+        }
+    }
+
+    /**
+     * Remove days off
+     * DELETE /schedules/lawyer/{lawyerId}/time-off/{timeOffId}
+     */
+    @DeleteMapping("/time-off/{timeOffId}")
+    public ResponseEntity<?> removeTimeOff(@PathVariable int lawyerId, @PathVariable int timeOffId) {
+        try {
+            availabilityRulesService.removeTimeOff(lawyerId, timeOffId);
+            return ResponseEntity.noContent().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to remove time off");
+        }
+    }
+}
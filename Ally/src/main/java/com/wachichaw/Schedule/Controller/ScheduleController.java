@@ -1,6 +1,5 @@
 package com.wachichaw.Schedule.Controller;
 
-import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -16,8 +15,10 @@ import com.wachichaw.Schedule.DTO.BookingRequestDTO;
 import com.wachichaw.Schedule.DTO.CaseBookingRequestDTO;
 import com.wachichaw.Schedule.DTO.RescheduleRequestDTO;
 import com.wachichaw.Schedule.DTO.AvailableSlotResponseDTO;
+import com.wachichaw.Schedule.DTO.AvailabilityRangeResponseDTO;
 import com.wachichaw.Schedule.DTO.AcceptRequestDTO;
 import com.wachichaw.Schedule.DTO.DeclineRequestDTO;
+import com.wachichaw.Schedule.DTO.OpenSlotDTO;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -25,6 +26,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import com.wachichaw.Schedule.Entity.ScheduleEntity;
+import com.wachichaw.Schedule.Service.EarliestAvailabilityService;
 import com.wachichaw.Schedule.Service.ScheduleService;
 import com.wachichaw.Lawyer.Entity.LawyerEntity;
 import com.wachichaw.Client.Entity.ClientEntity;
@@ -39,6 +41,8 @@ public class ScheduleController {    @Autowired
     private ClientRepo clientRepo;
     @Autowired
     private UserRepo userRepo;
+    @Autowired
+    private EarliestAvailabilityService earliestAvailabilityService;
 
     public ScheduleController(ScheduleService scheduleService) {
         this.scheduleService = scheduleService;
@@ -234,11 +238,7 @@ public class ScheduleController {    @Autowired
                 return ResponseEntity.badRequest().body("Cannot check availability for past dates");
             }
             
-            // Validate date is not a weekend
-            if (requestDate.getDayOfWeek() == DayOfWeek.SATURDAY ||
-                requestDate.getDayOfWeek() == DayOfWeek.SUNDAY) {
-                return ResponseEntity.badRequest().body("No consultations available on weekends");
-            }
+            // Days the lawyer does not work come back without slots
             
             AvailableSlotResponseDTO response = scheduleService.getAvailableSlots(lawyerId, requestDate);
             return ResponseEntity.ok(response);
@@ -254,6 +254,69 @@ public class ScheduleController {    @Autowired
         }
     }
 
+    /**
+     * Get available time slots for every day in a date range (inclusive), e.g. a calendar month
+     * GET /schedules/lawyer/{lawyerId}/availability?from=2025-01-13&to=2025-02-11
+     */
+    @GetMapping("/lawyer/{lawyerId}/availability")
+    public ResponseEntity<?> getAvailability(
+            @PathVariable int lawyerId,
+            @RequestParam String from,
+            @RequestParam String to) {
+        try {
+            LocalDate fromDate = LocalDate.parse(from);
+            LocalDate toDate = LocalDate.parse(to);
+
+            // Validate range does not start in the past
+            if (fromDate.isBefore(LocalDate.now())) {
+                return ResponseEntity.badRequest().body("Cannot check availability for past dates");
+            }
+
+            List<AvailableSlotResponseDTO> days = scheduleService.getAvailability(lawyerId, fromDate, toDate);
+            return ResponseEntity.ok(new AvailabilityRangeResponseDTO(lawyerId, from, to, days));
+
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("Invalid date format. Use YYYY-MM-DD");
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Failed to retrieve availability");
+        }
+    }
+
+    /**
+     * Find the earliest open slots across all verified lawyers of a specialization
+     * GET /schedules/earliest-available?specialization=Family Law&location=Cebu&from=2025-01-13T00:00:00&to=2025-01-27T00:00:00&limit=5
+     * location, from (default now), to (default two weeks after from) and limit (default 5) are optional
+     */
+    @GetMapping("/earliest-available")
+    public ResponseEntity<?> findEarliestAvailable(
+            @RequestParam String specialization,
+            @RequestParam(required = false) String location,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "5") int limit) {
+        try {
+            LocalDateTime windowStart = from != null ? parseDateTime(from) : LocalDateTime.now();
+            LocalDateTime windowEnd = to != null ? parseDateTime(to) : windowStart.plusWeeks(2);
+            String place = location != null && !location.isBlank() ? location.trim() : null;
+
+            List<OpenSlotDTO> slots = earliestAvailabilityService.findEarliest(
+                    specialization.trim(), place, windowStart, windowEnd, limit);
+            return ResponseEntity.ok(slots);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("Invalid date format. Use yyyy-MM-dd'T'HH:mm:ss");
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Failed to search available slots");
+        }
+    }
+
     /**
      * Cancel an appointment
      * PUT /schedules/{scheduleId}/cancel
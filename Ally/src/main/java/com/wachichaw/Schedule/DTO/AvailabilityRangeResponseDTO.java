@@ -0,0 +1,55 @@
+package com.wachichaw.Schedule.DTO;
+
+import java.util.List;
+
+public class AvailabilityRangeResponseDTO {
+    private int lawyerId;
+    private String from;         // "2025-01-13"
+    private String to;           // "2025-02-11", inclusive
+    private List<AvailableSlotResponseDTO> days;
+
+    // Default constructor
+    public AvailabilityRangeResponseDTO() {
+    }
+
+    // Constructor with parameters
+    public AvailabilityRangeResponseDTO(int lawyerId, String from, String to, List<AvailableSlotResponseDTO> days) {
+        this.lawyerId = lawyerId;
+        this.from = from;
+        this.to = to;
+        this.days = days;
+    }
+
+    // Getters and setters
+    public int getLawyerId() {
+        return lawyerId;
+    }
+
+    public void setLawyerId(int lawyerId) {
+        this.lawyerId = lawyerId;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public void setFrom(String from) {
+        this.from = from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+
+    public List<AvailableSlotResponseDTO> getDays() {
+        return days;
+    }
+
+    public void setDays(List<AvailableSlotResponseDTO> days) {
+        this.days = days;
+    }
+}
@@ -0,0 +1,45 @@
+package com.wachichaw.Schedule.DTO;
+
+import java.util.List;
+
+public class AvailabilityRulesDTO {
+    private List<WorkingHoursDTO> weeklyHours; // Days without an entry are closed
+    private List<BreakDTO> breaks;
+    private List<TimeOffDTO> timeOff; // Read only here, managed through /time-off
+
+    // Default constructor
+    public AvailabilityRulesDTO() {
+    }
+
+    // Constructor with parameters
+    public AvailabilityRulesDTO(List<WorkingHoursDTO> weeklyHours, List<BreakDTO> breaks, List<TimeOffDTO> timeOff) {
+        this.weeklyHours = weeklyHours;
+        this.breaks = breaks;
+        this.timeOff = timeOff;
+    }
+
+    // Getters and setters
+    public List<WorkingHoursDTO> getWeeklyHours() {
+        return weeklyHours;
+    }
+
+    public void setWeeklyHours(List<WorkingHoursDTO> weeklyHours) {
+        this.weeklyHours = weeklyHours;
+    }
+
+    public List<BreakDTO> getBreaks() {
+        return breaks;
+    }
+
+    public void setBreaks(List<BreakDTO> breaks) {
+        this.breaks = breaks;
+    }
+
+    public List<TimeOffDTO> getTimeOff() {
+        return timeOff;
+    }
+
+    public void setTimeOff(List<TimeOffDTO> timeOff) {
+        this.timeOff = timeOff;
+    }
+}
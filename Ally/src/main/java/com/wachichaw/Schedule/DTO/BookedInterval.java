@@ -0,0 +1,9 @@
+package com.wachichaw.Schedule.DTO;
+
+import java.time.LocalDateTime;
+
+/**
+ * The time a schedule holds on its lawyer's calendar, without the rest of the entity.
+ */
+public record BookedInterval(int scheduleId, LocalDateTime start, LocalDateTime end) {
+}
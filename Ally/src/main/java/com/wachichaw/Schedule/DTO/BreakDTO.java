@@ -0,0 +1,43 @@
+package com.wachichaw.Schedule.DTO;
+
+public class BreakDTO {
+    private String dayOfWeek;         // "MONDAY", or null for every working day
+    private String startTime;         // "12:00"
+    private String endTime;           // "13:00"
+
+    // Default constructor
+    public BreakDTO() {
+    }
+
+    // Constructor with parameters
+    public BreakDTO(String dayOfWeek, String startTime, String endTime) {
+        this.dayOfWeek = dayOfWeek;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    // Getters and setters
+    public String getDayOfWeek() {
+        return dayOfWeek;
+    }
+
+    public void setDayOfWeek(String dayOfWeek) {
+        this.dayOfWeek = dayOfWeek;
+    }
+
+    public String getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(String startTime) {
+        this.startTime = startTime;
+    }
+
+    public String getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(String endTime) {
+        this.endTime = endTime;
+    }
+}
@@ -0,0 +1,13 @@
+package com.wachichaw.Schedule.DTO;
+
+import java.time.LocalDateTime;
+
+/**
+ * A BookedInterval together with the lawyer it belongs to, for queries spanning several lawyers.
+ */
+public record LawyerBookedInterval(int lawyerId, int scheduleId, LocalDateTime start, LocalDateTime end) {
+
+    public BookedInterval toInterval() {
+        return new BookedInterval(scheduleId, start, end);
+    }
+}
@@ -0,0 +1,73 @@
+package com.wachichaw.Schedule.DTO;
+
+public class OpenSlotDTO {
+    private int lawyerId;
+    private String lawyerName;
+    private String date;              // "2025-01-15"
+    private String startTime;         // "09:00 AM"
+    private String endTime;           // "10:00 AM"
+    private String bookingStartTime;  // "2025-01-15T09:00:00", as /book expects it
+
+    // Default constructor
+    public OpenSlotDTO() {
+    }
+
+    // Constructor with parameters
+    public OpenSlotDTO(int lawyerId, String lawyerName, String date, String startTime, String endTime, String bookingStartTime) {
+        this.lawyerId = lawyerId;
+        this.lawyerName = lawyerName;
+        this.date = date;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.bookingStartTime = bookingStartTime;
+    }
+
+    // Getters and setters
+    public int getLawyerId() {
+        return lawyerId;
+    }
+
+    public void setLawyerId(int lawyerId) {
+        this.lawyerId = lawyerId;
+    }
+
+    public String getLawyerName() {
+        return lawyerName;
+    }
+
+    public void setLawyerName(String lawyerName) {
+        this.lawyerName = lawyerName;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public void setDate(String date) {
+        this.date = date;
+    }
+
+    public String getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(String startTime) {
+        this.startTime = startTime;
+    }
+
+    public String getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(String endTime) {
+        this.endTime = endTime;
+    }
+
+    public String getBookingStartTime() {
+        return bookingStartTime;
+    }
+
+    public void setBookingStartTime(String bookingStartTime) {
+        this.bookingStartTime = bookingStartTime;
+    }
+}
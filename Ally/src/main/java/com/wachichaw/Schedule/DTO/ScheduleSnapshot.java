@@ -0,0 +1,12 @@
+package com.wachichaw.Schedule.DTO;
+
+import java.time.LocalDateTime;
+
+import com.wachichaw.Schedule.Entity.AppointmentStatus;
+
+/**
+ * The ids, times and status of a schedule, for batch jobs that should not load the entities.
+ */
+public record ScheduleSnapshot(int scheduleId, int lawyerId, int clientId,
+                               LocalDateTime start, LocalDateTime end, AppointmentStatus status) {
+}
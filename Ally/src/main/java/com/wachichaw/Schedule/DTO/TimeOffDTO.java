@@ -0,0 +1,53 @@
+package com.wachichaw.Schedule.DTO;
+
+public class TimeOffDTO {
+    private Integer timeOffId;        // set by the server
+    private String startDate;         // "2025-12-24"
+    private String endDate;           // "2025-12-26", inclusive
+    private String reason;            // Optional
+
+    // Default constructor
+    public TimeOffDTO() {
+    }
+
+    // Constructor with parameters
+    public TimeOffDTO(Integer timeOffId, String startDate, String endDate, String reason) {
+        this.timeOffId = timeOffId;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.reason = reason;
+    }
+
+    // Getters and setters
+    public Integer getTimeOffId() {
+        return timeOffId;
+    }
+
+    public void setTimeOffId(Integer timeOffId) {
+        this.timeOffId = timeOffId;
+    }
+
+    public String getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(String startDate) {
+        this.startDate = startDate;
+    }
+
+    public String getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(String endDate) {
+        this.endDate = endDate;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+}
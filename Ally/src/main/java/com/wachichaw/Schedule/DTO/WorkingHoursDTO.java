@@ -0,0 +1,53 @@
+package com.wachichaw.Schedule.DTO;
+
+public class WorkingHoursDTO {
+    private String dayOfWeek;         // "MONDAY"
+    private String startTime;         // "09:00"
+    private String endTime;           // "18:00"
+    private int slotMinutes;          // 60
+
+    // Default constructor
+    public WorkingHoursDTO() {
+    }
+
+    // Constructor with parameters
+    public WorkingHoursDTO(String dayOfWeek, String startTime, String endTime, int slotMinutes) {
+        this.dayOfWeek = dayOfWeek;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.slotMinutes = slotMinutes;
+    }
+
+    // Getters and setters
+    public String getDayOfWeek() {
+        return dayOfWeek;
+    }
+
+    public void setDayOfWeek(String dayOfWeek) {
+        this.dayOfWeek = dayOfWeek;
+    }
+
+    public String getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(String startTime) {
+        this.startTime = startTime;
+    }
+
+    public String getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(String endTime) {
+        this.endTime = endTime;
+    }
+
+    public int getSlotMinutes() {
+        return slotMinutes;
+    }
+
+    public void setSlotMinutes(int slotMinutes) {
+        this.slotMinutes = slotMinutes;
+    }
+}
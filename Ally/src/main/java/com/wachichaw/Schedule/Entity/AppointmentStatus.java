@@ -1,9 +1,18 @@
 package com.wachichaw.Schedule.Entity;
 
+import java.util.Set;
+
 public enum AppointmentStatus {
     PENDING,
     ACCEPTED,
     DECLINED,
     COMPLETED,
-    CANCELLED
+    CANCELLED;
+
+    // Statuses that give the lawyer's time slot back
+    public static final Set<AppointmentStatus> RELEASED = Set.of(DECLINED, CANCELLED);
+
+    public boolean holdsSlot() {
+        return !RELEASED.contains(this);
+    }
 }
@@ -0,0 +1,88 @@
+package com.wachichaw.Schedule.Entity;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+import com.wachichaw.Lawyer.Entity.LawyerEntity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+
+/**
+ * A recurring break inside a lawyer's working hours, e.g. lunch.
+ */
+@Entity
+@Table(name = "lawyer_breaks")
+public class BreakEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "break_id")
+    private int breakId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "lawyer_id", nullable = false)
+    private LawyerEntity lawyer;
+
+    // Null means every working day
+    @Enumerated(EnumType.STRING)
+    @Column(name = "day_of_week")
+    private DayOfWeek dayOfWeek;
+
+    @Column(name = "start_time", nullable = false)
+    private LocalTime startTime;
+
+    @Column(name = "end_time", nullable = false)
+    private LocalTime endTime;
+
+    public BreakEntity() {}
+
+    public int getBreakId() {
+        return breakId;
+    }
+
+    public void setBreakId(int breakId) {
+        this.breakId = breakId;
+    }
+
+    public LawyerEntity getLawyer() {
+        return lawyer;
+    }
+
+    public void setLawyer(LawyerEntity lawyer) {
+        this.lawyer = lawyer;
+    }
+
+    public DayOfWeek getDayOfWeek() {
+        return dayOfWeek;
+    }
+
+    public void setDayOfWeek(DayOfWeek dayOfWeek) {
+        this.dayOfWeek = dayOfWeek;
+    }
+
+    public LocalTime getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(LocalTime startTime) {
+        this.startTime = startTime;
+    }
+
+    public LocalTime getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(LocalTime endTime) {
+        this.endTime = endTime;
+    }
+}
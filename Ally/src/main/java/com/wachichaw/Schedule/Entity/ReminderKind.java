@@ -0,0 +1,7 @@
+package com.wachichaw.Schedule.Entity;
+
+public enum ReminderKind {
+    ACCEPTED,     // The lawyer accepted the appointment
+    RESCHEDULED,  // The client moved the appointment
+    UPCOMING      // The appointment is coming up (sent reminder-lead-hours before it starts)
+}
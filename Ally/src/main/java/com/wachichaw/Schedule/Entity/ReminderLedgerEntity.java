@@ -0,0 +1,164 @@
+package com.wachichaw.Schedule.Entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * One reminder email: which appointment, to whom, why, and whether it went out.
+ *
+ * The unique key makes a reminder idempotent: enqueueing it again finds the existing row
+ * instead of sending twice. The key includes the appointment's start time, so moving the
+ * appointment gets reminders of its own, and a change sequence: ACCEPTED and RESCHEDULED
+ * notices are numbered per appointment, so every acceptance and every move is announced,
+ * even a move back to an earlier time. UPCOMING reminders keep sequence 0, once per start time.
+ */
+@Entity
+@Table(name = "appointment_reminder_ledger",
+       uniqueConstraints = @UniqueConstraint(name = "uk_reminder_ledger",
+               columnNames = {"schedule_id", "recipient", "kind", "appointment_start", "change_seq"}),
+       indexes = @Index(name = "idx_reminder_ledger_due", columnList = "status, next_attempt_at"))
+public class ReminderLedgerEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "reminder_id")
+    private int reminderId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "schedule_id", nullable = false)
+    private ScheduleEntity schedule;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "recipient", nullable = false)
+    private ReminderRecipient recipient;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "kind", nullable = false)
+    private ReminderKind kind;
+
+    @Column(name = "appointment_start", nullable = false)
+    private LocalDateTime appointmentStart;
+
+    @Column(name = "change_seq", nullable = false)
+    private int changeSeq;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private ReminderStatus status = ReminderStatus.PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    // When the next attempt may start; while a worker holds the reminder, when its claim runs out
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    public ReminderLedgerEntity() {}
+
+    public int getReminderId() {
+        return reminderId;
+    }
+
+    public void setReminderId(int reminderId) {
+        this.reminderId = reminderId;
+    }
+
+    public ScheduleEntity getSchedule() {
+        return schedule;
+    }
+
+    public void setSchedule(ScheduleEntity schedule) {
+        this.schedule = schedule;
+    }
+
+    public ReminderRecipient getRecipient() {
+        return recipient;
+    }
+
+    public void setRecipient(ReminderRecipient recipient) {
+        this.recipient = recipient;
+    }
+
+    public ReminderKind getKind() {
+        return kind;
+    }
+
+    public void setKind(ReminderKind kind) {
+        this.kind = kind;
+    }
+
+    public LocalDateTime getAppointmentStart() {
+        return appointmentStart;
+    }
+
+    public void setAppointmentStart(LocalDateTime appointmentStart) {
+        this.appointmentStart = appointmentStart;
+    }
+
+    public int getChangeSeq() {
+        return changeSeq;
+    }
+
+    public void setChangeSeq(int changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+
+    public ReminderStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(ReminderStatus status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public LocalDateTime getSentAt() {
+        return sentAt;
+    }
+
+    public void setSentAt(LocalDateTime sentAt) {
+        this.sentAt = sentAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+}
@@ -0,0 +1,6 @@
+package com.wachichaw.Schedule.Entity;
+
+public enum ReminderRecipient {
+    CLIENT,
+    LAWYER
+}
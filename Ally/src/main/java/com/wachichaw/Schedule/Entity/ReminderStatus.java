@@ -0,0 +1,8 @@
+package com.wachichaw.Schedule.Entity;
+
+public enum ReminderStatus {
+    PENDING,  // Waiting to be sent, or to be retried
+    SENT,
+    SKIPPED,  // The appointment was cancelled or moved before the reminder went out
+    FAILED    // Gave up after the maximum number of attempts
+}
@@ -13,12 +13,17 @@ import jakarta.persistence.EnumType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 
 @Entity
-@Table(name = "Schedule")
+@Table(name = "Schedule", indexes = {
+    @Index(name = "idx_schedule_lawyer_time", columnList = "lawyer_id, booking_start_time, booking_end_time"),
+    @Index(name = "idx_schedule_status_end", columnList = "status, booking_end_time"),
+    @Index(name = "idx_schedule_status_start", columnList = "status, booking_start_time")
+})
 public class ScheduleEntity {
 
     @Id
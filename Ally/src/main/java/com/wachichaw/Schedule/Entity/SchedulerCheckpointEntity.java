@@ -0,0 +1,40 @@
+package com.wachichaw.Schedule.Entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * How far a scheduler has processed its deadlines, so work that fell due while the
+ * application was down can be replayed on restart.
+ */
+@Entity
+@Table(name = "scheduler_checkpoint")
+public class SchedulerCheckpointEntity {
+
+    @Id
+    @Column(name = "name", length = 64)
+    private String name;
+
+    @Column(name = "processed_until", nullable = false)
+    private LocalDateTime processedUntil;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public LocalDateTime getProcessedUntil() {
+        return processedUntil;
+    }
+
+    public void setProcessedUntil(LocalDateTime processedUntil) {
+        this.processedUntil = processedUntil;
+    }
+}
@@ -0,0 +1,84 @@
+package com.wachichaw.Schedule.Entity;
+
+import java.time.LocalDate;
+
+import com.wachichaw.Lawyer.Entity.LawyerEntity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+
+/**
+ * Days a lawyer takes no consultations at all: holidays, leave.
+ */
+@Entity
+@Table(name = "lawyer_time_off")
+public class TimeOffEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "time_off_id")
+    private int timeOffId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "lawyer_id", nullable = false)
+    private LawyerEntity lawyer;
+
+    @Column(name = "start_date", nullable = false)
+    private LocalDate startDate;
+
+    // Inclusive
+    @Column(name = "end_date", nullable = false)
+    private LocalDate endDate;
+
+    @Column(name = "reason")
+    private String reason;
+
+    public TimeOffEntity() {}
+
+    public int getTimeOffId() {
+        return timeOffId;
+    }
+
+    public void setTimeOffId(int timeOffId) {
+        this.timeOffId = timeOffId;
+    }
+
+    public LawyerEntity getLawyer() {
+        return lawyer;
+    }
+
+    public void setLawyer(LawyerEntity lawyer) {
+        this.lawyer = lawyer;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+}
@@ -0,0 +1,101 @@
+package com.wachichaw.Schedule.Entity;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+import com.wachichaw.Lawyer.Entity.LawyerEntity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * The hours a lawyer takes consultations on one day of the week, and the slot length that day.
+ */
+@Entity
+@Table(name = "lawyer_working_hours", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_working_hours_lawyer_day", columnNames = {"lawyer_id", "day_of_week"})
+})
+public class WorkingHoursEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "working_hours_id")
+    private int workingHoursId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "lawyer_id", nullable = false)
+    private LawyerEntity lawyer;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "day_of_week", nullable = false)
+    private DayOfWeek dayOfWeek;
+
+    @Column(name = "start_time", nullable = false)
+    private LocalTime startTime;
+
+    @Column(name = "end_time", nullable = false)
+    private LocalTime endTime;
+
+    @Column(name = "slot_minutes", nullable = false)
+    private int slotMinutes;
+
+    public WorkingHoursEntity() {}
+
+    public int getWorkingHoursId() {
+        return workingHoursId;
+    }
+
+    public void setWorkingHoursId(int workingHoursId) {
+        this.workingHoursId = workingHoursId;
+    }
+
+    public LawyerEntity getLawyer() {
+        return lawyer;
+    }
+
+    public void setLawyer(LawyerEntity lawyer) {
+        this.lawyer = lawyer;
+    }
+
+    public DayOfWeek getDayOfWeek() {
+        return dayOfWeek;
+    }
+
+    public void setDayOfWeek(DayOfWeek dayOfWeek) {
+        this.dayOfWeek = dayOfWeek;
+    }
+
+    public LocalTime getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(LocalTime startTime) {
+        this.startTime = startTime;
+    }
+
+    public LocalTime getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(LocalTime endTime) {
+        this.endTime = endTime;
+    }
+
+    public int getSlotMinutes() {
+        return slotMinutes;
+    }
+
+    public void setSlotMinutes(int slotMinutes) {
+        this.slotMinutes = slotMinutes;
+    }
+}
@@ -0,0 +1,23 @@
+package com.wachichaw.Schedule.Repo;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.wachichaw.Schedule.Entity.BreakEntity;
+
+@Repository
+public interface BreakRepository extends JpaRepository<BreakEntity, Integer> {
+
+    // Recurring breaks of a lawyer
+    List<BreakEntity> findByLawyerUserId(int lawyerId);
+
+    // Remove a lawyer's breaks before saving a new set
+    @Modifying
+    @Query("DELETE FROM BreakEntity b WHERE b.lawyer.userId = :lawyerId")
+    void deleteByLawyerId(@Param("lawyerId") int lawyerId);
+}
@@ -0,0 +1,95 @@
+package com.wachichaw.Schedule.Repo;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.wachichaw.Schedule.Entity.ReminderKind;
+import com.wachichaw.Schedule.Entity.ReminderLedgerEntity;
+import com.wachichaw.Schedule.Entity.ReminderRecipient;
+import com.wachichaw.Schedule.Entity.ReminderStatus;
+
+@Repository
+public interface ReminderLedgerRepository extends JpaRepository<ReminderLedgerEntity, Integer> {
+
+    // Highest change sequence enqueued for this appointment, recipient and kind; 0 if none
+    @Query("SELECT COALESCE(MAX(r.changeSeq), 0) FROM ReminderLedgerEntity r " +
+           "WHERE r.schedule.scheduleId = :scheduleId AND r.recipient = :recipient AND r.kind = :kind")
+    int findLastChangeSeq(@Param("scheduleId") int scheduleId, @Param("recipient") ReminderRecipient recipient,
+                          @Param("kind") ReminderKind kind);
+
+    // Whether a later change of the same kind was enqueued, which makes this one stale
+    boolean existsByScheduleScheduleIdAndRecipientAndKindAndChangeSeqGreaterThan(
+            int scheduleId, ReminderRecipient recipient, ReminderKind kind, int changeSeq);
+
+    // Add a pending reminder unless one with the same key (uk_reminder_ledger) is there. Returns 1 if
+    // added, 0 if not. IGNORE turns the duplicate into a no-op instead of an error, so enqueueing
+    // twice cannot roll back the booking transaction it runs in
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO appointment_reminder_ledger " +
+                   "(schedule_id, recipient, kind, appointment_start, change_seq, status, attempts, next_attempt_at) " +
+                   "VALUES (:scheduleId, :recipient, :kind, :appointmentStart, :changeSeq, 'PENDING', 0, :nextAttemptAt)",
+           nativeQuery = true)
+    int insertIfAbsent(
+            @Param("scheduleId") int scheduleId,
+            @Param("recipient") String recipient,
+            @Param("kind") String kind,
+            @Param("appointmentStart") LocalDateTime appointmentStart,
+            @Param("changeSeq") int changeSeq,
+            @Param("nextAttemptAt") LocalDateTime nextAttemptAt
+    );
+
+    // Id of the reminder with this key
+    @Query("SELECT r.reminderId FROM ReminderLedgerEntity r WHERE r.schedule.scheduleId = :scheduleId " +
+           "AND r.recipient = :recipient AND r.kind = :kind AND r.appointmentStart = :appointmentStart " +
+           "AND r.changeSeq = :changeSeq")
+    Optional<Integer> findReminderId(
+            @Param("scheduleId") int scheduleId,
+            @Param("recipient") ReminderRecipient recipient,
+            @Param("kind") ReminderKind kind,
+            @Param("appointmentStart") LocalDateTime appointmentStart,
+            @Param("changeSeq") int changeSeq
+    );
+
+    // Ids of pending reminders whose next attempt is due, oldest first (uses idx_reminder_ledger_due)
+    @Query("SELECT r.reminderId FROM ReminderLedgerEntity r " +
+           "WHERE r.status = com.wachichaw.Schedule.Entity.ReminderStatus.PENDING AND r.nextAttemptAt <= :now " +
+           "ORDER BY r.nextAttemptAt")
+    List<Integer> findDueIds(@Param("now") LocalDateTime now, Pageable page);
+
+    // A reminder with its appointment and both parties, for sending
+    @Query("SELECT r FROM ReminderLedgerEntity r JOIN FETCH r.schedule s JOIN FETCH s.client JOIN FETCH s.lawyer " +
+           "WHERE r.reminderId = :reminderId")
+    Optional<ReminderLedgerEntity> findForSending(@Param("reminderId") int reminderId);
+
+    // Claim a due reminder until leaseUntil. Returns 0 if it is not pending, not due or already claimed,
+    // so only one worker, on any instance, sends it
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReminderLedgerEntity r SET r.nextAttemptAt = :leaseUntil " +
+           "WHERE r.reminderId = :reminderId AND r.status = com.wachichaw.Schedule.Entity.ReminderStatus.PENDING " +
+           "AND r.nextAttemptAt <= :now")
+    int claim(@Param("reminderId") int reminderId, @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    // Record an attempt: the outcome, when it was sent (if it was) and when to try again (if pending)
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReminderLedgerEntity r SET r.status = :status, r.attempts = r.attempts + 1, " +
+           "r.sentAt = :sentAt, r.nextAttemptAt = :nextAttemptAt, r.lastError = :error WHERE r.reminderId = :reminderId")
+    int recordAttempt(
+            @Param("reminderId") int reminderId,
+            @Param("status") ReminderStatus status,
+            @Param("sentAt") LocalDateTime sentAt,
+            @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+            @Param("error") String error
+    );
+}
@@ -3,12 +3,18 @@ package com.wachichaw.Schedule.Repo;
 import com.wachichaw.Schedule.Entity.ScheduleEntity;
 import com.wachichaw.Lawyer.Entity.LawyerEntity;
 import com.wachichaw.Client.Entity.ClientEntity;
+import com.wachichaw.Schedule.DTO.BookedInterval;
+import com.wachichaw.Schedule.DTO.LawyerBookedInterval;
+import com.wachichaw.Schedule.DTO.ScheduleSnapshot;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 import com.wachichaw.Schedule.Entity.AppointmentStatus;
@@ -46,6 +52,59 @@ public interface ScheduleRepository extends JpaRepository<ScheduleEntity, Intege
             @Param("endTime") LocalDateTime endTime
     );
 
+    // Check whether a slot overlaps an appointment that still holds it. The lower bound on the
+    // start time keeps the scan on idx_schedule_lawyer_time within the window instead of the lawyer's history
+    @Query("SELECT COUNT(s) > 0 FROM ScheduleEntity s WHERE s.lawyer.userId = :lawyerId " +
+           "AND s.bookingStartTime > :earliestStart AND s.bookingStartTime < :endTime " +
+           "AND s.bookingEndTime > :startTime AND s.status NOT IN :released " +
+           "AND s.scheduleId <> :excludeScheduleId")
+    boolean existsBlockingConflict(
+            @Param("lawyerId") int lawyerId,
+            @Param("startTime") LocalDateTime startTime,
+            @Param("endTime") LocalDateTime endTime,
+            @Param("earliestStart") LocalDateTime earliestStart,
+            @Param("excludeScheduleId") int excludeScheduleId,
+            @Param("released") Collection<AppointmentStatus> released
+    );
+
+    // Intervals a lawyer's appointments hold from a point in time on, without loading the entities
+    @Query("SELECT new com.wachichaw.Schedule.DTO.BookedInterval(s.scheduleId, s.bookingStartTime, s.bookingEndTime) " +
+           "FROM ScheduleEntity s WHERE s.lawyer.userId = :lawyerId " +
+           "AND s.bookingStartTime > :earliestStart AND s.bookingEndTime > :from " +
+           "AND s.status NOT IN :released ORDER BY s.bookingStartTime")
+    List<BookedInterval> findBlockingIntervals(
+            @Param("lawyerId") int lawyerId,
+            @Param("from") LocalDateTime from,
+            @Param("earliestStart") LocalDateTime earliestStart,
+            @Param("released") Collection<AppointmentStatus> released
+    );
+
+    // Intervals of a lawyer's appointments overlapping [from, to), for availability over a date range
+    @Query("SELECT new com.wachichaw.Schedule.DTO.BookedInterval(s.scheduleId, s.bookingStartTime, s.bookingEndTime) " +
+           "FROM ScheduleEntity s WHERE s.lawyer.userId = :lawyerId " +
+           "AND s.bookingStartTime > :earliestStart AND s.bookingStartTime < :to AND s.bookingEndTime > :from " +
+           "AND s.status NOT IN :released")
+    List<BookedInterval> findBlockingIntervalsBetween(
+            @Param("lawyerId") int lawyerId,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("earliestStart") LocalDateTime earliestStart,
+            @Param("released") Collection<AppointmentStatus> released
+    );
+
+    // Intervals of several lawyers' appointments overlapping [from, to), in one query
+    @Query("SELECT new com.wachichaw.Schedule.DTO.LawyerBookedInterval(s.lawyer.userId, s.scheduleId, s.bookingStartTime, s.bookingEndTime) " +
+           "FROM ScheduleEntity s WHERE s.lawyer.userId IN :lawyerIds " +
+           "AND s.bookingStartTime > :earliestStart AND s.bookingStartTime < :to AND s.bookingEndTime > :from " +
+           "AND s.status NOT IN :released")
+    List<LawyerBookedInterval> findBlockingIntervalsForLawyers(
+            @Param("lawyerIds") Collection<Integer> lawyerIds,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("earliestStart") LocalDateTime earliestStart,
+            @Param("released") Collection<AppointmentStatus> released
+    );
+
     // Find schedules by lawyer within a date range (alternative with query)
     @Query("SELECT s FROM ScheduleEntity s WHERE s.lawyer.userId = :lawyerId " +
            "AND s.bookingStartTime >= :startTime AND s.bookingEndTime <= :endTime")
@@ -68,13 +127,75 @@ public interface ScheduleRepository extends JpaRepository<ScheduleEntity, Intege
     // Find all schedules within a given time range
     List<ScheduleEntity> findByBookingStartTimeBetween(LocalDateTime startTime, LocalDateTime endTime);
 
-    // Find accepted appointments that have ended and need to be marked as completed
-    @Query("SELECT s FROM ScheduleEntity s WHERE s.status = :status AND s.bookingEndTime < :now")
-    List<ScheduleEntity> findCompletedAppointments(@Param("now") LocalDateTime now, @Param("status") AppointmentStatus status);
+    // One page of schedules in a status that ended before a time, without loading the entities (uses idx_schedule_status_end)
+    @Query("SELECT new com.wachichaw.Schedule.DTO.ScheduleSnapshot(s.scheduleId, s.lawyer.userId, s.client.userId, " +
+           "s.bookingStartTime, s.bookingEndTime, s.status) " +
+           "FROM ScheduleEntity s WHERE s.status = :status AND s.bookingEndTime < :before ORDER BY s.bookingEndTime")
+    List<ScheduleSnapshot> findSnapshotsEndedBefore(
+            @Param("status") AppointmentStatus status,
+            @Param("before") LocalDateTime before,
+            Pageable page
+    );
 
-    // Find pending appointments that have passed their start time and should be cancelled
-    @Query("SELECT s FROM ScheduleEntity s WHERE s.status = :status AND s.bookingStartTime < :now")
-    List<ScheduleEntity> findExpiredPendingAppointments(@Param("now") LocalDateTime now, @Param("status") AppointmentStatus status);
+    // One page of schedules in a status that started before a time (uses idx_schedule_status_start)
+    @Query("SELECT new com.wachichaw.Schedule.DTO.ScheduleSnapshot(s.scheduleId, s.lawyer.userId, s.client.userId, " +
+           "s.bookingStartTime, s.bookingEndTime, s.status) " +
+           "FROM ScheduleEntity s WHERE s.status = :status AND s.bookingStartTime < :before ORDER BY s.bookingStartTime")
+    List<ScheduleSnapshot> findSnapshotsStartedBefore(
+            @Param("status") AppointmentStatus status,
+            @Param("before") LocalDateTime before,
+            Pageable page
+    );
+
+    // Schedules in a status ending in (after, until], for loading upcoming deadlines
+    @Query("SELECT new com.wachichaw.Schedule.DTO.ScheduleSnapshot(s.scheduleId, s.lawyer.userId, s.client.userId, " +
+           "s.bookingStartTime, s.bookingEndTime, s.status) " +
+           "FROM ScheduleEntity s WHERE s.status = :status AND s.bookingEndTime > :after AND s.bookingEndTime <= :until")
+    List<ScheduleSnapshot> findSnapshotsEndingBetween(
+            @Param("status") AppointmentStatus status,
+            @Param("after") LocalDateTime after,
+            @Param("until") LocalDateTime until
+    );
+
+    // Schedules in a status starting in (after, until], for loading upcoming deadlines
+    @Query("SELECT new com.wachichaw.Schedule.DTO.ScheduleSnapshot(s.scheduleId, s.lawyer.userId, s.client.userId, " +
+           "s.bookingStartTime, s.bookingEndTime, s.status) " +
+           "FROM ScheduleEntity s WHERE s.status = :status AND s.bookingStartTime > :after AND s.bookingStartTime <= :until")
+    List<ScheduleSnapshot> findSnapshotsStartingBetween(
+            @Param("status") AppointmentStatus status,
+            @Param("after") LocalDateTime after,
+            @Param("until") LocalDateTime until
+    );
+
+    // Move the given schedules that have ended from one status to another in one statement. Rows whose
+    // status or time changed in the meantime are left alone, so the count can be lower than the number of ids
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ScheduleEntity s SET s.status = :to " +
+           "WHERE s.scheduleId IN :ids AND s.status = :from AND s.bookingEndTime < :before")
+    int updateStatusIfEndedBefore(
+            @Param("ids") Collection<Integer> ids,
+            @Param("from") AppointmentStatus from,
+            @Param("to") AppointmentStatus to,
+            @Param("before") LocalDateTime before
+    );
+
+    // Same for schedules that have started
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ScheduleEntity s SET s.status = :to " +
+           "WHERE s.scheduleId IN :ids AND s.status = :from AND s.bookingStartTime < :before")
+    int updateStatusIfStartedBefore(
+            @Param("ids") Collection<Integer> ids,
+            @Param("from") AppointmentStatus from,
+            @Param("to") AppointmentStatus to,
+            @Param("before") LocalDateTime before
+    );
+
+    // Which of the given schedules are in a status, to tell which rows an updateStatus changed
+    @Query("SELECT s.scheduleId FROM ScheduleEntity s WHERE s.scheduleId IN :ids AND s.status = :status")
+    List<Integer> findIdsWithStatus(
+            @Param("ids") Collection<Integer> ids,
+            @Param("status") AppointmentStatus status
+    );
 
     // Find past schedules for a lawyer (booking start time in the past), ordered by most recent first
     List<ScheduleEntity> findByLawyerAndBookingStartTimeBeforeOrderByBookingStartTimeDesc(LawyerEntity lawyer, LocalDateTime before);
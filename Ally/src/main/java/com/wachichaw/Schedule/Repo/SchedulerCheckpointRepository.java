@@ -0,0 +1,24 @@
+package com.wachichaw.Schedule.Repo;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.wachichaw.Schedule.Entity.SchedulerCheckpointEntity;
+
+@Repository
+public interface SchedulerCheckpointRepository extends JpaRepository<SchedulerCheckpointEntity, String> {
+
+    // Moves the checkpoint forward, never back: instances save their own progress into one row
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO scheduler_checkpoint (name, processed_until) VALUES (:name, :processedUntil) " +
+                   "ON DUPLICATE KEY UPDATE processed_until = GREATEST(processed_until, VALUES(processed_until))",
+           nativeQuery = true)
+    int advance(@Param("name") String name, @Param("processedUntil") LocalDateTime processedUntil);
+}
@@ -0,0 +1,16 @@
+package com.wachichaw.Schedule.Repo;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.wachichaw.Schedule.Entity.TimeOffEntity;
+
+@Repository
+public interface TimeOffRepository extends JpaRepository<TimeOffEntity, Integer> {
+
+    // Time off of a lawyer that has not ended yet, soonest first
+    List<TimeOffEntity> findByLawyerUserIdAndEndDateGreaterThanEqualOrderByStartDate(int lawyerId, LocalDate date);
+}
@@ -0,0 +1,23 @@
+package com.wachichaw.Schedule.Repo;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.wachichaw.Schedule.Entity.WorkingHoursEntity;
+
+@Repository
+public interface WorkingHoursRepository extends JpaRepository<WorkingHoursEntity, Integer> {
+
+    // Weekly hours of a lawyer
+    List<WorkingHoursEntity> findByLawyerUserId(int lawyerId);
+
+    // Remove a lawyer's weekly hours before saving a new set
+    @Modifying
+    @Query("DELETE FROM WorkingHoursEntity w WHERE w.lawyer.userId = :lawyerId")
+    void deleteByLawyerId(@Param("lawyerId") int lawyerId);
+}
@@ -0,0 +1,293 @@
+package com.wachichaw.Schedule.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.wachichaw.Schedule.DTO.ScheduleSnapshot;
+import com.wachichaw.Schedule.Entity.AppointmentStatus;
+import com.wachichaw.Schedule.Entity.ReminderKind;
+import com.wachichaw.Schedule.Entity.ScheduleEntity;
+import com.wachichaw.Schedule.Entity.SchedulerCheckpointEntity;
+import com.wachichaw.Schedule.Repo.ScheduleRepository;
+import com.wachichaw.Schedule.Repo.SchedulerCheckpointRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Fires appointment deadlines when they pass instead of polling for them.
+ *
+ * - A pending appointment expires (is cancelled) at its start time.
+ * - An accepted appointment is completed at its end time, and its reminders are queued
+ *   reminder-lead-hours before it starts.
+ *
+ * Deadlines sit in a HierarchicalTimerWheel advanced every tick-ms, which costs nothing
+ * while no deadline is due. Only deadlines within horizon-hours are held: the wheel is
+ * loaded from the database when the application is ready and topped up every
+ * refill-interval-ms, and ScheduleChangedEvent replaces a schedule's deadlines when it
+ * changes. ReminderTask's sweep catches anything missed, e.g. changes on other instances.
+ *
+ * How far the wheel has fired is saved as a checkpoint every checkpoint-interval-ms. On
+ * restart, reminders that fell due after the checkpoint are replayed; the ledger ignores
+ * any that were queued already.
+ */
+@Component
+public class AppointmentLifecycleScheduler {
+
+    enum Kind { EXPIRE, COMPLETE, REMIND }
+
+    record Deadline(Kind kind, ScheduleSnapshot schedule) {
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentLifecycleScheduler.class);
+
+    private static final int WHEEL_LEVELS = 4;
+    private static final String CHECKPOINT = "appointment-lifecycle";
+
+    @Value("${schedule.lifecycle.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${schedule.lifecycle.horizon-hours:48}")
+    private long horizonHours;
+
+    @Value("${schedule.lifecycle.reminder-lead-hours:24}")
+    private long reminderLeadHours;
+
+    @Value("${schedule.lifecycle.checkpoint-interval-ms:60000}")
+    private long checkpointIntervalMs;
+
+    private final ScheduleRepository scheduleRepository;
+    private final SchedulerCheckpointRepository checkpointRepository;
+    private final ReminderTask reminderTask;
+    private final ReminderService reminderService;
+    private final MeterRegistry meterRegistry;
+    private final Map<Integer, List<HierarchicalTimerWheel<Deadline>.Timeout>> timeouts = new ConcurrentHashMap<>();
+    private HierarchicalTimerWheel<Deadline> wheel;
+    // Deadlines up to here are in the wheel; null until the first load
+    private volatile LocalDateTime horizonEnd;
+    // Only touched by tick()
+    private long lastCheckpointMillis;
+
+    public AppointmentLifecycleScheduler(ScheduleRepository scheduleRepository,
+                                         SchedulerCheckpointRepository checkpointRepository, ReminderTask reminderTask,
+                                         ReminderService reminderService, MeterRegistry meterRegistry) {
+        this.scheduleRepository = scheduleRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.reminderTask = reminderTask;
+        this.reminderService = reminderService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        wheel = new HierarchicalTimerWheel<>(tickMs, WHEEL_LEVELS, System.currentTimeMillis());
+        Gauge.builder("ally.schedule.lifecycle.deadlines", wheel, HierarchicalTimerWheel::size)
+                .description("Appointment deadlines waiting in the timer wheel")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Settles what is overdue, then loads the deadlines within the horizon. Reminders that
+     * fell due since the last checkpoint are loaded too and fire on the first tick.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        LocalDateTime now = LocalDateTime.now();
+        reminderTask.updateAppointmentStatuses();
+        horizonEnd = now;
+        load(now, now.plusHours(horizonHours), remindFrom(now));
+    }
+
+    @Scheduled(fixedDelayString = "${schedule.lifecycle.refill-interval-ms:3600000}",
+               initialDelayString = "${schedule.lifecycle.refill-interval-ms:3600000}")
+    public void refill() {
+        LocalDateTime from = horizonEnd;
+        if (from != null) {
+            load(from, LocalDateTime.now().plusHours(horizonHours), from.plusHours(reminderLeadHours));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${schedule.lifecycle.tick-ms:1000}")
+    public void tick() {
+        long nowMillis = System.currentTimeMillis();
+        List<Deadline> fired = wheel.advance(nowMillis);
+        if (fired.isEmpty()) {
+            checkpoint(nowMillis);
+            return;
+        }
+        List<ScheduleSnapshot> toExpire = new ArrayList<>();
+        List<ScheduleSnapshot> toComplete = new ArrayList<>();
+        List<ScheduleSnapshot> toRemind = new ArrayList<>();
+        for (Deadline deadline : fired) {
+            forget(deadline);
+            switch (deadline.kind()) {
+                case EXPIRE -> toExpire.add(deadline.schedule());
+                case COMPLETE -> toComplete.add(deadline.schedule());
+                case REMIND -> toRemind.add(deadline.schedule());
+            }
+            meterRegistry.counter("ally.schedule.lifecycle.fired", "kind", deadline.kind().name()).increment();
+        }
+
+        // The updates re-check status and time, so a deadline that went stale in the meantime changes nothing
+        LocalDateTime now = LocalDateTime.now();
+        if (!toExpire.isEmpty()) {
+            reminderTask.expire(toExpire, now);
+        }
+        if (!toComplete.isEmpty()) {
+            reminderTask.complete(toComplete, now);
+        }
+        if (!toRemind.isEmpty()) {
+            sendReminders(toRemind);
+        }
+        checkpoint(nowMillis);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onScheduleChanged(ScheduleChangedEvent event) {
+        ScheduleSnapshot schedule = new ScheduleSnapshot(event.scheduleId(), event.lawyerId(), event.clientId(),
+                event.start(), event.end(), event.status());
+        LocalDateTime until = horizonEnd;
+        timeouts.compute(event.scheduleId(), (id, previous) -> {
+            if (previous != null) {
+                previous.forEach(HierarchicalTimerWheel.Timeout::cancel);
+            }
+            if (until == null) {
+                return null;
+            }
+            List<HierarchicalTimerWheel<Deadline>.Timeout> scheduled = new ArrayList<>(2);
+            for (Deadline deadline : deadlinesOf(schedule)) {
+                LocalDateTime at = fireTime(deadline);
+                if (!at.isAfter(until)) {
+                    scheduled.add(wheel.schedule(toMillis(at), deadline));
+                }
+            }
+            return scheduled.isEmpty() ? null : scheduled;
+        });
+    }
+
+    /**
+     * Start of the appointments whose reminders rebuild() loads. Without a checkpoint (first
+     * start) only reminders still ahead; otherwise also those due since the checkpoint, for
+     * appointments that have not started yet.
+     */
+    private LocalDateTime remindFrom(LocalDateTime now) {
+        Optional<LocalDateTime> processedUntil = checkpointRepository.findById(CHECKPOINT)
+                .map(SchedulerCheckpointEntity::getProcessedUntil);
+        if (processedUntil.isEmpty()) {
+            return now.plusHours(reminderLeadHours);
+        }
+        LocalDateTime from = processedUntil.get().plusHours(reminderLeadHours);
+        return from.isAfter(now) ? from : now;
+    }
+
+    /**
+     * Saves how far the wheel has fired, at most every checkpoint-interval-ms. Called after
+     * the fired reminders are queued, so everything due up to the checkpoint is in the ledger.
+     */
+    private void checkpoint(long nowMillis) {
+        if (nowMillis - lastCheckpointMillis < checkpointIntervalMs) {
+            return;
+        }
+        try {
+            checkpointRepository.advance(CHECKPOINT, LocalDateTime.ofInstant(Instant.ofEpochMilli(nowMillis),
+                    ZoneId.systemDefault()));
+            lastCheckpointMillis = nowMillis;
+        } catch (RuntimeException e) {
+            // The next tick tries again; until then a restart replays a little more
+            logger.warn("Could not save the lifecycle checkpoint: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Adds the deadlines in (from, until] and moves the horizon to until. Reminders are
+     * loaded for appointments starting after remindFrom.
+     */
+    private void load(LocalDateTime from, LocalDateTime until, LocalDateTime remindFrom) {
+        Duration lead = Duration.ofHours(reminderLeadHours);
+        List<Deadline> deadlines = new ArrayList<>();
+        for (ScheduleSnapshot schedule : scheduleRepository.findSnapshotsStartingBetween(AppointmentStatus.PENDING, from, until)) {
+            deadlines.add(new Deadline(Kind.EXPIRE, schedule));
+        }
+        for (ScheduleSnapshot schedule : scheduleRepository.findSnapshotsEndingBetween(AppointmentStatus.ACCEPTED, from, until)) {
+            deadlines.add(new Deadline(Kind.COMPLETE, schedule));
+        }
+        for (ScheduleSnapshot schedule : scheduleRepository.findSnapshotsStartingBetween(AppointmentStatus.ACCEPTED,
+                remindFrom, until.plus(lead))) {
+            deadlines.add(new Deadline(Kind.REMIND, schedule));
+        }
+        horizonEnd = until;
+        for (Deadline deadline : deadlines) {
+            timeouts.compute(deadline.schedule().scheduleId(), (id, scheduled) -> {
+                // A deadline already there came from an event, which is newer than this read
+                if (scheduled != null && scheduled.stream().anyMatch(timeout -> timeout.getTask().kind() == deadline.kind())) {
+                    return scheduled;
+                }
+                List<HierarchicalTimerWheel<Deadline>.Timeout> updated = scheduled == null ? new ArrayList<>(2) : scheduled;
+                updated.add(wheel.schedule(toMillis(fireTime(deadline)), deadline));
+                return updated;
+            });
+        }
+    }
+
+    private void sendReminders(List<ScheduleSnapshot> schedules) {
+        for (ScheduleEntity schedule : scheduleRepository.findAllById(schedules.stream().map(ScheduleSnapshot::scheduleId).toList())) {
+            // Only if still accepted and not moved since the deadline was set
+            boolean current = schedule.getStatus() == AppointmentStatus.ACCEPTED && schedules.stream().anyMatch(snapshot ->
+                    snapshot.scheduleId() == schedule.getScheduleId() && snapshot.start().equals(schedule.getBookingStartTime()));
+            if (current) {
+                reminderService.enqueueAppointmentReminders(schedule, ReminderKind.UPCOMING);
+            }
+        }
+    }
+
+    private void forget(Deadline deadline) {
+        timeouts.computeIfPresent(deadline.schedule().scheduleId(), (id, scheduled) -> {
+            scheduled.removeIf(timeout -> timeout.getTask() == deadline);
+            return scheduled.isEmpty() ? null : scheduled;
+        });
+    }
+
+    private List<Deadline> deadlinesOf(ScheduleSnapshot schedule) {
+        if (schedule.status() == AppointmentStatus.PENDING) {
+            return List.of(new Deadline(Kind.EXPIRE, schedule));
+        }
+        if (schedule.status() == AppointmentStatus.ACCEPTED) {
+            Deadline complete = new Deadline(Kind.COMPLETE, schedule);
+            Deadline remind = new Deadline(Kind.REMIND, schedule);
+            // Accepting already sends a reminder; only schedule another if the lead time is still ahead
+            return fireTime(remind).isAfter(LocalDateTime.now()) ? List.of(complete, remind) : List.of(complete);
+        }
+        return List.of();
+    }
+
+    private LocalDateTime fireTime(Deadline deadline) {
+        return switch (deadline.kind()) {
+            case EXPIRE -> deadline.schedule().start();
+            case COMPLETE -> deadline.schedule().end();
+            case REMIND -> deadline.schedule().start().minusHours(reminderLeadHours);
+        };
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        // The queries compare with LocalDateTime.now(), so the deadlines use the same default zone
+        return TimeUnit.SECONDS.toMillis(time.atZone(ZoneId.systemDefault()).toEpochSecond());
+    }
+}
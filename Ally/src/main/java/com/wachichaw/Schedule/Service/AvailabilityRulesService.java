@@ -0,0 +1,372 @@
+package com.wachichaw.Schedule.Service;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.wachichaw.Lawyer.Entity.LawyerEntity;
+import com.wachichaw.Lawyer.Repo.LawyerRepo;
+import com.wachichaw.Schedule.DTO.AvailabilityRulesDTO;
+import com.wachichaw.Schedule.DTO.BreakDTO;
+import com.wachichaw.Schedule.DTO.TimeOffDTO;
+import com.wachichaw.Schedule.DTO.WorkingHoursDTO;
+import com.wachichaw.Schedule.Entity.BreakEntity;
+import com.wachichaw.Schedule.Entity.TimeOffEntity;
+import com.wachichaw.Schedule.Entity.WorkingHoursEntity;
+import com.wachichaw.Schedule.Repo.BreakRepository;
+import com.wachichaw.Schedule.Repo.TimeOffRepository;
+import com.wachichaw.Schedule.Repo.WorkingHoursRepository;
+
+/**
+ * Lawyers' weekly working hours, recurring breaks and time off.
+ *
+ * A lawyer's rules are compiled once into a SlotGrid and a break mask per day of the week
+ * plus a sorted map of upcoming time off, then cached. Availability and booking checks
+ * against them are array lookups and bit operations. Lawyers without weekly hours get the
+ * standard 9 AM - 6 PM, Monday to Friday.
+ *
+ * Compiled rules are dropped when the lawyer changes them here, and reloaded after
+ * cache-ttl-seconds to pick up changes made through other instances. Rules compiled
+ * while a change was being made are served but not cached.
+ */
+@Service
+public class AvailabilityRulesService {
+
+    private static final Set<DayOfWeek> STANDARD_DAYS =
+            EnumSet.of(DayOfWeek.MONDAY, DayOfWeek.TUESDAY, DayOfWeek.WEDNESDAY, DayOfWeek.THURSDAY, DayOfWeek.FRIDAY);
+
+    private static final int MIN_SLOT_MINUTES = 5;
+
+    /**
+     * One lawyer's rules, ready to evaluate.
+     */
+    public static final class CompiledRules {
+        // Indexed by DayOfWeek.ordinal()
+        private final SlotGrid[] grids;
+        private final long[] breakMasks;
+        // Start of each upcoming time off -> its last day, non-overlapping
+        private final TreeMap<LocalDate, LocalDate> timeOff;
+        private final long compiledAtMillis;
+
+        CompiledRules(SlotGrid[] grids, long[] breakMasks, TreeMap<LocalDate, LocalDate> timeOff, long compiledAtMillis) {
+            this.grids = grids;
+            this.breakMasks = breakMasks;
+            this.timeOff = timeOff;
+            this.compiledAtMillis = compiledAtMillis;
+        }
+
+        /** The slots of this date; closed on days off. */
+        public SlotGrid grid(LocalDate date) {
+            Map.Entry<LocalDate, LocalDate> off = timeOff.floorEntry(date);
+            if (off != null && !date.isAfter(off.getValue())) {
+                return SlotGrid.CLOSED;
+            }
+            return grids[date.getDayOfWeek().ordinal()];
+        }
+
+        /** Slots of this date's grid that fall in a break. */
+        public long breaks(LocalDate date) {
+            return breakMasks[date.getDayOfWeek().ordinal()];
+        }
+
+        /** Slots that can be booked on this date, ignoring appointments. */
+        public long open(LocalDate date) {
+            return grid(date).allSlots() & ~breaks(date);
+        }
+    }
+
+    @Value("${schedule.rules.cache-size:10000}")
+    private int cacheSize;
+
+    @Value("${schedule.rules.cache-ttl-seconds:300}")
+    private long cacheTtlSeconds;
+
+    private final WorkingHoursRepository workingHoursRepository;
+    private final BreakRepository breakRepository;
+    private final TimeOffRepository timeOffRepository;
+    private final LawyerRepo lawyerRepo;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Integer, CompiledRules> compiled = new ConcurrentHashMap<>();
+    // Counts invalidations; rules compiled across one may have read the rows before it
+    private final AtomicLong changes = new AtomicLong();
+
+    public AvailabilityRulesService(WorkingHoursRepository workingHoursRepository, BreakRepository breakRepository,
+                                    TimeOffRepository timeOffRepository, LawyerRepo lawyerRepo,
+                                    PlatformTransactionManager transactionManager) {
+        this.workingHoursRepository = workingHoursRepository;
+        this.breakRepository = breakRepository;
+        this.timeOffRepository = timeOffRepository;
+        this.lawyerRepo = lawyerRepo;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * The lawyer's compiled rules, from the cache when fresh.
+     */
+    public CompiledRules rulesFor(int lawyerId) {
+        long now = System.currentTimeMillis();
+        CompiledRules rules = compiled.get(lawyerId);
+        if (rules != null && !isExpired(rules, now)) {
+            return rules;
+        }
+        long changesBefore = changes.get();
+        CompiledRules fresh = compile(lawyerId, now);
+        // Same key as invalidate(), so the two are serialized: either the change is seen here
+        // or it removes what was put
+        compiled.compute(lawyerId, (id, cached) -> {
+            if (changes.get() != changesBefore || (cached == null && compiled.size() >= cacheSize)) {
+                return cached;
+            }
+            return fresh;
+        });
+        return fresh;
+    }
+
+    /**
+     * Checks that a single slot starts at this time and returns its end.
+     */
+    public LocalDateTime slotEnd(int lawyerId, LocalDateTime start) {
+        SlotGrid grid = rulesFor(lawyerId).grid(start.toLocalDate());
+        LocalDateTime end = start.plus(grid.getSlotCount() > 0 ? grid.getSlotLength() : Duration.ofHours(1));
+        validateRange(lawyerId, start, end);
+        return end;
+    }
+
+    /**
+     * Checks that [start, end) covers whole slots of the lawyer's working hours, none of them in a break.
+     */
+    public void validateRange(int lawyerId, LocalDateTime start, LocalDateTime end) {
+        CompiledRules rules = rulesFor(lawyerId);
+        LocalDate date = start.toLocalDate();
+        SlotGrid grid = rules.grid(date);
+        if (grid.getSlotCount() == 0) {
+            throw new RuntimeException("Lawyer does not take consultations on " + date);
+        }
+        int first = grid.slotAt(date, start);
+        if (first < 0) {
+            throw new RuntimeException("Appointments must start at one of the lawyer's time slots");
+        }
+        long seconds = Duration.between(start, end).getSeconds();
+        long slotSeconds = grid.getSlotLength().getSeconds();
+        if (seconds <= 0 || seconds % slotSeconds != 0 || first + seconds / slotSeconds > grid.getSlotCount()) {
+            throw new RuntimeException("Appointments must cover whole time slots within the lawyer's working hours");
+        }
+        long requested = SlotGrid.rangeMask(first, first + (int) (seconds / slotSeconds));
+        if ((requested & rules.breaks(date)) != 0) {
+            throw new RuntimeException("Lawyer is not available at the requested time slot");
+        }
+    }
+
+    public AvailabilityRulesDTO getRules(int lawyerId) {
+        requireLawyer(lawyerId);
+        List<WorkingHoursDTO> weeklyHours = new ArrayList<>();
+        for (WorkingHoursEntity hours : workingHoursRepository.findByLawyerUserId(lawyerId)) {
+            weeklyHours.add(new WorkingHoursDTO(hours.getDayOfWeek().name(), hours.getStartTime().toString(),
+                    hours.getEndTime().toString(), hours.getSlotMinutes()));
+        }
+        List<BreakDTO> breaks = new ArrayList<>();
+        for (BreakEntity lawyerBreak : breakRepository.findByLawyerUserId(lawyerId)) {
+            breaks.add(new BreakDTO(lawyerBreak.getDayOfWeek() != null ? lawyerBreak.getDayOfWeek().name() : null,
+                    lawyerBreak.getStartTime().toString(), lawyerBreak.getEndTime().toString()));
+        }
+        List<TimeOffDTO> timeOff = new ArrayList<>();
+        for (TimeOffEntity off : timeOffRepository.findByLawyerUserIdAndEndDateGreaterThanEqualOrderByStartDate(lawyerId, LocalDate.now())) {
+            timeOff.add(toDTO(off));
+        }
+        return new AvailabilityRulesDTO(weeklyHours, breaks, timeOff);
+    }
+
+    /**
+     * Replaces the lawyer's weekly hours and breaks. Time off is left as is.
+     */
+    public AvailabilityRulesDTO updateRules(int lawyerId, AvailabilityRulesDTO rules) {
+        LawyerEntity lawyer = requireLawyer(lawyerId);
+        List<WorkingHoursEntity> weeklyHours = new ArrayList<>();
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        if (rules.getWeeklyHours() != null) {
+            for (WorkingHoursDTO dto : rules.getWeeklyHours()) {
+                WorkingHoursEntity hours = toEntity(lawyer, dto);
+                if (!days.add(hours.getDayOfWeek())) {
+                    throw new RuntimeException("Working hours for " + hours.getDayOfWeek() + " are listed more than once");
+                }
+                weeklyHours.add(hours);
+            }
+        }
+        List<BreakEntity> breaks = new ArrayList<>();
+        if (rules.getBreaks() != null) {
+            for (BreakDTO dto : rules.getBreaks()) {
+                breaks.add(toEntity(lawyer, dto));
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            workingHoursRepository.deleteByLawyerId(lawyerId);
+            breakRepository.deleteByLawyerId(lawyerId);
+            workingHoursRepository.saveAll(weeklyHours);
+            breakRepository.saveAll(breaks);
+        });
+        invalidate(lawyerId);
+        return getRules(lawyerId);
+    }
+
+    public TimeOffDTO addTimeOff(int lawyerId, TimeOffDTO dto) {
+        LawyerEntity lawyer = requireLawyer(lawyerId);
+        if (dto.getStartDate() == null || dto.getEndDate() == null) {
+            throw new RuntimeException("Time off needs a startDate and endDate");
+        }
+        TimeOffEntity off = new TimeOffEntity();
+        off.setLawyer(lawyer);
+        off.setStartDate(LocalDate.parse(dto.getStartDate()));
+        off.setEndDate(LocalDate.parse(dto.getEndDate()));
+        off.setReason(dto.getReason());
+        if (off.getEndDate().isBefore(off.getStartDate())) {
+            throw new RuntimeException("Time off must not end before it starts");
+        }
+        TimeOffEntity saved = timeOffRepository.save(off);
+        invalidate(lawyerId);
+        return toDTO(saved);
+    }
+
+    public void removeTimeOff(int lawyerId, int timeOffId) {
+        TimeOffEntity off = timeOffRepository.findById(timeOffId)
+                .orElseThrow(() -> new RuntimeException("Time off not found with ID: " + timeOffId));
+        if (off.getLawyer().getUserId() != lawyerId) {
+            throw new RuntimeException("Lawyer does not own this time off");
+        }
+        timeOffRepository.delete(off);
+        invalidate(lawyerId);
+    }
+
+    @Scheduled(fixedDelayString = "${schedule.rules.eviction-interval-ms:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        compiled.values().removeIf(rules -> isExpired(rules, now));
+    }
+
+    /**
+     * Drops the lawyer's compiled rules. Called after the change has committed: a compile
+     * that started before then may have read the old rows, and rulesFor() will not cache it.
+     */
+    private void invalidate(int lawyerId) {
+        compiled.compute(lawyerId, (id, cached) -> {
+            changes.incrementAndGet();
+            return null;
+        });
+    }
+
+    private CompiledRules compile(int lawyerId, long nowMillis) {
+        SlotGrid[] grids = new SlotGrid[DayOfWeek.values().length];
+        List<WorkingHoursEntity> weeklyHours = workingHoursRepository.findByLawyerUserId(lawyerId);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            grids[day.ordinal()] = weeklyHours.isEmpty() && STANDARD_DAYS.contains(day) ? SlotGrid.STANDARD : SlotGrid.CLOSED;
+        }
+        for (WorkingHoursEntity hours : weeklyHours) {
+            grids[hours.getDayOfWeek().ordinal()] = toGrid(hours.getStartTime(), hours.getEndTime(), hours.getSlotMinutes());
+        }
+
+        long[] breakMasks = new long[grids.length];
+        for (BreakEntity lawyerBreak : breakRepository.findByLawyerUserId(lawyerId)) {
+            for (DayOfWeek day : DayOfWeek.values()) {
+                if (lawyerBreak.getDayOfWeek() == null || lawyerBreak.getDayOfWeek() == day) {
+                    breakMasks[day.ordinal()] |= grids[day.ordinal()].mask(lawyerBreak.getStartTime(), lawyerBreak.getEndTime());
+                }
+            }
+        }
+
+        // Merge overlapping time off so one floor lookup answers any date
+        TreeMap<LocalDate, LocalDate> timeOff = new TreeMap<>();
+        Map.Entry<LocalDate, LocalDate> last = null;
+        for (TimeOffEntity off : timeOffRepository.findByLawyerUserIdAndEndDateGreaterThanEqualOrderByStartDate(lawyerId, LocalDate.now())) {
+            if (last != null && !off.getStartDate().isAfter(last.getValue().plusDays(1))) {
+                if (off.getEndDate().isAfter(last.getValue())) {
+                    timeOff.put(last.getKey(), off.getEndDate());
+                }
+            } else {
+                timeOff.put(off.getStartDate(), off.getEndDate());
+            }
+            last = timeOff.lastEntry();
+        }
+        return new CompiledRules(grids, breakMasks, timeOff, nowMillis);
+    }
+
+    private static SlotGrid toGrid(LocalTime start, LocalTime end, int slotMinutes) {
+        long slots = Duration.between(start, end).toMinutes() / slotMinutes;
+        return new SlotGrid(start, Duration.ofMinutes(slotMinutes), (int) slots);
+    }
+
+    private static WorkingHoursEntity toEntity(LawyerEntity lawyer, WorkingHoursDTO dto) {
+        if (dto.getDayOfWeek() == null || dto.getStartTime() == null || dto.getEndTime() == null) {
+            throw new RuntimeException("Working hours need a dayOfWeek, startTime and endTime");
+        }
+        DayOfWeek day = DayOfWeek.valueOf(dto.getDayOfWeek().toUpperCase());
+        LocalTime start = LocalTime.parse(dto.getStartTime());
+        LocalTime end = LocalTime.parse(dto.getEndTime());
+        if (!end.isAfter(start)) {
+            throw new RuntimeException("Working hours on " + day + " must end after they start");
+        }
+        if (dto.getSlotMinutes() < MIN_SLOT_MINUTES) {
+            throw new RuntimeException("Slots must be at least " + MIN_SLOT_MINUTES + " minutes long");
+        }
+        long slots = Duration.between(start, end).toMinutes() / dto.getSlotMinutes();
+        if (slots == 0) {
+            throw new RuntimeException("Working hours on " + day + " are shorter than one slot");
+        }
+        if (slots > SlotGrid.MAX_SLOTS) {
+            throw new RuntimeException("Working hours on " + day + " have more than " + SlotGrid.MAX_SLOTS + " slots; use longer slots");
+        }
+        WorkingHoursEntity hours = new WorkingHoursEntity();
+        hours.setLawyer(lawyer);
+        hours.setDayOfWeek(day);
+        hours.setStartTime(start);
+        hours.setEndTime(end);
+        hours.setSlotMinutes(dto.getSlotMinutes());
+        return hours;
+    }
+
+    private static BreakEntity toEntity(LawyerEntity lawyer, BreakDTO dto) {
+        if (dto.getStartTime() == null || dto.getEndTime() == null) {
+            throw new RuntimeException("Breaks need a startTime and endTime");
+        }
+        LocalTime start = LocalTime.parse(dto.getStartTime());
+        LocalTime end = LocalTime.parse(dto.getEndTime());
+        if (!end.isAfter(start)) {
+            throw new RuntimeException("Breaks must end after they start");
+        }
+        BreakEntity lawyerBreak = new BreakEntity();
+        lawyerBreak.setLawyer(lawyer);
+        lawyerBreak.setDayOfWeek(dto.getDayOfWeek() != null ? DayOfWeek.valueOf(dto.getDayOfWeek().toUpperCase()) : null);
+        lawyerBreak.setStartTime(start);
+        lawyerBreak.setEndTime(end);
+        return lawyerBreak;
+    }
+
+    private static TimeOffDTO toDTO(TimeOffEntity off) {
+        return new TimeOffDTO(off.getTimeOffId(), off.getStartDate().toString(), off.getEndDate().toString(), off.getReason());
+    }
+
+    private LawyerEntity requireLawyer(int lawyerId) {
+        return lawyerRepo.findById(lawyerId)
+                .orElseThrow(() -> new RuntimeException("Lawyer not found with ID: " + lawyerId));
+    }
+
+    private boolean isExpired(CompiledRules rules, long now) {
+        return now - rules.compiledAtMillis > TimeUnit.SECONDS.toMillis(cacheTtlSeconds);
+    }
+}
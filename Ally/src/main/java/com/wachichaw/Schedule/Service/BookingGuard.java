@@ -0,0 +1,91 @@
+package com.wachichaw.Schedule.Service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.wachichaw.Lawyer.Repo.LawyerRepo;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Makes the conflict check and the insert of a booking atomic per lawyer.
+ *
+ * - In this instance, bookings for the same lawyer queue on one of lock-stripes locks,
+ *   picked from the lawyer id. Bookings for other lawyers take other stripes and run in parallel.
+ * - Across instances, the booking runs in a transaction that first locks the lawyer's row
+ *   (SELECT ... FOR UPDATE), so a booking on another node waits until this one has committed.
+ *
+ * The stripe is held until after the commit, so the next booking for the lawyer always sees this one.
+ */
+@Component
+public class BookingGuard {
+
+    @Value("${schedule.booking.lock-stripes:256}")
+    private int stripeCount;
+
+    @Value("${schedule.booking.lock-timeout-ms:5000}")
+    private long lockTimeoutMs;
+
+    private final LawyerRepo lawyerRepo;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private ReentrantLock[] stripes;
+
+    public BookingGuard(LawyerRepo lawyerRepo, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.lawyerRepo = lawyerRepo;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        stripes = new ReentrantLock[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Runs a booking for this lawyer with no other booking for the same lawyer in between.
+     * The booking should check for conflicts and save; whatever it throws rolls the transaction back.
+     */
+    public <T> T book(int lawyerId, Supplier<T> booking) {
+        ReentrantLock lock = stripeFor(lawyerId);
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = lock.tryLock(lockTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Booking was interrupted");
+        }
+        meterRegistry.timer("ally.schedule.booking.lock_wait", "acquired", String.valueOf(acquired))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            throw new RuntimeException("The lawyer's calendar is busy, please try again");
+        }
+
+        try {
+            return transactionTemplate.execute(status -> {
+                lawyerRepo.findWithLockByUserId(lawyerId)
+                        .orElseThrow(() -> new RuntimeException("Lawyer not found with ID: " + lawyerId));
+                return booking.get();
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock stripeFor(int lawyerId) {
+        // Spread sequential ids so neighbouring lawyers do not share a stripe pattern
+        int hash = lawyerId * 0x9E3779B9;
+        return stripes[Math.floorMod(hash ^ (hash >>> 16), stripes.length)];
+    }
+}
@@ -0,0 +1,181 @@
+package com.wachichaw.Schedule.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.wachichaw.Lawyer.Entity.LawyerEntity;
+import com.wachichaw.Lawyer.Repo.LawyerRepo;
+import com.wachichaw.Schedule.DTO.OpenSlotDTO;
+
+/**
+ * Finds the soonest open slots across every verified lawyer of a specialization.
+ *
+ * One query finds the candidates; their occupancy bitsets come from the read cache, which
+ * loads every candidate it does not hold in one more query. Each candidate then gets an
+ * iterator over their free slots in time order: per day, the lawyer's open slots (from the
+ * compiled availability rules) minus the occupied ones. A priority queue merges the iterators, so producing
+ * N results costs O((candidates + N) log candidates) and never walks a calendar further
+ * than its earliest free slot.
+ */
+@Service
+public class EarliestAvailabilityService {
+
+    private static final DateTimeFormatter BOOKING_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+
+    @Value("${schedule.earliest.max-results:50}")
+    private int maxResults;
+
+    @Value("${schedule.availability.max-days:62}")
+    private int maxDays;
+
+    private final LawyerRepo lawyerRepo;
+    private final AvailabilityRulesService availabilityRules;
+    private final ScheduleReadCache readCache;
+
+    public EarliestAvailabilityService(LawyerRepo lawyerRepo, AvailabilityRulesService availabilityRules,
+                                       ScheduleReadCache readCache) {
+        this.lawyerRepo = lawyerRepo;
+        this.availabilityRules = availabilityRules;
+        this.readCache = readCache;
+    }
+
+    /**
+     * The earliest open slots in [from, to), soonest first, at most limit of them.
+     *
+     * @param location city or province, or null for anywhere
+     */
+    public List<OpenSlotDTO> findEarliest(String specialization, String location, LocalDateTime from, LocalDateTime to, int limit) {
+        if (limit < 1 || limit > maxResults) {
+            throw new RuntimeException("Limit must be between 1 and " + maxResults);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime windowStart = from.isBefore(now) ? now : from;
+        if (!to.isAfter(windowStart)) {
+            throw new RuntimeException("The search window must end in the future and after it starts");
+        }
+        LocalDate firstDay = windowStart.toLocalDate();
+        int dayCount = (int) ChronoUnit.DAYS.between(firstDay, to.toLocalDate()) + 1;
+        if (dayCount > maxDays) {
+            throw new RuntimeException("The search window can span at most " + maxDays + " days");
+        }
+
+        List<Integer> candidates = lawyerRepo.findVerifiedIdsBySpecialization(specialization, location);
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Integer, AvailabilityRulesService.CompiledRules> rules = new HashMap<>();
+        Map<Integer, SlotGrid[]> grids = new HashMap<>();
+        for (int lawyerId : candidates) {
+            AvailabilityRulesService.CompiledRules lawyerRules = availabilityRules.rulesFor(lawyerId);
+            SlotGrid[] lawyerGrids = new SlotGrid[dayCount];
+            for (int day = 0; day < dayCount; day++) {
+                lawyerGrids[day] = lawyerRules.grid(firstDay.plusDays(day));
+            }
+            rules.put(lawyerId, lawyerRules);
+            grids.put(lawyerId, lawyerGrids);
+        }
+        Map<Integer, long[]> occupancy = readCache.occupancy(candidates, firstDay, grids);
+
+        PriorityQueue<FreeSlots> queue = new PriorityQueue<>(
+                Comparator.comparing((FreeSlots slots) -> slots.start).thenComparingInt(slots -> slots.lawyerId));
+        for (int lawyerId : candidates) {
+            FreeSlots slots = new FreeSlots(lawyerId, rules.get(lawyerId), firstDay, occupancy.get(lawyerId), windowStart, to);
+            if (slots.advance()) {
+                queue.add(slots);
+            }
+        }
+
+        List<OpenSlotDTO> results = new ArrayList<>(limit);
+        while (!queue.isEmpty() && results.size() < limit) {
+            FreeSlots slots = queue.poll();
+            results.add(new OpenSlotDTO(slots.lawyerId, null, slots.start.toLocalDate().toString(),
+                    slots.startLabel, slots.endLabel, slots.start.format(BOOKING_TIME)));
+            if (slots.advance()) {
+                queue.add(slots);
+            }
+        }
+
+        // Names only for the lawyers that made the list
+        Map<Integer, String> names = new HashMap<>();
+        for (LawyerEntity lawyer : lawyerRepo.findAllById(results.stream().map(OpenSlotDTO::getLawyerId).distinct().toList())) {
+            names.put(lawyer.getUserId(), lawyer.getFname() + " " + lawyer.getLname());
+        }
+        for (OpenSlotDTO result : results) {
+            result.setLawyerName(names.get(result.getLawyerId()));
+        }
+        return results;
+    }
+
+    /**
+     * One lawyer's free slots within the window, in time order. start and the labels describe the current slot.
+     */
+    private static final class FreeSlots {
+        private final int lawyerId;
+        private final AvailabilityRulesService.CompiledRules rules;
+        private final LocalDate firstDay;
+        private final long[] occupied;
+        private final LocalDateTime notBefore;
+        private final LocalDateTime notAfter;
+
+        private int day = -1;
+        private SlotGrid grid = SlotGrid.CLOSED;
+        private long remaining;
+        private LocalDateTime start;
+        private String startLabel;
+        private String endLabel;
+
+        FreeSlots(int lawyerId, AvailabilityRulesService.CompiledRules rules, LocalDate firstDay, long[] occupied,
+                  LocalDateTime notBefore, LocalDateTime notAfter) {
+            this.lawyerId = lawyerId;
+            this.rules = rules;
+            this.firstDay = firstDay;
+            this.occupied = occupied;
+            this.notBefore = notBefore;
+            this.notAfter = notAfter;
+        }
+
+        /** Moves to the next free slot; false once the window is exhausted. */
+        boolean advance() {
+            while (true) {
+                if (remaining != 0) {
+                    int slot = Long.numberOfTrailingZeros(remaining);
+                    remaining &= remaining - 1;
+                    LocalDate date = firstDay.plusDays(day);
+                    LocalDateTime slotStart = grid.slotStart(date, slot);
+                    LocalDateTime slotEnd = slotStart.plus(grid.getSlotLength());
+                    if (slotStart.isBefore(notBefore)) {
+                        continue;
+                    }
+                    if (slotEnd.isAfter(notAfter)) {
+                        // Slots only get later from here
+                        day = occupied.length;
+                        remaining = 0;
+                        return false;
+                    }
+                    start = slotStart;
+                    startLabel = grid.label(slot);
+                    endLabel = grid.label(slot + 1);
+                    return true;
+                }
+                if (++day >= occupied.length) {
+                    return false;
+                }
+                LocalDate date = firstDay.plusDays(day);
+                grid = rules.grid(date);
+                remaining = rules.open(date) & ~occupied[day];
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.wachichaw.Schedule.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Timeouts on a hierarchy of 64-slot wheels, after Varghese and Lauck.
+ *
+ * Level 0 has one slot per tick, level i one slot per 64^i ticks. A timeout goes into the
+ * lowest level whose current rotation contains its deadline; when the clock reaches a
+ * higher-level slot, its timeouts cascade down. Scheduling and cancelling are O(1), each
+ * timeout cascades at most once per level, and an empty wheel skips idle time in one step.
+ * Deadlines beyond the top level wait in an overflow list until the top level wraps.
+ *
+ * The caller drives the clock with advance(); expired tasks are returned, not run, so they
+ * run outside the wheel's lock.
+ */
+public final class HierarchicalTimerWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int MASK = SLOTS - 1;
+
+    private final long tickMillis;
+    private final Timeout[][] wheels;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Sentinels of the due list (deadline already passed) and the overflow list
+    private final Timeout due = new Timeout(0, null);
+    private final Timeout overflow = new Timeout(0, null);
+    private long currentTick;
+    private int size;
+
+    public HierarchicalTimerWheel(long tickMillis, int levels, long nowMillis) {
+        if (tickMillis <= 0 || levels < 1 || levels * SLOT_BITS >= 63) {
+            throw new IllegalArgumentException("Invalid timer wheel: tick " + tickMillis + " ms, " + levels + " levels");
+        }
+        this.tickMillis = tickMillis;
+        this.wheels = new HierarchicalTimerWheel.Timeout[levels][SLOTS];
+        for (Timeout[] wheel : wheels) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                wheel[slot] = new Timeout(0, null);
+            }
+        }
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    public Timeout schedule(long deadlineMillis, T task) {
+        Timeout timeout = new Timeout(deadlineMillis, task);
+        lock.lock();
+        try {
+            place(timeout);
+            size++;
+        } finally {
+            lock.unlock();
+        }
+        return timeout;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the clock to now and returns the tasks whose deadline has passed, earliest tick first.
+     */
+    public List<T> advance(long nowMillis) {
+        List<T> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            long target = nowMillis / tickMillis;
+            if (size == 0) {
+                currentTick = Math.max(currentTick, target);
+                return expired;
+            }
+            drain(due, expired);
+            while (currentTick < target && size > 0) {
+                currentTick++;
+                for (int level = wheels.length; level >= 1; level--) {
+                    if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                        continue;
+                    }
+                    // The rotation of this level just ended: spread its next slot over the levels below
+                    Timeout head = level == wheels.length
+                            ? overflow
+                            : wheels[level][(int) (currentTick >>> (SLOT_BITS * level)) & MASK];
+                    for (Timeout timeout = head.next; timeout != null; ) {
+                        Timeout next = timeout.next;
+                        unlink(timeout);
+                        place(timeout);
+                        timeout = next;
+                    }
+                }
+                drain(wheels[0][(int) currentTick & MASK], expired);
+                drain(due, expired);
+            }
+            currentTick = Math.max(currentTick, target);
+        } finally {
+            lock.unlock();
+        }
+        return expired;
+    }
+
+    private void place(Timeout timeout) {
+        long deadlineTick = timeout.deadlineMillis / tickMillis;
+        if (deadlineTick <= currentTick) {
+            link(due, timeout);
+            return;
+        }
+        for (int level = 0; level < wheels.length; level++) {
+            int shift = SLOT_BITS * (level + 1);
+            if ((deadlineTick >>> shift) == (currentTick >>> shift)) {
+                link(wheels[level][(int) (deadlineTick >>> (SLOT_BITS * level)) & MASK], timeout);
+                return;
+            }
+        }
+        link(overflow, timeout);
+    }
+
+    private void drain(Timeout head, List<T> expired) {
+        for (Timeout timeout = head.next; timeout != null; ) {
+            Timeout next = timeout.next;
+            unlink(timeout);
+            size--;
+            expired.add(timeout.task);
+            timeout = next;
+        }
+    }
+
+    private void link(Timeout head, Timeout timeout) {
+        timeout.prev = head;
+        timeout.next = head.next;
+        if (head.next != null) {
+            head.next.prev = timeout;
+        }
+        head.next = timeout;
+    }
+
+    private void unlink(Timeout timeout) {
+        timeout.prev.next = timeout.next;
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+    }
+
+    /**
+     * A scheduled task. Slot lists are doubly linked through their timeouts, headed by a sentinel.
+     */
+    public final class Timeout {
+        private final long deadlineMillis;
+        private final T task;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(long deadlineMillis, T task) {
+            this.deadlineMillis = deadlineMillis;
+            this.task = task;
+        }
+
+        public long getDeadlineMillis() {
+            return deadlineMillis;
+        }
+
+        public T getTask() {
+            return task;
+        }
+
+        /** Removes the timeout from the wheel; false if it already expired or was cancelled. */
+        public boolean cancel() {
+            lock.lock();
+            try {
+                if (prev == null) {
+                    return false;
+                }
+                unlink(this);
+                size--;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.wachichaw.Schedule.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.wachichaw.Schedule.DTO.BookedInterval;
+import com.wachichaw.Schedule.Entity.AppointmentStatus;
+import com.wachichaw.Schedule.Repo.ScheduleRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * In-memory calendar of each lawyer's upcoming appointments that still hold their slot
+ * (anything not declined or cancelled), used to answer booking conflicts without a query.
+ *
+ * - A lawyer's intervals are loaded on the first conflict check and reloaded after ttl-seconds,
+ *   which also picks up changes made by other instances.
+ * - ScheduleChangedEvent keeps loaded lawyers in sync after each commit.
+ * - Intervals are sorted by start time. An overlap query walks back from the last interval
+ *   starting before the requested end, and stops once intervals are further back than the
+ *   lawyer's longest appointment, so it costs O(log n) for non-overlapping calendars.
+ * - Intervals that have ended are pruned as queries pass them.
+ *
+ * The index only short-circuits taken slots. A slot it reports as free is still confirmed
+ * against the database before booking.
+ */
+@Component
+public class LawyerIntervalIndex {
+
+    private static final Comparator<BookedInterval> BY_START =
+            Comparator.comparing(BookedInterval::start).thenComparingInt(BookedInterval::scheduleId);
+
+    @Value("${schedule.interval-index.max-lawyers:10000}")
+    private int maxLawyers;
+
+    @Value("${schedule.interval-index.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${schedule.max-appointment-hours:24}")
+    private long maxAppointmentHours;
+
+    private final ScheduleRepository scheduleRepository;
+    private final MeterRegistry meterRegistry;
+    private final Map<Integer, LawyerIntervals> lawyers = new ConcurrentHashMap<>();
+    private Counter loads;
+
+    public LawyerIntervalIndex(ScheduleRepository scheduleRepository, MeterRegistry meterRegistry) {
+        this.scheduleRepository = scheduleRepository;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("ally.schedule.interval_index.lawyers", lawyers, Map::size)
+                .description("Lawyers whose upcoming appointments are held in memory")
+                .register(meterRegistry);
+        loads = Counter.builder("ally.schedule.interval_index.loads")
+                .description("Lawyer calendars loaded from the database")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Longest appointment the schedule accepts. Bounds how far back an overlapping appointment can start.
+     */
+    public Duration getMaxDuration() {
+        return Duration.ofHours(maxAppointmentHours);
+    }
+
+    /**
+     * Whether [start, end) overlaps an appointment of this lawyer that holds its slot.
+     *
+     * @param excludeScheduleId a schedule to ignore, e.g. the one being rescheduled; 0 for none
+     */
+    public boolean overlaps(int lawyerId, LocalDateTime start, LocalDateTime end, int excludeScheduleId) {
+        LawyerIntervals intervals = lawyers.get(lawyerId);
+        if (intervals == null) {
+            if (lawyers.size() >= maxLawyers) {
+                evictExpired();
+            }
+            intervals = lawyers.size() < maxLawyers
+                    ? lawyers.computeIfAbsent(lawyerId, id -> new LawyerIntervals())
+                    : new LawyerIntervals(); // Full: answer from a one-off load, not kept
+        }
+
+        intervals.lock.lock();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            if (intervals.isStale(System.currentTimeMillis())) {
+                load(lawyerId, intervals, now);
+            }
+            intervals.prune(now);
+            return intervals.overlaps(start, end, excludeScheduleId);
+        } finally {
+            intervals.lock.unlock();
+        }
+    }
+
+    /**
+     * Drops a lawyer's intervals so the next check reloads them, e.g. after the
+     * database found a conflict the index missed.
+     */
+    public void invalidate(int lawyerId) {
+        lawyers.remove(lawyerId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onScheduleChanged(ScheduleChangedEvent event) {
+        LawyerIntervals intervals = lawyers.get(event.lawyerId());
+        if (intervals == null) {
+            return;
+        }
+        intervals.lock.lock();
+        try {
+            // Not loaded yet: the load will read the committed row
+            if (intervals.loadedAtMillis >= 0) {
+                intervals.remove(event.scheduleId());
+                if (event.status().holdsSlot() && event.end().isAfter(LocalDateTime.now())) {
+                    intervals.add(new BookedInterval(event.scheduleId(), event.start(), event.end()));
+                }
+            }
+        } finally {
+            intervals.lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${schedule.interval-index.eviction-interval-ms:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        lawyers.values().removeIf(intervals -> intervals.isStale(now));
+    }
+
+    private void load(int lawyerId, LawyerIntervals intervals, LocalDateTime now) {
+        intervals.clear();
+        for (BookedInterval interval : scheduleRepository.findBlockingIntervals(
+                lawyerId, now, now.minus(getMaxDuration()), AppointmentStatus.RELEASED)) {
+            intervals.add(interval);
+        }
+        intervals.loadedAtMillis = System.currentTimeMillis();
+        loads.increment();
+    }
+
+    /**
+     * One lawyer's intervals. Every access holds the lock; a ReentrantLock rather than
+     * synchronized so a virtual thread loading from the database does not pin its carrier.
+     */
+    private class LawyerIntervals {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final TreeSet<BookedInterval> byStart = new TreeSet<>(BY_START);
+        private final Map<Integer, BookedInterval> byId = new HashMap<>();
+        // Only grows until the next load, which keeps the backward walk safe
+        private Duration longest = Duration.ZERO;
+        private long loadedAtMillis = -1;
+
+        boolean isStale(long nowMillis) {
+            return loadedAtMillis < 0 || nowMillis - loadedAtMillis > TimeUnit.SECONDS.toMillis(ttlSeconds);
+        }
+
+        boolean overlaps(LocalDateTime start, LocalDateTime end, int excludeScheduleId) {
+            LocalDateTime earliestStart = start.minus(longest);
+            // Intervals starting before the requested end, latest first
+            BookedInterval bound = new BookedInterval(Integer.MIN_VALUE, end, end);
+            for (BookedInterval interval : byStart.headSet(bound, false).descendingSet()) {
+                if (!interval.start().isAfter(earliestStart)) {
+                    return false;
+                }
+                if (interval.end().isAfter(start) && interval.scheduleId() != excludeScheduleId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void add(BookedInterval interval) {
+            byStart.add(interval);
+            byId.put(interval.scheduleId(), interval);
+            Duration length = Duration.between(interval.start(), interval.end());
+            if (length.compareTo(longest) > 0) {
+                longest = length;
+            }
+        }
+
+        void remove(int scheduleId) {
+            BookedInterval previous = byId.remove(scheduleId);
+            if (previous != null) {
+                byStart.remove(previous);
+            }
+        }
+
+        void prune(LocalDateTime now) {
+            LocalDateTime endedBefore = now.minus(longest);
+            Iterator<BookedInterval> iterator = byStart.iterator();
+            while (iterator.hasNext()) {
+                BookedInterval interval = iterator.next();
+                if (interval.start().isAfter(endedBefore)) {
+                    break;
+                }
+                iterator.remove();
+                byId.remove(interval.scheduleId());
+            }
+        }
+
+        void clear() {
+            byStart.clear();
+            byId.clear();
+            longest = Duration.ZERO;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.wachichaw.Schedule.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.wachichaw.EmailConfig.Service.EmailService;
+import com.wachichaw.Schedule.Entity.AppointmentStatus;
+import com.wachichaw.Schedule.Entity.ReminderKind;
+import com.wachichaw.Schedule.Entity.ReminderLedgerEntity;
+import com.wachichaw.Schedule.Entity.ReminderRecipient;
+import com.wachichaw.Schedule.Entity.ReminderStatus;
+import com.wachichaw.Schedule.Entity.ScheduleEntity;
+import com.wachichaw.Schedule.Repo.ReminderLedgerRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Sends the reminders in the ledger.
+ *
+ * - Queued reminders go onto a bounded in-memory queue served by a fixed number of
+ *   workers, so a slow mail server holds up neither requests nor the scheduler.
+ * - A worker first claims the reminder in the database for claim-timeout-ms, so a
+ *   reminder is sent by one worker on one instance.
+ * - Right before sending, the appointment is checked again: a reminder whose appointment
+ *   has since moved, started, been completed or been cancelled is skipped.
+ * - A failed send is retried with exponential backoff, up to max-attempts.
+ * - Every poll-interval-ms, and right after startup, pending reminders that are due are
+ *   picked up from the ledger: retries, reminders that did not fit on the queue and
+ *   reminders left behind by a restart.
+ */
+@Component
+public class ReminderDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReminderDispatcher.class);
+
+    @Value("${schedule.reminders.workers:4}")
+    private int workerCount;
+
+    @Value("${schedule.reminders.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${schedule.reminders.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${schedule.reminders.initial-backoff-ms:30000}")
+    private long initialBackoffMs;
+
+    @Value("${schedule.reminders.max-backoff-ms:1800000}")
+    private long maxBackoffMs;
+
+    @Value("${schedule.reminders.claim-timeout-ms:300000}")
+    private long claimTimeoutMs;
+
+    private final ReminderLedgerRepository ledgerRepository;
+    private final EmailService emailService;
+    private final MeterRegistry meterRegistry;
+    // Ids on the queue, so the poll does not add them a second time
+    private final Set<Integer> queued = ConcurrentHashMap.newKeySet();
+    private final ExecutorService workers = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("reminder-worker-", 0).factory());
+    private BlockingQueue<Integer> queue;
+
+    public ReminderDispatcher(ReminderLedgerRepository ledgerRepository, EmailService emailService, MeterRegistry meterRegistry) {
+        this.ledgerRepository = ledgerRepository;
+        this.emailService = emailService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        for (int i = 0; i < workerCount; i++) {
+            workers.execute(this::work);
+        }
+        Gauge.builder("ally.schedule.reminders.queued", queue, BlockingQueue::size)
+                .description("Reminders waiting for a worker")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Reminders still queued stay pending in the ledger and are picked up after the restart
+        workers.shutdownNow();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRemindersQueued(RemindersQueuedEvent event) {
+        event.reminderIds().forEach(this::offer);
+    }
+
+    @Scheduled(fixedDelayString = "${schedule.reminders.poll-interval-ms:30000}")
+    public void dispatchDue() {
+        int room = queue.remainingCapacity();
+        if (room == 0) {
+            return;
+        }
+        for (int reminderId : ledgerRepository.findDueIds(LocalDateTime.now(), PageRequest.of(0, room))) {
+            if (!offer(reminderId)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * False when the queue is full; the reminder stays pending and the next poll retries it.
+     */
+    private boolean offer(int reminderId) {
+        if (!queued.add(reminderId)) {
+            return true;
+        }
+        if (!queue.offer(reminderId)) {
+            queued.remove(reminderId);
+            meterRegistry.counter("ally.schedule.reminders.deferred").increment();
+            return false;
+        }
+        return true;
+    }
+
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            int reminderId;
+            try {
+                reminderId = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queued.remove(reminderId);
+            try {
+                send(reminderId);
+            } catch (RuntimeException e) {
+                // The claim runs out and the poll picks the reminder up again
+                logger.warn("Reminder {} could not be processed: {}", reminderId, e.getMessage());
+            }
+        }
+    }
+
+    private void send(int reminderId) {
+        LocalDateTime now = LocalDateTime.now();
+        if (ledgerRepository.claim(reminderId, now, now.plus(Duration.ofMillis(claimTimeoutMs))) == 0) {
+            // Sent, given up, not due yet or held by another worker
+            return;
+        }
+        ReminderLedgerEntity reminder = ledgerRepository.findForSending(reminderId).orElse(null);
+        if (reminder == null) {
+            return;
+        }
+        ScheduleEntity schedule = reminder.getSchedule();
+        if (!stillApplies(reminder, schedule, now)) {
+            ledgerRepository.recordAttempt(reminderId, ReminderStatus.SKIPPED, null, now, null);
+            record(ReminderStatus.SKIPPED);
+            return;
+        }
+
+        try {
+            if (reminder.getRecipient() == ReminderRecipient.CLIENT) {
+                emailService.sendAppointmentReminder(schedule.getClient().getEmail(), schedule.getClient().getFname(),
+                        schedule.getBookingStartTime(), "client");
+            } else {
+                emailService.sendAppointmentReminder(schedule.getLawyer().getEmail(), schedule.getLawyer().getFname(),
+                        schedule.getBookingStartTime(), "lawyer");
+            }
+        } catch (RuntimeException e) {
+            int attempts = reminder.getAttempts() + 1;
+            String error = truncate(e.getMessage());
+            if (attempts >= maxAttempts) {
+                logger.warn("Giving up on reminder {} after {} attempts: {}", reminderId, attempts, error);
+                ledgerRepository.recordAttempt(reminderId, ReminderStatus.FAILED, null, LocalDateTime.now(), error);
+                record(ReminderStatus.FAILED);
+            } else {
+                long backoffMs = Math.min(initialBackoffMs << Math.min(attempts - 1, 30), maxBackoffMs);
+                ledgerRepository.recordAttempt(reminderId, ReminderStatus.PENDING, null,
+                        LocalDateTime.now().plus(Duration.ofMillis(backoffMs)), error);
+                meterRegistry.counter("ally.schedule.reminders.retries").increment();
+            }
+            return;
+        }
+        LocalDateTime sentAt = LocalDateTime.now();
+        ledgerRepository.recordAttempt(reminderId, ReminderStatus.SENT, sentAt, sentAt, null);
+        record(ReminderStatus.SENT);
+    }
+
+    /**
+     * Whether the appointment is still where the reminder says and in the state it announces:
+     * accepted for ACCEPTED and UPCOMING, awaiting the lawyer or accepted at the new time for
+     * RESCHEDULED, and not superseded by a later notice of the same kind.
+     */
+    private boolean stillApplies(ReminderLedgerEntity reminder, ScheduleEntity schedule, LocalDateTime now) {
+        if (!schedule.getBookingStartTime().equals(reminder.getAppointmentStart()) || !schedule.getBookingStartTime().isAfter(now)) {
+            return false;
+        }
+        boolean statusApplies = switch (reminder.getKind()) {
+            case ACCEPTED, UPCOMING -> schedule.getStatus() == AppointmentStatus.ACCEPTED;
+            case RESCHEDULED -> schedule.getStatus() == AppointmentStatus.PENDING || schedule.getStatus() == AppointmentStatus.ACCEPTED;
+        };
+        if (!statusApplies) {
+            return false;
+        }
+        return reminder.getKind() == ReminderKind.UPCOMING
+                || !ledgerRepository.existsByScheduleScheduleIdAndRecipientAndKindAndChangeSeqGreaterThan(
+                        schedule.getScheduleId(), reminder.getRecipient(), reminder.getKind(), reminder.getChangeSeq());
+    }
+
+    private void record(ReminderStatus outcome) {
+        meterRegistry.counter("ally.schedule.reminders.outcome", "status", outcome.name()).increment();
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() <= 500 ? message : message.substring(0, 500);
+    }
+}
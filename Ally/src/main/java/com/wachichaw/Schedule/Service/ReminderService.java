@@ -1,32 +1,54 @@
 package com.wachichaw.Schedule.Service;
 
-import com.wachichaw.EmailConfig.Service.EmailService;
+import com.wachichaw.Schedule.Entity.ReminderKind;
+import com.wachichaw.Schedule.Entity.ReminderRecipient;
 import com.wachichaw.Schedule.Entity.ScheduleEntity;
+import com.wachichaw.Schedule.Repo.ReminderLedgerRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
+
+/**
+ * Queues appointment reminders for both parties. Sending is left to ReminderDispatcher,
+ * so callers never wait on the mail server.
+ */
 @Service
 public class ReminderService {
 
     @Autowired
-    private EmailService emailService;
+    private ReminderLedgerRepository ledgerRepository;
 
-    public void sendAppointmentReminders(ScheduleEntity schedule) {
-        // Send reminder to client
-        emailService.sendAppointmentReminder(
-                schedule.getClient().getEmail(),
-                schedule.getClient().getFname(),
-                schedule.getBookingStartTime(),
-                "client"
-        );
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
-        // Send reminder to lawyer
-        emailService.sendAppointmentReminder(
-                schedule.getLawyer().getEmail(),
-                schedule.getLawyer().getFname(),
-                schedule.getBookingStartTime(),
-                "lawyer"
-        );
+    /**
+     * Adds the client's and the lawyer's reminder to the ledger, unless this reminder is already
+     * there. Call after the schedule is saved, in the same transaction. An UPCOMING reminder
+     * is added once per appointment time; ACCEPTED and RESCHEDULED are added once per change.
+     */
+    public void enqueueAppointmentReminders(ScheduleEntity schedule, ReminderKind kind) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Integer> queued = new ArrayList<>(2);
+        for (ReminderRecipient recipient : ReminderRecipient.values()) {
+            // Changes of one appointment are serialized by the booking lock or its status check,
+            // so two callers only get the same number for the same change
+            int changeSeq = kind == ReminderKind.UPCOMING
+                    ? 0
+                    : ledgerRepository.findLastChangeSeq(schedule.getScheduleId(), recipient, kind) + 1;
+            if (ledgerRepository.insertIfAbsent(schedule.getScheduleId(), recipient.name(), kind.name(),
+                    schedule.getBookingStartTime(), changeSeq, now) == 0) {
+                continue;
+            }
+            ledgerRepository.findReminderId(schedule.getScheduleId(), recipient, kind, schedule.getBookingStartTime(), changeSeq)
+                    .ifPresent(queued::add);
+        }
+        if (!queued.isEmpty()) {
+            eventPublisher.publishEvent(new RemindersQueuedEvent(queued));
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,15 +1,34 @@
 package com.wachichaw.Schedule.Service;
 
-import com.wachichaw.Schedule.Entity.ScheduleEntity;
+import com.wachichaw.Schedule.DTO.ScheduleSnapshot;
 import com.wachichaw.Schedule.Entity.AppointmentStatus;
 import com.wachichaw.Schedule.Repo.ScheduleRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 
+/**
+ * Status transitions by time: accepted appointments that have ended are completed and
+ * pending ones that have started are cancelled.
+ *
+ * AppointmentLifecycleScheduler calls complete() and expire() the moment a deadline passes.
+ * The sweep here is the safety net for anything it missed (e.g. changes made on another
+ * instance) and runs every hour by default.
+ */
 @Component
 public class ReminderTask {
 
@@ -17,36 +36,87 @@ public class ReminderTask {
     private ScheduleRepository scheduleRepository;
 
     @Autowired
-    private ReminderService reminderService;
+    private ApplicationEventPublisher eventPublisher;
 
-    @Scheduled(cron = "0 0 9 * * *") // Run every day at 9 AM
-    public void sendAppointmentReminders() {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime tomorrow = now.plusDays(1);
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
-        List<ScheduleEntity> upcomingAppointments = scheduleRepository.findByBookingStartTimeBetween(now, tomorrow);
+    @Autowired
+    private MeterRegistry meterRegistry;
 
-        for (ScheduleEntity schedule : upcomingAppointments) {
-            reminderService.sendAppointmentReminders(schedule);
-        }
-    }
+    @Value("${schedule.transitions.chunk-size:500}")
+    private int chunkSize;
 
-    @Scheduled(cron = "0 0/15 * * * *") // Run every 15 minutes
+    @Scheduled(cron = "${schedule.lifecycle.sweep-cron:0 0 * * * *}") // Every hour by default
     public void updateAppointmentStatuses() {
         LocalDateTime now = LocalDateTime.now();
 
-        // Find accepted appointments that have ended and mark them as completed
-        List<ScheduleEntity> completedAppointments = scheduleRepository.findCompletedAppointments(now, AppointmentStatus.ACCEPTED);
-        for (ScheduleEntity schedule : completedAppointments) {
-            schedule.setStatus(AppointmentStatus.COMPLETED);
-            scheduleRepository.save(schedule);
-        }
+        // Accepted appointments that have ended are completed
+        drain(page -> scheduleRepository.findSnapshotsEndedBefore(AppointmentStatus.ACCEPTED, now, page),
+                chunk -> complete(chunk, now));
+
+        // Pending appointments that have passed their start time are cancelled
+        drain(page -> scheduleRepository.findSnapshotsStartedBefore(AppointmentStatus.PENDING, now, page),
+                chunk -> expire(chunk, now));
+    }
+
+    /**
+     * Completes the given accepted appointments that ended before now, in one transaction.
+     *
+     * @return how many were completed
+     */
+    int complete(List<ScheduleSnapshot> schedules, LocalDateTime now) {
+        return move(schedules, AppointmentStatus.COMPLETED, ids -> scheduleRepository.updateStatusIfEndedBefore(ids,
+                AppointmentStatus.ACCEPTED, AppointmentStatus.COMPLETED, now));
+    }
 
-        // Find pending appointments that have passed their start time and cancel them
-        List<ScheduleEntity> expiredPendingAppointments = scheduleRepository.findExpiredPendingAppointments(now, AppointmentStatus.PENDING);
-        for (ScheduleEntity schedule : expiredPendingAppointments) {
-            schedule.setStatus(AppointmentStatus.CANCELLED);
-            scheduleRepository.save(schedule);
+    /**
+     * Cancels the given pending appointments that started before now, in one transaction.
+     *
+     * @return how many were cancelled
+     */
+    int expire(List<ScheduleSnapshot> schedules, LocalDateTime now) {
+        return move(schedules, AppointmentStatus.CANCELLED, ids -> scheduleRepository.updateStatusIfStartedBefore(ids,
+                AppointmentStatus.PENDING, AppointmentStatus.CANCELLED, now));
+    }
+
+    /**
+     * Moves every schedule the query finds, chunk-size rows per transaction. Moved rows no
+     * longer match the query, so each chunk is simply the first page again and memory stays
+     * at one chunk however large the backlog.
+     */
+    private void drain(Function<Pageable, List<ScheduleSnapshot>> query, ToIntFunction<List<ScheduleSnapshot>> move) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Pageable firstChunk = PageRequest.of(0, chunkSize);
+        while (true) {
+            Integer moved = transactionTemplate.execute(status -> {
+                List<ScheduleSnapshot> chunk = query.apply(firstChunk);
+                return chunk.isEmpty() ? 0 : move.applyAsInt(chunk);
+            });
+            if (moved == null || moved == 0) {
+                break;
+            }
         }
     }
+
+    /**
+     * One UPDATE for the whole list; events for the moved rows fire when the transaction commits.
+     */
+    private int move(List<ScheduleSnapshot> schedules, AppointmentStatus to, ToIntFunction<List<Integer>> update) {
+        Integer moved = new TransactionTemplate(transactionManager).execute(status -> {
+            List<Integer> ids = schedules.stream().map(ScheduleSnapshot::scheduleId).toList();
+            int updated = update.applyAsInt(ids);
+            // Fewer rows than ids: some changed in between, publish only the ones moved here
+            Set<Integer> movedIds = updated == ids.size() ? null : new HashSet<>(scheduleRepository.findIdsWithStatus(ids, to));
+            for (ScheduleSnapshot schedule : schedules) {
+                if (movedIds == null || movedIds.contains(schedule.scheduleId())) {
+                    eventPublisher.publishEvent(ScheduleChangedEvent.of(new ScheduleSnapshot(schedule.scheduleId(),
+                            schedule.lawyerId(), schedule.clientId(), schedule.start(), schedule.end(), to)));
+                }
+            }
+            return updated;
+        });
+        meterRegistry.counter("ally.schedule.transitions", "to", to.name()).increment(moved == null ? 0 : moved);
+        return moved == null ? 0 : moved;
+    }
 }
@@ -0,0 +1,9 @@
+package com.wachichaw.Schedule.Service;
+
+import java.util.List;
+
+/**
+ * Published when reminders are added to the ledger, so they are dispatched once the transaction commits.
+ */
+public record RemindersQueuedEvent(List<Integer> reminderIds) {
+}
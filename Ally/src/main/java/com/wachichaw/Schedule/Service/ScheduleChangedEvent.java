@@ -0,0 +1,31 @@
+package com.wachichaw.Schedule.Service;
+
+import java.time.LocalDateTime;
+
+import com.wachichaw.Schedule.DTO.ScheduleSnapshot;
+import com.wachichaw.Schedule.Entity.AppointmentStatus;
+import com.wachichaw.Schedule.Entity.ScheduleEntity;
+
+/**
+ * Published after a schedule is created or changes time or status.
+ * previousStart and previousEnd are set when the schedule moved, null otherwise.
+ */
+public record ScheduleChangedEvent(int scheduleId, int lawyerId, int clientId,
+                                   LocalDateTime start, LocalDateTime end, AppointmentStatus status,
+                                   LocalDateTime previousStart, LocalDateTime previousEnd) {
+
+    public static ScheduleChangedEvent of(ScheduleEntity schedule) {
+        return of(schedule, null, null);
+    }
+
+    public static ScheduleChangedEvent of(ScheduleEntity schedule, LocalDateTime previousStart, LocalDateTime previousEnd) {
+        return new ScheduleChangedEvent(schedule.getScheduleId(), schedule.getLawyer().getUserId(),
+                schedule.getClient().getUserId(), schedule.getBookingStartTime(), schedule.getBookingEndTime(),
+                schedule.getStatus(), previousStart, previousEnd);
+    }
+
+    public static ScheduleChangedEvent of(ScheduleSnapshot schedule) {
+        return new ScheduleChangedEvent(schedule.scheduleId(), schedule.lawyerId(), schedule.clientId(),
+                schedule.start(), schedule.end(), schedule.status(), null, null);
+    }
+}
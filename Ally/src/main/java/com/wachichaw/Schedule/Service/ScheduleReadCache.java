@@ -0,0 +1,300 @@
+package com.wachichaw.Schedule.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.wachichaw.Schedule.DTO.BookedInterval;
+import com.wachichaw.Schedule.DTO.LawyerBookedInterval;
+import com.wachichaw.Schedule.Entity.AppointmentStatus;
+import com.wachichaw.Schedule.Entity.ScheduleEntity;
+import com.wachichaw.Schedule.Repo.ScheduleRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Read cache for availability and upcoming appointment lists.
+ *
+ * - Availability is cached as each (lawyer, day)'s occupancy bitset together with the
+ *   SlotGrid it was built for, so a change to the lawyer's rules is a miss rather than a
+ *   wrong answer. Missing days are loaded with one range query per request.
+ * - Upcoming lists are cached per lawyer and per client; appointments that have started
+ *   since are dropped on read.
+ * - ScheduleChangedEvent invalidates exactly the days the appointment covers (before and
+ *   after a move) and the lawyer's and client's lists. Each entry carries the sequence
+ *   number read before it was loaded and each user the sequence of their last change; an
+ *   entry loaded before that change is a miss, so a read that raced with the change cannot
+ *   serve what it loaded before the commit, whenever it got to store it.
+ * - Entries also expire after ttl-seconds, for changes made through other instances.
+ *   A change older than that predates every live entry, so it is dropped with them.
+ *
+ * ally.schedule.cache.requests{cache,result} gives the hit ratio; ally.schedule.cache.age
+ * records how old each served entry was.
+ */
+@Component
+public class ScheduleReadCache {
+
+    private record DayKey(int lawyerId, LocalDate date) {
+    }
+
+    private record DayOccupancy(SlotGrid grid, long occupied, long createdAtMillis, long sequence) {
+    }
+
+    private record CachedList(List<ScheduleEntity> schedules, long createdAtMillis, long sequence) {
+    }
+
+    private record Change(long sequence, long atMillis) {
+    }
+
+    @Value("${schedule.cache.max-days:100000}")
+    private int maxDays;
+
+    @Value("${schedule.cache.max-lists:10000}")
+    private int maxLists;
+
+    @Value("${schedule.cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    private final ScheduleRepository scheduleRepository;
+    private final LawyerIntervalIndex intervalIndex;
+    private final MeterRegistry meterRegistry;
+    private final Map<DayKey, DayOccupancy> days = new ConcurrentHashMap<>();
+    private final Map<String, CachedList> lists = new ConcurrentHashMap<>();
+    // Last change per "lawyer:id" / "client:id"
+    private final Map<String, Change> changes = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public ScheduleReadCache(ScheduleRepository scheduleRepository, LawyerIntervalIndex intervalIndex, MeterRegistry meterRegistry) {
+        this.scheduleRepository = scheduleRepository;
+        this.intervalIndex = intervalIndex;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("ally.schedule.cache.size", days, Map::size)
+                .description("Entries held by the schedule read cache")
+                .tag("cache", "availability")
+                .register(meterRegistry);
+        Gauge.builder("ally.schedule.cache.size", lists, Map::size)
+                .description("Entries held by the schedule read cache")
+                .tag("cache", "upcoming")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Occupancy bitsets of one lawyer for consecutive days starting at from, one per grid.
+     */
+    public long[] occupancy(int lawyerId, LocalDate from, SlotGrid[] grids) {
+        return occupancy(List.of(lawyerId), from, Map.of(lawyerId, grids)).get(lawyerId);
+    }
+
+    /**
+     * Occupancy bitsets of several lawyers. Lawyers with any day missing are loaded together in one query.
+     */
+    public Map<Integer, long[]> occupancy(List<Integer> lawyerIds, LocalDate from, Map<Integer, SlotGrid[]> grids) {
+        long now = System.currentTimeMillis();
+        // Read before anything is loaded; see isCurrent
+        long loadSequence = sequence.get();
+        Map<Integer, long[]> result = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        int dayCount = 0;
+        for (int lawyerId : lawyerIds) {
+            SlotGrid[] lawyerGrids = grids.get(lawyerId);
+            dayCount = Math.max(dayCount, lawyerGrids.length);
+            long[] occupied = new long[lawyerGrids.length];
+            boolean complete = true;
+            long oldest = now;
+            String key = lawyerKey(lawyerId);
+            for (int day = 0; day < lawyerGrids.length && complete; day++) {
+                DayOccupancy entry = days.get(new DayKey(lawyerId, from.plusDays(day)));
+                if (entry != null && !isExpired(entry.createdAtMillis(), now) && entry.grid().equals(lawyerGrids[day])
+                        && isCurrent(key, entry.sequence())) {
+                    occupied[day] = entry.occupied();
+                    oldest = Math.min(oldest, entry.createdAtMillis());
+                } else {
+                    complete = false;
+                }
+            }
+            record("availability", complete);
+            if (complete) {
+                recordAge("availability", now - oldest);
+                result.put(lawyerId, occupied);
+            } else {
+                missing.add(lawyerId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        for (int lawyerId : missing) {
+            result.put(lawyerId, new long[grids.get(lawyerId).length]);
+        }
+        LocalDateTime rangeStart = from.atStartOfDay();
+        LocalDateTime rangeEnd = from.plusDays(dayCount).atStartOfDay();
+        LocalDateTime earliestStart = rangeStart.minus(intervalIndex.getMaxDuration());
+        if (missing.size() == 1) {
+            int lawyerId = missing.get(0);
+            for (BookedInterval interval : scheduleRepository.findBlockingIntervalsBetween(lawyerId, rangeStart, rangeEnd,
+                    earliestStart, AppointmentStatus.RELEASED)) {
+                fill(result.get(lawyerId), from, grids.get(lawyerId), interval);
+            }
+        } else {
+            for (LawyerBookedInterval interval : scheduleRepository.findBlockingIntervalsForLawyers(missing, rangeStart,
+                    rangeEnd, earliestStart, AppointmentStatus.RELEASED)) {
+                fill(result.get(interval.lawyerId()), from, grids.get(interval.lawyerId()), interval.toInterval());
+            }
+        }
+
+        for (int lawyerId : missing) {
+            // Changed while loading: serve what was read, but do not keep it. A change landing
+            // after this check still wins, as the entry then fails isCurrent on read.
+            if (!isCurrent(lawyerKey(lawyerId), loadSequence)) {
+                continue;
+            }
+            SlotGrid[] lawyerGrids = grids.get(lawyerId);
+            long[] occupied = result.get(lawyerId);
+            for (int day = 0; day < lawyerGrids.length; day++) {
+                if (days.size() >= maxDays) {
+                    evictExpired();
+                    if (days.size() >= maxDays) {
+                        break;
+                    }
+                }
+                days.put(new DayKey(lawyerId, from.plusDays(day)), new DayOccupancy(lawyerGrids[day], occupied[day], now, loadSequence));
+            }
+        }
+        return result;
+    }
+
+    public List<ScheduleEntity> upcomingForLawyer(int lawyerId, Supplier<List<ScheduleEntity>> loader) {
+        return upcoming(lawyerKey(lawyerId), loader);
+    }
+
+    public List<ScheduleEntity> upcomingForClient(int clientId, Supplier<List<ScheduleEntity>> loader) {
+        return upcoming(clientKey(clientId), loader);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onScheduleChanged(ScheduleChangedEvent event) {
+        String lawyerKey = lawyerKey(event.lawyerId());
+        String clientKey = clientKey(event.clientId());
+        Change change = new Change(sequence.incrementAndGet(), System.currentTimeMillis());
+        changes.merge(lawyerKey, change, ScheduleReadCache::later);
+        changes.merge(clientKey, change, ScheduleReadCache::later);
+        invalidateDays(event.lawyerId(), event.start(), event.end());
+        if (event.previousStart() != null) {
+            invalidateDays(event.lawyerId(), event.previousStart(), event.previousEnd());
+        }
+        lists.remove(lawyerKey);
+        lists.remove(clientKey);
+        meterRegistry.counter("ally.schedule.cache.invalidations").increment();
+    }
+
+    @Scheduled(fixedDelayString = "${schedule.cache.eviction-interval-ms:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        days.values().removeIf(entry -> isExpired(entry.createdAtMillis(), now));
+        lists.values().removeIf(entry -> isExpired(entry.createdAtMillis(), now));
+        // Every entry loaded before such a change has expired too
+        changes.values().removeIf(change -> isExpired(change.atMillis(), now));
+    }
+
+    private List<ScheduleEntity> upcoming(String key, Supplier<List<ScheduleEntity>> loader) {
+        long now = System.currentTimeMillis();
+        long loadSequence = sequence.get();
+        CachedList entry = lists.get(key);
+        boolean hit = entry != null && !isExpired(entry.createdAtMillis(), now) && isCurrent(key, entry.sequence());
+        record("upcoming", hit);
+        if (hit) {
+            recordAge("upcoming", now - entry.createdAtMillis());
+            return startedDropped(entry.schedules());
+        }
+
+        List<ScheduleEntity> loaded = List.copyOf(loader.get());
+        if (isCurrent(key, loadSequence)) {
+            if (lists.size() >= maxLists) {
+                evictExpired();
+            }
+            if (lists.size() < maxLists) {
+                lists.put(key, new CachedList(loaded, now, loadSequence));
+            }
+        }
+        return loaded;
+    }
+
+    // Lists are ordered by start time, so appointments that have started form a prefix
+    private static List<ScheduleEntity> startedDropped(List<ScheduleEntity> schedules) {
+        LocalDateTime now = LocalDateTime.now();
+        int first = 0;
+        while (first < schedules.size() && !schedules.get(first).getBookingStartTime().isAfter(now)) {
+            first++;
+        }
+        return first == 0 ? schedules : schedules.subList(first, schedules.size());
+    }
+
+    private void invalidateDays(int lawyerId, LocalDateTime start, LocalDateTime end) {
+        // An appointment ending at midnight does not touch the next day
+        LocalDate last = end.toLocalDate().atStartOfDay().equals(end) ? end.toLocalDate().minusDays(1) : end.toLocalDate();
+        for (LocalDate date = start.toLocalDate(); !date.isAfter(last); date = date.plusDays(1)) {
+            days.remove(new DayKey(lawyerId, date));
+        }
+    }
+
+    static void fill(long[] occupied, LocalDate from, SlotGrid[] grids, BookedInterval interval) {
+        int first = (int) Math.max(0, ChronoUnit.DAYS.between(from, interval.start().toLocalDate()));
+        int last = (int) Math.min(occupied.length - 1, ChronoUnit.DAYS.between(from, interval.end().toLocalDate()));
+        for (int day = first; day <= last; day++) {
+            occupied[day] |= grids[day].occupiedMask(from.plusDays(day), interval);
+        }
+    }
+
+    /**
+     * True if nothing of the user changed after loadSequence was read. A change takes its
+     * sequence after its commit, so a load that read a later sequence saw the change.
+     */
+    private boolean isCurrent(String key, long loadSequence) {
+        Change change = changes.get(key);
+        return change == null || change.sequence() <= loadSequence;
+    }
+
+    private static Change later(Change a, Change b) {
+        return a.sequence() >= b.sequence() ? a : b;
+    }
+
+    private boolean isExpired(long createdAtMillis, long now) {
+        return now - createdAtMillis > TimeUnit.SECONDS.toMillis(ttlSeconds);
+    }
+
+    private void record(String cache, boolean hit) {
+        meterRegistry.counter("ally.schedule.cache.requests", "cache", cache, "result", hit ? "hit" : "miss").increment();
+    }
+
+    private void recordAge(String cache, long ageMillis) {
+        meterRegistry.timer("ally.schedule.cache.age", "cache", cache).record(ageMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static String lawyerKey(int lawyerId) {
+        return "lawyer:" + lawyerId;
+    }
+
+    private static String clientKey(int clientId) {
+        return "client:" + clientId;
+    }
+}
@@ -2,16 +2,19 @@ package com.wachichaw.Schedule.Service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import com.wachichaw.Schedule.Entity.ScheduleEntity;
 import com.wachichaw.Schedule.Entity.AppointmentStatus;
+import com.wachichaw.Schedule.Entity.ReminderKind;
 import com.wachichaw.Schedule.Repo.ScheduleRepository;
 import com.wachichaw.Schedule.DTO.AvailableSlotResponseDTO;
 import com.wachichaw.Schedule.DTO.TimeSlotDTO;
@@ -36,6 +39,19 @@ public class ScheduleService {
     private LegalCaseRepo legalCaseRepo;
     @Autowired
     private ReminderService reminderService;
+    @Autowired
+    private LawyerIntervalIndex intervalIndex;
+    @Autowired
+    private BookingGuard bookingGuard;
+    @Autowired
+    private AvailabilityRulesService availabilityRules;
+    @Autowired
+    private ScheduleReadCache readCache;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${schedule.availability.max-days:62}")
+    private int maxAvailabilityDays;
 
     public ScheduleService(ScheduleRepository scheduleRepository) {
         this.scheduleRepository = scheduleRepository;
@@ -56,21 +72,25 @@ public class ScheduleService {
             throw new RuntimeException("Cannot book appointments in the past");
         }
 
-        // Calculate end time (1-hour consultation)
-        LocalDateTime endTime = startTime.plusHours(1);
-
-        // Check for scheduling conflicts
-        if (hasSchedulingConflict(lawyer, startTime, endTime)) {
-            throw new RuntimeException("Lawyer is not available at the requested time slot");
-        }        // Create and save the schedule
-        ScheduleEntity schedule = new ScheduleEntity();
-        schedule.setClient(client);
-        schedule.setLawyer(lawyer);
-        schedule.setBookingStartTime(startTime);
-        schedule.setBookingEndTime(endTime);
-        schedule.setBooked(true); // Set is_booked to true for new appointments
-
-        return scheduleRepository.save(schedule);
+        // The appointment is one slot of the lawyer's working hours that day
+        LocalDateTime endTime = availabilityRules.slotEnd(lawyer.getUserId(), startTime);
+
+        // Check for conflicts and save with no other booking for this lawyer in between
+        return bookingGuard.book(lawyer.getUserId(), () -> {
+            if (hasSchedulingConflict(lawyer, startTime, endTime)) {
+                throw new RuntimeException("Lawyer is not available at the requested time slot");
+            }
+
+            // Create and save the schedule
+            ScheduleEntity schedule = new ScheduleEntity();
+            schedule.setClient(client);
+            schedule.setLawyer(lawyer);
+            schedule.setBookingStartTime(startTime);
+            schedule.setBookingEndTime(endTime);
+            schedule.setBooked(true); // Set is_booked to true for new appointments
+
+            return saveAndPublish(schedule);
+        });
     }
 
     /**
@@ -103,24 +123,26 @@ public class ScheduleService {
             throw new RuntimeException("Cannot book appointments in the past");
         }
 
-        // Calculate end time (1-hour consultation)
-        LocalDateTime endTime = startTime.plusHours(1);
-
-        // Check for scheduling conflicts
-        if (hasSchedulingConflict(lawyer, startTime, endTime)) {
-            throw new RuntimeException("Lawyer is not available at the requested time slot");
-        }
+        // The appointment is one slot of the lawyer's working hours that day
+        LocalDateTime endTime = availabilityRules.slotEnd(lawyer.getUserId(), startTime);
 
-        // Create and save the schedule with case reference
-        ScheduleEntity schedule = new ScheduleEntity();
-        schedule.setClient(client);
-        schedule.setLawyer(lawyer);
-        schedule.setLegalCase(legalCase);
-        schedule.setBookingStartTime(startTime);
-        schedule.setBookingEndTime(endTime);
-        schedule.setBooked(true);
+        // Check for conflicts and save with no other booking for this lawyer in between
+        return bookingGuard.book(lawyer.getUserId(), () -> {
+            if (hasSchedulingConflict(lawyer, startTime, endTime)) {
+                throw new RuntimeException("Lawyer is not available at the requested time slot");
+            }
 
-        return scheduleRepository.save(schedule);
+            // Create and save the schedule with case reference
+            ScheduleEntity schedule = new ScheduleEntity();
+            schedule.setClient(client);
+            schedule.setLawyer(lawyer);
+            schedule.setLegalCase(legalCase);
+            schedule.setBookingStartTime(startTime);
+            schedule.setBookingEndTime(endTime);
+            schedule.setBooked(true);
+
+            return saveAndPublish(schedule);
+        });
     }
 
     /**
@@ -141,14 +163,16 @@ public class ScheduleService {
      * Get upcoming schedules for a lawyer (for dashboard)
      */
     public List<ScheduleEntity> getUpcomingSchedulesForLawyer(LawyerEntity lawyer) {
-        return scheduleRepository.findByLawyerAndBookingStartTimeAfterOrderByBookingStartTime(lawyer, LocalDateTime.now());
+        return readCache.upcomingForLawyer(lawyer.getUserId(),
+                () -> scheduleRepository.findByLawyerAndBookingStartTimeAfterOrderByBookingStartTime(lawyer, LocalDateTime.now()));
     }
 
     /**
      * Get upcoming schedules for a client
      */
     public List<ScheduleEntity> getUpcomingSchedulesForClient(ClientEntity client) {
-        return scheduleRepository.findByClientAndBookingStartTimeAfterOrderByBookingStartTime(client, LocalDateTime.now());
+        return readCache.upcomingForClient(client.getUserId(),
+                () -> scheduleRepository.findByClientAndBookingStartTimeAfterOrderByBookingStartTime(client, LocalDateTime.now()));
     }
 
     /**
@@ -162,102 +186,87 @@ public class ScheduleService {
      * Check if a lawyer has any scheduling conflicts for the given time slot
      */
     public boolean hasSchedulingConflict(LawyerEntity lawyer, LocalDateTime startTime, LocalDateTime endTime) {
-        List<ScheduleEntity> conflicts = scheduleRepository.findConflictingSchedules(lawyer, startTime, endTime);
-        return !conflicts.isEmpty();
+        return hasSchedulingConflict(lawyer, startTime, endTime, 0);
+    }
+
+    /**
+     * Taken slots are answered by the in-memory interval index. A slot it reports as free is
+     * confirmed with one indexed query, so the database stays authoritative.
+     */
+    private boolean hasSchedulingConflict(LawyerEntity lawyer, LocalDateTime startTime, LocalDateTime endTime, int excludeScheduleId) {
+        int lawyerId = lawyer.getUserId();
+        if (intervalIndex.overlaps(lawyerId, startTime, endTime, excludeScheduleId)) {
+            return true;
+        }
+        boolean conflict = scheduleRepository.existsBlockingConflict(lawyerId, startTime, endTime,
+                startTime.minus(intervalIndex.getMaxDuration()), excludeScheduleId, AppointmentStatus.RELEASED);
+        if (conflict) {
+            // Booked elsewhere since the index was loaded
+            intervalIndex.invalidate(lawyerId);
+        }
+        return conflict;
     }
 
     /**
      * Get all available time slots for a lawyer on a specific date
      * This replaces multiple individual availability checks with a single operation
-     * Optimized version that reduces database queries from 9 to 1
      */
     public AvailableSlotResponseDTO getAvailableSlots(int lawyerId, LocalDate date) {
-        // Validate lawyer exists
-        LawyerEntity lawyer = lawyerRepo.findById(lawyerId)
-                .orElseThrow(() -> new RuntimeException("Lawyer not found with ID: " + lawyerId));
-        
-        // Define standard business hours (9 AM to 5 PM, 1-hour slots)
-        List<String> standardTimeSlots = Arrays.asList(
-            "09:00 AM", "10:00 AM", "11:00 AM", "12:00 PM",
-            "01:00 PM", "02:00 PM", "03:00 PM", "04:00 PM", "05:00 PM"
-        );
-        
-        // Get start and end of the day
-        LocalDateTime dayStart = date.atTime(9, 0);  // 9 AM
-        LocalDateTime dayEnd = date.atTime(18, 0);   // 6 PM
-        
-        // Single database query for all conflicting schedules for the entire day
-        List<ScheduleEntity> existingSchedules = scheduleRepository
-                .findByLawyerAndBookingStartTimeBetween(lawyer, dayStart, dayEnd);
-        
-        // Calculate available and booked slots
-        List<TimeSlotDTO> availableSlots = new ArrayList<>();
-        List<TimeSlotDTO> bookedSlots = new ArrayList<>();
-        
-        for (String timeSlot : standardTimeSlots) {
-            LocalDateTime slotStart = parseTimeSlot(date, timeSlot);
-            LocalDateTime slotEnd = slotStart.plusHours(1);
-            
-            // Check if this time slot conflicts with any existing schedule
-            boolean isAvailable = existingSchedules.stream()
-                    .noneMatch(schedule ->
-                        schedule.getBookingStartTime().isBefore(slotEnd) &&
-                        schedule.getBookingEndTime().isAfter(slotStart)
-                    );
-            
-            String nextTimeSlot = getNextHour(timeSlot);
-            TimeSlotDTO slot = new TimeSlotDTO(timeSlot, nextTimeSlot, isAvailable);
-            
-            if (isAvailable) {
-                availableSlots.add(slot);
-            } else {
-                slot.setUnavailableReason("Booked");
-                bookedSlots.add(slot);
-            }
-        }
-        
-        return new AvailableSlotResponseDTO(date.toString(), availableSlots, bookedSlots, "9:00 AM - 6:00 PM");
+        return getAvailability(lawyerId, date, date).get(0);
     }
 
     /**
-     * Helper method to parse time slot string to LocalDateTime
+     * Get available and booked slots for every day from one date to another (inclusive)
+     * Each day's booked slots are a bitmask of the appointments overlapping it, served from
+     * the read cache; days it does not hold are loaded together in one query
      */
-    private LocalDateTime parseTimeSlot(LocalDate date, String timeSlot) {
-        // Parse time slot like "09:00 AM" to LocalDateTime
-        String[] parts = timeSlot.split(" ");
-        String timePart = parts[0];
-        String amPm = parts[1];
-        
-        String[] hourMin = timePart.split(":");
-        int hour = Integer.parseInt(hourMin[0]);
-        int minute = Integer.parseInt(hourMin[1]);
-        
-        // Convert to 24-hour format
-        if (amPm.equals("PM") && hour != 12) {
-            hour += 12;
-        } else if (amPm.equals("AM") && hour == 12) {
-            hour = 0;
+    public List<AvailableSlotResponseDTO> getAvailability(int lawyerId, LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new RuntimeException("End date must not be before start date");
         }
-        
-        return date.atTime(hour, minute);
+        int dayCount = (int) ChronoUnit.DAYS.between(from, to) + 1;
+        if (dayCount > maxAvailabilityDays) {
+            throw new RuntimeException("Availability can be requested for at most " + maxAvailabilityDays + " days at a time");
+        }
+
+        // Validate lawyer exists
+        if (!lawyerRepo.existsById(lawyerId)) {
+            throw new RuntimeException("Lawyer not found with ID: " + lawyerId);
+        }
+
+        // Each day's slots and breaks from the lawyer's rules
+        AvailabilityRulesService.CompiledRules rules = availabilityRules.rulesFor(lawyerId);
+        SlotGrid[] grids = new SlotGrid[dayCount];
+        for (int day = 0; day < dayCount; day++) {
+            grids[day] = rules.grid(from.plusDays(day));
+        }
+
+        long[] occupied = readCache.occupancy(lawyerId, from, grids);
+
+        List<AvailableSlotResponseDTO> days = new ArrayList<>(dayCount);
+        for (int day = 0; day < dayCount; day++) {
+            LocalDate date = from.plusDays(day);
+            days.add(toAvailableSlots(date, grids[day], occupied[day], rules.breaks(date)));
+        }
+        return days;
     }
 
-    /**
-     * Helper method to get the next hour time slot
-     */
-    private String getNextHour(String timeSlot) {
-        switch (timeSlot) {
-            case "09:00 AM": return "10:00 AM";
-            case "10:00 AM": return "11:00 AM";
-            case "11:00 AM": return "12:00 PM";
-            case "12:00 PM": return "01:00 PM";
-            case "01:00 PM": return "02:00 PM";
-            case "02:00 PM": return "03:00 PM";
-            case "03:00 PM": return "04:00 PM";
-            case "04:00 PM": return "05:00 PM";
-            case "05:00 PM": return "06:00 PM";
-            default: return timeSlot;
+    private AvailableSlotResponseDTO toAvailableSlots(LocalDate date, SlotGrid grid, long occupied, long breaks) {
+        List<TimeSlotDTO> availableSlots = new ArrayList<>();
+        List<TimeSlotDTO> bookedSlots = new ArrayList<>();
+        long free = grid.allSlots() & ~occupied & ~breaks;
+        for (int slot = 0; slot < grid.getSlotCount(); slot++) {
+            long bit = 1L << slot;
+            boolean isAvailable = (free & bit) != 0;
+            TimeSlotDTO timeSlot = new TimeSlotDTO(grid.label(slot), grid.label(slot + 1), isAvailable);
+            if (isAvailable) {
+                availableSlots.add(timeSlot);
+            } else {
+                timeSlot.setUnavailableReason((breaks & bit) != 0 ? "Break" : "Booked");
+                bookedSlots.add(timeSlot);
+            }
         }
+        return new AvailableSlotResponseDTO(date.toString(), availableSlots, bookedSlots, grid.workingHours());
     }
 
     /**
@@ -281,7 +290,7 @@ public class ScheduleService {
         schedule.setStatus(AppointmentStatus.CANCELLED);
         schedule.setDeclineReason(null); // Clear any decline reason
 
-        return scheduleRepository.save(schedule);
+        return saveAndPublish(schedule);
     }
 
     /**
@@ -317,9 +326,12 @@ public class ScheduleService {
         schedule.setStatus(AppointmentStatus.ACCEPTED);
         schedule.setDeclineReason(null); // Clear any previous decline reason
         
-        reminderService.sendAppointmentReminders(schedule);
-        
-        return scheduleRepository.save(schedule);
+        ScheduleEntity saved = saveAndPublish(schedule);
+
+        // Sent in the background once saved
+        reminderService.enqueueAppointmentReminders(saved, ReminderKind.ACCEPTED);
+
+        return saved;
     }
 
     /**
@@ -342,7 +354,7 @@ public class ScheduleService {
         schedule.setStatus(AppointmentStatus.DECLINED);
         schedule.setDeclineReason(reason);
 
-        return scheduleRepository.save(schedule);
+        return saveAndPublish(schedule);
     }
 
     /**
@@ -368,22 +380,48 @@ public class ScheduleService {
             throw new RuntimeException("Cannot reschedule to a time in the past");
         }
 
-        // Check for scheduling conflicts with the new time
-        if (hasSchedulingConflict(schedule.getLawyer(), newStartTime, newEndTime)) {
-            throw new RuntimeException("Lawyer is not available at the requested time slot");
+        // Validate the new time range
+        if (!newEndTime.isAfter(newStartTime)) {
+            throw new RuntimeException("End time must be after start time");
         }
+        if (newEndTime.isAfter(newStartTime.plus(intervalIndex.getMaxDuration()))) {
+            throw new RuntimeException("Appointments cannot be longer than " + intervalIndex.getMaxDuration().toHours() + " hours");
+        }
+        availabilityRules.validateRange(schedule.getLawyer().getUserId(), newStartTime, newEndTime);
+
+        // Check for conflicts with the new time, ignoring the slot being moved, and save
+        // with no other booking for this lawyer in between
+        return bookingGuard.book(schedule.getLawyer().getUserId(), () -> {
+            if (hasSchedulingConflict(schedule.getLawyer(), newStartTime, newEndTime, scheduleId)) {
+                throw new RuntimeException("Lawyer is not available at the requested time slot");
+            }
+            LocalDateTime previousStart = schedule.getBookingStartTime();
+            LocalDateTime previousEnd = schedule.getBookingEndTime();
 
-        // Update the booking times
-        schedule.setBookingStartTime(newStartTime);
-        schedule.setBookingEndTime(newEndTime);
+            // Update the booking times
+            schedule.setBookingStartTime(newStartTime);
+            schedule.setBookingEndTime(newEndTime);
 
-        // Reset status to PENDING (lawyer needs to accept again)
-        schedule.setStatus(AppointmentStatus.PENDING);
-        schedule.setDeclineReason(null); // Clear any previous decline reason
+            // Reset status to PENDING (lawyer needs to accept again)
+            schedule.setStatus(AppointmentStatus.PENDING);
+            schedule.setDeclineReason(null); // Clear any previous decline reason
 
-        reminderService.sendAppointmentReminders(schedule);
+            ScheduleEntity saved = scheduleRepository.save(schedule);
+            eventPublisher.publishEvent(ScheduleChangedEvent.of(saved, previousStart, previousEnd));
 
-        return scheduleRepository.save(schedule);
+            // Sent in the background once the booking commits
+            reminderService.enqueueAppointmentReminders(saved, ReminderKind.RESCHEDULED);
+            return saved;
+        });
+    }
+
+    /**
+     * Save a schedule and let listeners such as the interval index know it changed
+     */
+    private ScheduleEntity saveAndPublish(ScheduleEntity schedule) {
+        ScheduleEntity saved = scheduleRepository.save(schedule);
+        eventPublisher.publishEvent(ScheduleChangedEvent.of(saved));
+        return saved;
     }
 
     /**
@@ -0,0 +1,149 @@
+package com.wachichaw.Schedule.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Objects;
+
+import com.wachichaw.Schedule.DTO.BookedInterval;
+
+/**
+ * The bookable slots of one day: consecutive slots of equal length from a first start time.
+ *
+ * Slot i is bit i of a long, so a day holds at most 64 slots and availability is a
+ * mask operation: occupied = OR of each appointment's slot range, free = the slots not occupied.
+ * Slot labels ("09:00 AM") are formatted once per grid.
+ */
+public final class SlotGrid {
+
+    public static final int MAX_SLOTS = 64;
+
+    private static final DateTimeFormatter SLOT_LABEL = DateTimeFormatter.ofPattern("hh:mm a", Locale.US);
+    private static final DateTimeFormatter HOURS_LABEL = DateTimeFormatter.ofPattern("h:mm a", Locale.US);
+
+    /** 9 AM to 6 PM in 1-hour slots, the hours consultations have always been offered. */
+    public static final SlotGrid STANDARD = new SlotGrid(LocalTime.of(9, 0), Duration.ofHours(1), 9);
+
+    /** A day without slots. */
+    public static final SlotGrid CLOSED = new SlotGrid(LocalTime.MIDNIGHT, Duration.ofHours(1), 0);
+
+    private final LocalTime firstStart;
+    private final Duration slotLength;
+    private final int slotCount;
+    private final long slotSeconds;
+    // labels[i] is the start of slot i; labels[slotCount] the end of the last slot
+    private final String[] labels;
+
+    public SlotGrid(LocalTime firstStart, Duration slotLength, int slotCount) {
+        if (slotCount < 0 || slotCount > MAX_SLOTS) {
+            throw new IllegalArgumentException("A day can have at most " + MAX_SLOTS + " slots");
+        }
+        if (slotLength.isNegative() || slotLength.isZero()) {
+            throw new IllegalArgumentException("Slot length must be positive");
+        }
+        this.firstStart = firstStart;
+        this.slotLength = slotLength;
+        this.slotCount = slotCount;
+        this.slotSeconds = slotLength.getSeconds();
+        this.labels = new String[slotCount + 1];
+        for (int i = 0; i <= slotCount; i++) {
+            labels[i] = firstStart.plus(slotLength.multipliedBy(i)).format(SLOT_LABEL);
+        }
+    }
+
+    public LocalTime getFirstStart() {
+        return firstStart;
+    }
+
+    public Duration getSlotLength() {
+        return slotLength;
+    }
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    /** Mask with one bit per slot of the day. */
+    public long allSlots() {
+        return slotCount == MAX_SLOTS ? -1L : (1L << slotCount) - 1;
+    }
+
+    public LocalDateTime slotStart(LocalDate date, int slot) {
+        return date.atTime(firstStart).plus(slotLength.multipliedBy(slot));
+    }
+
+    /**
+     * The slot starting exactly at this time, or -1 if no slot of the day starts then.
+     */
+    public int slotAt(LocalDate date, LocalDateTime time) {
+        long offset = Duration.between(date.atTime(firstStart), time).getSeconds();
+        if (offset < 0 || offset % slotSeconds != 0 || offset / slotSeconds >= slotCount) {
+            return -1;
+        }
+        return (int) (offset / slotSeconds);
+    }
+
+    /**
+     * Slots overlapping [start, end) on any day, e.g. for a recurring break.
+     */
+    public long mask(LocalTime start, LocalTime end) {
+        LocalDate anyDay = LocalDate.EPOCH;
+        return occupiedMask(anyDay, new BookedInterval(0, anyDay.atTime(start), anyDay.atTime(end)));
+    }
+
+    /**
+     * Slots of this date that the interval overlaps, even partly.
+     */
+    public long occupiedMask(LocalDate date, BookedInterval interval) {
+        if (slotCount == 0) {
+            return 0L;
+        }
+        LocalDateTime gridStart = date.atTime(firstStart);
+        long from = Math.floorDiv(Duration.between(gridStart, interval.start()).getSeconds(), slotSeconds);
+        long to = -Math.floorDiv(-Duration.between(gridStart, interval.end()).getSeconds(), slotSeconds);
+        from = Math.max(from, 0);
+        to = Math.min(to, slotCount);
+        if (from >= to) {
+            return 0L;
+        }
+        return rangeMask((int) from, (int) to);
+    }
+
+    /** Label of a slot boundary: the start of slot i, or with i = slot count the end of the day's last slot. */
+    public String label(int boundary) {
+        return labels[boundary];
+    }
+
+    /** e.g. "9:00 AM - 6:00 PM", or "Closed" without slots. */
+    public String workingHours() {
+        if (slotCount == 0) {
+            return "Closed";
+        }
+        return firstStart.format(HOURS_LABEL) + " - " + firstStart.plus(slotLength.multipliedBy(slotCount)).format(HOURS_LABEL);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof SlotGrid grid)) {
+            return false;
+        }
+        return slotCount == grid.slotCount && firstStart.equals(grid.firstStart) && slotLength.equals(grid.slotLength);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(firstStart, slotLength, slotCount);
+    }
+
+    /** Bits [from, to). */
+    static long rangeMask(int from, int to) {
+        long upTo = to == MAX_SLOTS ? -1L : (1L << to) - 1;
+        return upTo & ~((1L << from) - 1);
+    }
+}
@@ -0,0 +1,68 @@
+package com.wachichaw.Ally.StandIn;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Latency distribution for a stand-in endpoint, parsed from a short spec:
+ *
+ *   fixed:200           always 200 ms
+ *   uniform:100:400     uniform between 100 and 400 ms
+ *   lognormal:300:0.5   median 300 ms, sigma 0.5 (long right tail, like real LLM calls)
+ */
+public final class LatencyProfile {
+
+    private enum Kind { FIXED, UNIFORM, LOGNORMAL }
+
+    private final Kind kind;
+    private final double a;
+    private final double b;
+
+    private LatencyProfile(Kind kind, double a, double b) {
+        this.kind = kind;
+        this.a = a;
+        this.b = b;
+    }
+
+    public static LatencyProfile parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        switch (parts[0].toLowerCase()) {
+            case "fixed":
+                return new LatencyProfile(Kind.FIXED, Double.parseDouble(parts[1]), 0);
+            case "uniform":
+                return new LatencyProfile(Kind.UNIFORM, Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+            case "lognormal":
+                return new LatencyProfile(Kind.LOGNORMAL, Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+            default:
+                throw new IllegalArgumentException("Unknown latency profile: " + spec);
+        }
+    }
+
+    public long sampleMillis() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (kind) {
+            case UNIFORM:
+                return (long) (a + random.nextDouble() * (b - a));
+            case LOGNORMAL:
+                return (long) (a * Math.exp(b * random.nextGaussian()));
+            default:
+                return (long) a;
+        }
+    }
+
+    public void sleep() {
+        long millis = sampleMillis();
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return kind.name().toLowerCase() + ":" + a + (kind == Kind.FIXED ? "" : ":" + b);
+    }
+}
@@ -0,0 +1,89 @@
+package com.wachichaw.Ally.StandIn;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Imitates the Python RAG service (Ally-FinetuneRAG/main.py):
+ *
+ *   POST /api/validate   classification verdict
+ *   POST /search         top cases for a query
+ *   GET  /health         liveness
+ *
+ * Point the app at it with rag.service.url.
+ */
+public class StandInRagServer extends StandInServer {
+
+    private final LatencyProfile validateLatency;
+    private final LatencyProfile searchLatency;
+    private final double validRate;
+    private final int caseCount;
+    private final int caseChars;
+    private final AtomicLong requests = new AtomicLong();
+
+    public StandInRagServer(int port, LatencyProfile validateLatency, LatencyProfile searchLatency, double errorRate,
+                            double validRate, int caseCount, int caseChars) throws IOException {
+        super(port, errorRate);
+        this.validateLatency = validateLatency;
+        this.searchLatency = searchLatency;
+        this.validRate = validRate;
+        this.caseCount = caseCount;
+        this.caseChars = caseChars;
+        server.createContext("/api/validate", this::validate);
+        server.createContext("/search", this::search);
+        server.createContext("/health", this::health);
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    private void validate(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        readBody(exchange);
+        validateLatency.sleep();
+        if (shouldFail()) {
+            sendJson(exchange, 500, "{\"detail\":\"Validation failed\"}");
+            return;
+        }
+        boolean valid = ThreadLocalRandom.current().nextDouble() < validRate;
+        sendJson(exchange, 200, "{\"is_valid\":" + valid
+                + ",\"rejection_reason\":" + (valid ? "null" : jsonString("This question is not about Philippine law."))
+                + ",\"confidence\":0.92,\"method\":\"gemini\"}");
+    }
+
+    private void search(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        String body = readBody(exchange);
+        searchLatency.sleep();
+        if (shouldFail()) {
+            sendJson(exchange, 500, "{\"detail\":\"Search failed\"}");
+            return;
+        }
+
+        StringBuilder json = new StringBuilder(caseCount * (caseChars + 200) + 100).append("{\"cases\":[");
+        for (int i = 0; i < caseCount; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            double score = 90.0 - i * 7.5;
+            json.append("{\"title\":").append(jsonString("Stand-in v. Case " + (i + 1)))
+                .append(",\"score\":").append(score)
+                .append(",\"content\":").append(jsonString(filler(caseChars)))
+                .append(",\"citation\":").append(jsonString("G.R. No. " + (100000 + i)))
+                .append(",\"section\":\"ruling\"}");
+        }
+        json.append("],\"count\":").append(caseCount)
+            .append(",\"query\":").append(jsonString(body.length() > 200 ? body.substring(0, 200) : body))
+            .append(",\"rejected\":false,\"confidence\":0.9}");
+        sendJson(exchange, 200, json.toString());
+    }
+
+    private void health(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        sendJson(exchange, 200, "{\"status\":\"healthy\",\"classifier\":\"stand-in\"}");
+    }
+}
@@ -0,0 +1,58 @@
+package com.wachichaw.Ally.StandIn;
+
+/**
+ * Starts both stand-ins for offline load tests of the chat path.
+ *
+ * Run from the IDE, or:
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.wachichaw.Ally.StandIn.StandInServers \
+ *       -Dstandin.vertex.latency=lognormal:1500:0.4 -Dstandin.rag.error-rate=0.02
+ *
+ * then start the app with the properties printed on startup.
+ *
+ * System properties (defaults in brackets):
+ *   standin.vertex.port [8091]          standin.rag.port [8092]
+ *   standin.vertex.latency [lognormal:1200:0.4]
+ *   standin.vertex.error-rate [0]       standin.vertex.response-chars [1500]
+ *   standin.vertex.stream-chunks [8]
+ *   standin.rag.validate.latency [lognormal:400:0.3]
+ *   standin.rag.search.latency [lognormal:600:0.3]
+ *   standin.rag.error-rate [0]          standin.rag.valid-rate [0.9]
+ *   standin.rag.cases [3]               standin.rag.case-chars [1200]
+ */
+public final class StandInServers {
+
+    private StandInServers() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        StandInVertexServer vertex = new StandInVertexServer(
+                Integer.getInteger("standin.vertex.port", 8091),
+                LatencyProfile.parse(System.getProperty("standin.vertex.latency", "lognormal:1200:0.4")),
+                Double.parseDouble(System.getProperty("standin.vertex.error-rate", "0")),
+                Integer.getInteger("standin.vertex.response-chars", 1500),
+                Integer.getInteger("standin.vertex.stream-chunks", 8));
+
+        StandInRagServer rag = new StandInRagServer(
+                Integer.getInteger("standin.rag.port", 8092),
+                LatencyProfile.parse(System.getProperty("standin.rag.validate.latency", "lognormal:400:0.3")),
+                LatencyProfile.parse(System.getProperty("standin.rag.search.latency", "lognormal:600:0.3")),
+                Double.parseDouble(System.getProperty("standin.rag.error-rate", "0")),
+                Double.parseDouble(System.getProperty("standin.rag.valid-rate", "0.9")),
+                Integer.getInteger("standin.rag.cases", 3),
+                Integer.getInteger("standin.rag.case-chars", 1200));
+
+        vertex.start();
+        rag.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            vertex.close();
+            rag.close();
+        }));
+
+        System.out.println("Stand-in servers running. Start the app with:");
+        System.out.println("  --google.vertex.base-url=" + vertex.getBaseUrl());
+        System.out.println("  --google.vertex.auth.enabled=false");
+        System.out.println("  --rag.service.url=" + rag.getBaseUrl());
+        Thread.currentThread().join();
+    }
+}
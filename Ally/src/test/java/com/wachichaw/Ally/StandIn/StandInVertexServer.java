@@ -0,0 +1,121 @@
+package com.wachichaw.Ally.StandIn;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Imitates the Vertex AI endpoint API used by GeminiChatService:
+ *
+ *   POST .../endpoints/{id}:generateContent
+ *   POST .../endpoints/{id}:streamGenerateContent   (JSON array, or SSE with ?alt=sse)
+ *
+ * Point the app at it with google.vertex.base-url and google.vertex.auth.enabled=false.
+ */
+public class StandInVertexServer extends StandInServer {
+
+    private final LatencyProfile latency;
+    private final int responseChars;
+    private final int streamChunks;
+    private final AtomicLong requests = new AtomicLong();
+
+    public StandInVertexServer(int port, LatencyProfile latency, double errorRate, int responseChars, int streamChunks)
+            throws IOException {
+        super(port, errorRate);
+        this.latency = latency;
+        this.responseChars = responseChars;
+        this.streamChunks = Math.max(1, streamChunks);
+        server.createContext("/", this::handle);
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        String path = exchange.getRequestURI().getPath();
+        readBody(exchange);
+
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            sendJson(exchange, 405, error(405, "Method not allowed", "INVALID_ARGUMENT"));
+        } else if (path.endsWith(":generateContent")) {
+            generate(exchange);
+        } else if (path.endsWith(":streamGenerateContent")) {
+            stream(exchange);
+        } else {
+            sendJson(exchange, 404, error(404, "Unknown method " + path, "NOT_FOUND"));
+        }
+    }
+
+    private void generate(HttpExchange exchange) throws IOException {
+        latency.sleep();
+        if (shouldFail()) {
+            sendJson(exchange, 503, error(503, "The service is currently unavailable.", "UNAVAILABLE"));
+            return;
+        }
+        sendJson(exchange, 200, chunk(filler(responseChars), true));
+    }
+
+    /**
+     * Sends the answer in streamChunks pieces, spreading one latency sample across them.
+     */
+    private void stream(HttpExchange exchange) throws IOException {
+        if (shouldFail()) {
+            latency.sleep();
+            sendJson(exchange, 503, error(503, "The service is currently unavailable.", "UNAVAILABLE"));
+            return;
+        }
+
+        boolean sse = exchange.getRequestURI().getQuery() != null
+                && exchange.getRequestURI().getQuery().contains("alt=sse");
+        long perChunkMillis = latency.sampleMillis() / streamChunks;
+        String text = filler(responseChars);
+        int chunkSize = (int) Math.ceil(text.length() / (double) streamChunks);
+
+        exchange.getResponseHeaders().set("Content-Type", sse ? "text/event-stream" : "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            if (!sse) {
+                out.write('[');
+            }
+            for (int i = 0; i < streamChunks; i++) {
+                pause(perChunkMillis);
+                int from = Math.min(text.length(), i * chunkSize);
+                int to = Math.min(text.length(), from + chunkSize);
+                String json = chunk(text.substring(from, to), i == streamChunks - 1);
+                String frame = sse ? "data: " + json + "\r\n\r\n" : (i > 0 ? "," : "") + json;
+                out.write(frame.getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+            if (!sse) {
+                out.write(']');
+            }
+        }
+    }
+
+    private static String chunk(String text, boolean last) {
+        return "{\"candidates\":[{\"content\":{\"role\":\"model\",\"parts\":[{\"text\":" + jsonString(text) + "}]}"
+                + (last ? ",\"finishReason\":\"STOP\"" : "") + "}],"
+                + "\"usageMetadata\":{\"candidatesTokenCount\":" + Math.max(1, text.length() / 4) + "}}";
+    }
+
+    private static String error(int code, String message, String status) {
+        return "{\"error\":{\"code\":" + code + ",\"message\":" + jsonString(message)
+                + ",\"status\":\"" + status + "\"}}";
+    }
+
+    private static void pause(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.wachichaw.AllyChatAI.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wachichaw.Config.DependencyHealthMonitor;
+
+import io.micrometer.observation.ObservationRegistry;
+
+/**
+ * The model echoes how many turns it was sent; requests are kept to check the history.
+ */
+class GeminiChatServiceTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final List<JsonNode> requests = new ArrayList<>();
+    private boolean down;
+    private GeminiChatService service;
+
+    @BeforeEach
+    void setUp() {
+        VertexAccessTokenManager tokenManager = mock(VertexAccessTokenManager.class);
+        when(tokenManager.getTokenValue()).thenReturn("token");
+        RestTemplate restTemplate = mock(RestTemplate.class);
+        when(restTemplate.postForEntity(anyString(), any(), eq(String.class))).thenAnswer(invocation -> {
+            JsonNode body = mapper.readTree((String) invocation.<HttpEntity<String>>getArgument(1).getBody());
+            requests.add(body);
+            if (down) {
+                throw new IllegalStateException("Vertex AI unavailable");
+            }
+            return ResponseEntity.ok("{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"answer to "
+                    + body.path("contents").size() + " turns\"}]}}]}");
+        });
+        service = new GeminiChatService(tokenManager, restTemplate, ObservationRegistry.NOOP,
+                mock(DependencyHealthMonitor.class));
+        ReflectionTestUtils.setField(service, "maxHistoryTurns", 2);
+        ReflectionTestUtils.setField(service, "historyIdleMinutes", 30L);
+    }
+
+    private int turnsSent() {
+        return requests.get(requests.size() - 1).path("contents").size();
+    }
+
+    @Test
+    void sessionsKeepSeparateHistories() {
+        service.sendMessage("a", "first in a");
+        service.sendMessage("b", "first in b");
+        assertEquals(1, turnsSent());
+
+        assertEquals("answer to 3 turns", service.sendMessage("a", "second in a"));
+        assertEquals("first in a", requests.get(2).path("contents").get(0).path("parts").get(0).path("text").asText());
+    }
+
+    @Test
+    void historyIsCappedAtMaxTurns() {
+        for (int i = 0; i < 4; i++) {
+            service.sendMessage("a", "question " + i);
+        }
+        // Two earlier question/answer pairs plus the new question
+        assertEquals(5, turnsSent());
+        assertEquals("question 1", requests.get(3).path("contents").get(0).path("parts").get(0).path("text").asText());
+    }
+
+    @Test
+    void failedCallLeavesNoTurnBehind() {
+        service.sendMessage("a", "first");
+        down = true;
+        assertTrue(GeminiChatService.isErrorResponse(service.sendMessage("a", "lost")));
+
+        down = false;
+        service.sendMessage("a", "again");
+        // The first pair and the new question, not the failed question
+        assertEquals(3, turnsSent());
+    }
+
+    @Test
+    void resetAndIdleEvictionForgetTheSession() {
+        service.sendMessage("a", "first");
+        service.resetHistory("a");
+        service.sendMessage("a", "second");
+        assertEquals(1, turnsSent());
+
+        ReflectionTestUtils.setField(service, "historyIdleMinutes", -1L);
+        service.evictIdleConversations();
+        service.sendMessage("a", "third");
+        assertEquals(1, turnsSent());
+    }
+}
@@ -0,0 +1,77 @@
+package com.wachichaw.AllyRAG;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+    @Test
+    void opensOnceFailureRateCrossesThresholdAfterMinimumCalls() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 4, 0.5, 60_000, 1);
+        breaker.onFailure(breaker.tryAcquirePermission());
+        breaker.onFailure(breaker.tryAcquirePermission());
+        breaker.onSuccess(breaker.tryAcquirePermission());
+        // 2 of 3 failed, but fewer than minimumCalls
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.onSuccess(breaker.tryAcquirePermission());
+        breaker.onFailure(breaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertNull(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void oldOutcomesLeaveTheWindow() {
+        CircuitBreaker breaker = new CircuitBreaker(4, 4, 0.5, 60_000, 1);
+        breaker.onFailure(breaker.tryAcquirePermission());
+        for (int i = 0; i < 4; i++) {
+            breaker.onSuccess(breaker.tryAcquirePermission());
+        }
+        // The early failure has been pushed out: 1 failure in the last 4 is 25%
+        breaker.onFailure(breaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void halfOpenLetsProbesThroughAndClosesWhenAllSucceed() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 1, 0.5, 0, 2);
+        breaker.onFailure(breaker.tryAcquirePermission());
+
+        CircuitBreaker.State first = breaker.tryAcquirePermission();
+        CircuitBreaker.State second = breaker.tryAcquirePermission();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, first);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, second);
+        assertNull(breaker.tryAcquirePermission());
+
+        breaker.onSuccess(first);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onSuccess(second);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void failedProbeReopens() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 1, 0.5, 60_000, 1);
+        breaker.onFailure(breaker.tryAcquirePermission());
+        breaker.onFailure(CircuitBreaker.State.CLOSED);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        CircuitBreaker probing = new CircuitBreaker(10, 1, 0.5, 0, 1);
+        probing.onFailure(probing.tryAcquirePermission());
+        probing.onFailure(probing.tryAcquirePermission());
+        // Reopened just now; with a zero open duration it reports half-open again at once
+        assertEquals(CircuitBreaker.State.HALF_OPEN, probing.getState());
+    }
+
+    @Test
+    void releasedProbeFreesItsSlot() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 1, 0.5, 0, 1);
+        breaker.onFailure(breaker.tryAcquirePermission());
+        CircuitBreaker.State probe = breaker.tryAcquirePermission();
+        assertNull(breaker.tryAcquirePermission());
+        breaker.release(probe);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.tryAcquirePermission());
+    }
+}
@@ -0,0 +1,46 @@
+package com.wachichaw.AllyRAG;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyTrackerTest {
+
+    @Test
+    void percentilesOfAFullWindow() {
+        LatencyTracker tracker = new LatencyTracker(100);
+        for (int i = 1; i <= 100; i++) {
+            tracker.record(i);
+        }
+        assertEquals(100, tracker.getCount());
+        assertEquals(95, tracker.getP95());
+        assertEquals(99, tracker.getP99());
+    }
+
+    @Test
+    void windowKeepsOnlyTheMostRecentSamples() {
+        LatencyTracker tracker = new LatencyTracker(10);
+        for (int i = 0; i < 10; i++) {
+            tracker.record(1000);
+        }
+        for (int i = 0; i < 10; i++) {
+            tracker.record(10);
+        }
+        assertEquals(10, tracker.getCount());
+        assertEquals(10, tracker.getP99());
+    }
+
+    @Test
+    void percentilesAreRecomputedAfterABatchOfSamples() {
+        LatencyTracker tracker = new LatencyTracker(16);
+        tracker.record(10);
+        assertEquals(10, tracker.getP99());
+        // Fewer than a batch of new samples: the cached value stands
+        tracker.record(500);
+        assertEquals(10, tracker.getP99());
+        for (int i = 0; i < 7; i++) {
+            tracker.record(500);
+        }
+        assertEquals(500, tracker.getP99());
+    }
+}
@@ -0,0 +1,92 @@
+package com.wachichaw.AllyRAG;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class LocalCaseIndexTest {
+
+    @TempDir
+    Path dir;
+
+    private LocalCaseIndex index;
+    private Path workDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path metadata = dir.resolve("metadata.jsonl");
+        Files.writeString(metadata, String.join("\n",
+                chunk("People v. Cruz", "The accused was convicted of estafa for bouncing checks."),
+                chunk("Santos v. Reyes", "Illegal dismissal of an employee entitles him to backwages and separation pay."),
+                chunk("Garcia v. Lim", "The tenant refused to pay rent, so the landlord filed an ejectment case."),
+                chunk("Dela Cruz v. NLRC", "An employee dismissed without due process may claim backwages."),
+                "",
+                chunk("Heirs of Tan", "The estate was divided among the heirs under the last will.")));
+        workDir = dir.resolve("work");
+
+        index = new LocalCaseIndex(new DefaultResourceLoader());
+        ReflectionTestUtils.setField(index, "workDir", workDir.toString());
+        ReflectionTestUtils.setField(index, "minScore", 0.0);
+        Object snapshot = ReflectionTestUtils.invokeMethod(index, "build", new FileSystemResource(metadata));
+        ReflectionTestUtils.setField(index, "snapshot", snapshot);
+    }
+
+    private static String chunk(String title, String text) {
+        return "{\"case_title\":\"" + title + "\",\"case_number\":\"G.R. 1\",\"chunk_type\":\"ruling\",\"text\":\"" + text + "\"}";
+    }
+
+    private static List<String> titles(RagSearchResponse response) {
+        return response.getCases().stream().map(LegalCase::getTitle).toList();
+    }
+
+    @Test
+    void ranksChunksMatchingMoreQueryTermsFirst() {
+        RagSearchResponse response = index.search("employee backwages illegal dismissal", 5);
+        assertEquals(List.of("Santos v. Reyes", "Dela Cruz v. NLRC"), titles(response));
+        assertTrue(response.getCases().get(0).getScore() > response.getCases().get(1).getScore());
+        assertEquals("Illegal dismissal of an employee entitles him to backwages and separation pay.",
+                response.getCases().get(0).getContent());
+    }
+
+    @Test
+    void keepsOnlyTopK() {
+        RagSearchResponse response = index.search("employee backwages landlord estafa heirs", 2);
+        assertEquals(2, response.getCount());
+    }
+
+    @Test
+    void unknownTermsFindNothing() {
+        RagSearchResponse response = index.search("spaceship", 5);
+        assertEquals(0, response.getCount());
+        assertEquals(0, index.search("employee", 0).getCount());
+    }
+
+    @Test
+    void searchScoresMatchScoringTheTextDirectly() {
+        // With full hybrid weight, rerank scores each text on its own against the corpus statistics
+        ReflectionTestUtils.setField(index, "hybridWeight", 1.0);
+        for (String query : List.of("tenant ejectment", "employee backwages dismissal", "heirs estate will")) {
+            for (LegalCase found : index.search(query, 5).getCases()) {
+                assertEquals(found.getScore(), index.rerank(query, List.of(found)).get(0).getScore(), query);
+            }
+        }
+    }
+
+    @Test
+    void buildLeavesNoFilesBehind() throws IOException {
+        try (var entries = Files.list(workDir)) {
+            assertEquals(0, entries.count());
+        }
+    }
+}
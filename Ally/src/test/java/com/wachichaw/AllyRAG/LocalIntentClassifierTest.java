@@ -0,0 +1,114 @@
+package com.wachichaw.AllyRAG;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Keyword rules without a trained model, and the training log.
+ */
+class LocalIntentClassifierTest {
+
+    @TempDir
+    Path dir;
+
+    private LocalIntentClassifier classifier;
+    private Path log;
+
+    @BeforeEach
+    void setUp() {
+        log = dir.resolve("intent").resolve("validation-log.tsv");
+        classifier = new LocalIntentClassifier();
+        ReflectionTestUtils.setField(classifier, "enabled", true);
+        ReflectionTestUtils.setField(classifier, "skipThreshold", 0.85);
+        ReflectionTestUtils.setField(classifier, "rejectThreshold", 0.8);
+        ReflectionTestUtils.setField(classifier, "trainingLogPath", log.toString());
+        ReflectionTestUtils.setField(classifier, "trainingLogMaxBytes", 100L);
+        ReflectionTestUtils.setField(classifier, "maxTrainingSamples", 5000);
+    }
+
+    private static ValidationResponse verdict(boolean valid) {
+        ValidationResponse validation = new ValidationResponse();
+        validation.setValid(valid);
+        validation.setMethod("gemini");
+        return validation;
+    }
+
+    @Test
+    void singleKeywordDoesNotSkipRemoteValidation() {
+        LocalIntentClassifier.IntentResult result = classifier.classify("Which app gives the best loan?");
+        assertEquals(LocalIntentClassifier.Intent.LEGAL, result.getIntent());
+        assertFalse(classifier.shouldSkipRemoteValidation(result));
+    }
+
+    @Test
+    void twoKeywordsSkipRemoteValidation() {
+        LocalIntentClassifier.IntentResult result = classifier.classify("Can my landlord evict a tenant without notice?");
+        assertTrue(classifier.shouldSkipRemoteValidation(result));
+    }
+
+    @Test
+    void greetingsAndMetaQuestionsAreAnsweredLocally() {
+        assertEquals(LocalIntentClassifier.Intent.GREETING, classifier.classify("Hello!").getIntent());
+        assertEquals(LocalIntentClassifier.Intent.META, classifier.classify("Who made Ally?").getIntent());
+        assertEquals(LocalIntentClassifier.Intent.META, classifier.classify("Who are you?").getIntent());
+        assertEquals(LocalIntentClassifier.Intent.META, classifier.classify("What is your name").getIntent());
+        assertEquals(LocalIntentClassifier.Intent.META, classifier.classify("Is this bot your capstone?").getIntent());
+    }
+
+    @Test
+    void questionsThatOnlyAddressTheAssistantAreNotMeta() {
+        for (String question : new String[] {
+                "What happens if you get caught driving drunk?",
+                "What can I do if my husband cheats on me, can you help?",
+                "What programs are there for the youth in our province?",
+                "Who pays when your neighbor's tree falls on your car?",
+                "What should I do if my thesis adviser keeps my documents?"}) {
+            assertNotEquals(LocalIntentClassifier.Intent.META, classifier.classify(question).getIntent(), question);
+        }
+    }
+
+    @Test
+    void offTopicKeywordsAloneNeverReject() {
+        LocalIntentClassifier.IntentResult result = classifier.classify("Give me a recipe for adobo");
+        assertFalse(classifier.shouldRejectLocally(result));
+    }
+
+    @Test
+    void trainingLogIsOwnerOnlyAndRotated() throws IOException {
+        classifier.recordOutcome("Is a verbal contract binding?", verdict(true));
+        if (log.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(log)));
+            assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(log.getParent())));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            classifier.recordOutcome("Question number " + i + " about a\tmultiline\nmessage", verdict(i % 2 == 0));
+        }
+        Path previous = log.resolveSibling("validation-log.tsv.1");
+        assertTrue(Files.exists(previous));
+        // Rotated before the write that would start past the cap
+        assertTrue(Files.size(log) < 100 + 60, "size " + Files.size(log));
+        assertEquals(2, Files.list(log.getParent()).count());
+        assertTrue(Files.readString(log).lines().allMatch(line -> line.split("\t").length == 2));
+    }
+
+    @Test
+    void fallbackVerdictsAreNotRecorded() {
+        ValidationResponse fallback = verdict(true);
+        fallback.setMethod("keyword_fallback");
+        classifier.recordOutcome("Is a verbal contract binding?", fallback);
+        assertFalse(Files.exists(log));
+    }
+}
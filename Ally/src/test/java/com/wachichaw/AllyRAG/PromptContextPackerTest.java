@@ -0,0 +1,89 @@
+package com.wachichaw.AllyRAG;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Token estimates use 4 characters per token, so a case whose content is n * 4 characters needs n tokens.
+ */
+class PromptContextPackerTest {
+
+    private PromptContextPacker packer;
+
+    @BeforeEach
+    void setUp() {
+        packer = new PromptContextPacker();
+        ReflectionTestUtils.setField(packer, "tokenBudget", 1800);
+        ReflectionTestUtils.setField(packer, "charsPerToken", 4.0);
+        ReflectionTestUtils.setField(packer, "minCaseTokens", 60);
+        ReflectionTestUtils.setField(packer, "shingleSize", 5);
+        ReflectionTestUtils.setField(packer, "maxOverlap", 0.6);
+    }
+
+    private static LegalCase legalCase(String title, Double score, int tokens) {
+        return legalCase(title, score, "x".repeat(tokens * 4));
+    }
+
+    private static LegalCase legalCase(String title, Double score, String content) {
+        LegalCase legalCase = new LegalCase();
+        legalCase.setTitle(title);
+        legalCase.setScore(score);
+        legalCase.setContent(content);
+        return legalCase;
+    }
+
+    @Test
+    void splitsTheBudgetByScore() {
+        List<LegalCase> cases = List.of(legalCase("A", 60.0, 5000), legalCase("B", 30.0, 5000), legalCase("C", 10.0, 5000));
+        assertArrayEquals(new int[] { 600, 300, 100 }, packer.allocate(cases, 1000));
+    }
+
+    @Test
+    void budgetAShortCaseDoesNotNeedGoesToTheOthers() {
+        List<LegalCase> cases = List.of(legalCase("A", 50.0, 100), legalCase("B", 50.0, 5000));
+        assertArrayEquals(new int[] { 100, 900 }, packer.allocate(cases, 1000));
+    }
+
+    @Test
+    void everyCaseFitsWhenTheBudgetAllows() {
+        List<LegalCase> cases = List.of(legalCase("A", 90.0, 200), legalCase("B", 10.0, 300));
+        assertArrayEquals(new int[] { 200, 300 }, packer.allocate(cases, 1000));
+    }
+
+    @Test
+    void tightBudgetStillKeepsTheMinimumOfEachCase() {
+        List<LegalCase> cases = List.of(legalCase("A", 90.0, 5000), legalCase("B", 10.0, 5000), legalCase("C", 5.0, 40));
+        assertArrayEquals(new int[] { 60, 60, 40 }, packer.allocate(cases, 0));
+    }
+
+    @Test
+    void casesWithoutScoreWeighOne() {
+        List<LegalCase> cases = List.of(legalCase("A", null, 5000), legalCase("B", 3.0, 5000));
+        assertArrayEquals(new int[] { 100, 300 }, packer.allocate(cases, 400));
+    }
+
+    @Test
+    void packedPromptStaysWithinTheBudget() {
+        List<LegalCase> cases = List.of(legalCase("A", 80.0, 3000), legalCase("B", 60.0, 3000));
+        PromptContextPacker.PackedContext packed = packer.pack(cases, "Can I be dismissed without notice?");
+        assertEquals(2, packed.getCases().size());
+        assertTrue(packed.getEstimatedTokens() <= 1800, "tokens " + packed.getEstimatedTokens());
+        assertTrue(packed.getPrompt().contains("[CASE 2] B (Relevance: 60.0%)"));
+        assertTrue(packed.getPrompt().contains("User Question: Can I be dismissed without notice?"));
+    }
+
+    @Test
+    void nearDuplicatePassagesAreDropped() {
+        String text = "the employer dismissed the employee without notice and without a hearing on the charges";
+        List<LegalCase> cases = List.of(legalCase("A", 80.0, text), legalCase("B", 70.0, text + " again"),
+                legalCase("C", 60.0, "the heirs divided the estate of the deceased under a holographic will"));
+        assertEquals(List.of("A", "C"), packer.dropRedundant(cases).stream().map(LegalCase::getTitle).toList());
+    }
+}
@@ -0,0 +1,80 @@
+package com.wachichaw.AllyRAG;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.wachichaw.Config.DependencyHealthMonitor;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RagResilienceGuardTest {
+
+    private RagResilienceGuard guard;
+
+    private RagResilienceGuard guard(int minimumCalls, long openDurationMs) {
+        guard = new RagResilienceGuard(new SimpleMeterRegistry(), mock(DependencyHealthMonitor.class));
+        ReflectionTestUtils.setField(guard, "maxConcurrent", 8);
+        ReflectionTestUtils.setField(guard, "windowSize", 20);
+        ReflectionTestUtils.setField(guard, "minimumCalls", minimumCalls);
+        ReflectionTestUtils.setField(guard, "failureRateThreshold", 0.5);
+        ReflectionTestUtils.setField(guard, "openDurationMs", openDurationMs);
+        ReflectionTestUtils.setField(guard, "halfOpenProbes", 1);
+        ReflectionTestUtils.setField(guard, "initialTimeoutMs", 40L);
+        ReflectionTestUtils.setField(guard, "minTimeoutMs", 40L);
+        ReflectionTestUtils.setField(guard, "maxTimeoutMs", 2000L);
+        ReflectionTestUtils.setField(guard, "timeoutMultiplier", 1.5);
+        ReflectionTestUtils.setField(guard, "minSamples", 1);
+        ReflectionTestUtils.setField(guard, "hedgingEnabled", false);
+        ReflectionTestUtils.setField(guard, "useHealthProbe", false);
+        guard.init();
+        return guard;
+    }
+
+    @AfterEach
+    void tearDown() {
+        guard.shutdown();
+    }
+
+    private static Supplier<String> taking(long millis) {
+        return () -> {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            return "remote";
+        };
+    }
+
+    @Test
+    void timeoutGrowsWhenEveryCallTimesOut() {
+        RagResilienceGuard guard = guard(1000, 60_000);
+        // 100 ms calls against a 40 ms timeout: each timeout is a sample at the timeout, so with
+        // every batch of samples it grows by the multiplier until the calls fit (40, 60, 90, 135)
+        int attempts = 0;
+        String result = "fallback";
+        while (!result.equals("remote") && attempts < 40) {
+            result = guard.call("search", taking(100), () -> "fallback", false);
+            attempts++;
+        }
+        assertEquals("remote", result);
+        assertTrue(attempts <= 30, "took " + attempts + " attempts");
+    }
+
+    @Test
+    void halfOpenProbeGetsTheMaximumTimeout() {
+        RagResilienceGuard guard = guard(1, 0);
+        assertEquals("fallback", guard.call("search", taking(150), () -> "fallback", false));
+        // Open with a zero open duration: the next call is a probe and may take up to max-timeout-ms
+        assertEquals("remote", guard.call("search", taking(150), () -> "fallback", false));
+        assertEquals(CircuitBreaker.State.CLOSED, guard.getCircuitState());
+    }
+}
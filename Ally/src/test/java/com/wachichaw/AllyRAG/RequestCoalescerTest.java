@@ -0,0 +1,155 @@
+package com.wachichaw.AllyRAG;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Callers run on their own threads; latches fix the order in which they reach the
+ * coalescer, so each case runs the same way every time.
+ */
+class RequestCoalescerTest {
+
+    private final RequestCoalescer<String> coalescer = new RequestCoalescer<>();
+    private final ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+    }
+
+    private static void awaitCount(LongSupplier counter, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (counter.getAsLong() < expected) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Count stayed at " + counter.getAsLong() + ", expected " + expected);
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    void concurrentCallersShareOneCall() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        Future<String> leader = callers.submit(() -> coalescer.execute("k", () -> {
+            calls.incrementAndGet();
+            await(release);
+            return "answer";
+        }));
+        awaitCount(coalescer::getLeaderCalls, 1);
+        Future<String> first = callers.submit(() -> coalescer.execute("k", () -> "own call"));
+        Future<String> second = callers.submit(() -> coalescer.execute("k", () -> "own call"));
+        awaitCount(coalescer::getCoalescedCalls, 2);
+        release.countDown();
+
+        assertEquals("answer", leader.get(5, TimeUnit.SECONDS));
+        assertEquals("answer", first.get(5, TimeUnit.SECONDS));
+        assertEquals("answer", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+        assertEquals(0, coalescer.getInFlightCount());
+    }
+
+    @Test
+    void waiterTakesOverWhenTheLeaderIsCancelled() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = callers.submit(() -> coalescer.execute("k", () -> {
+            await(release);
+            throw new CancellationException("leader's chat was cancelled");
+        }));
+        awaitCount(coalescer::getLeaderCalls, 1);
+        Future<String> waiter = callers.submit(() -> coalescer.execute("k", () -> "waiter's own call"));
+        awaitCount(coalescer::getCoalescedCalls, 1);
+        release.countDown();
+
+        ExecutionException leaderFailure = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(CancellationException.class, leaderFailure.getCause());
+        assertEquals("waiter's own call", waiter.get(5, TimeUnit.SECONDS));
+        assertEquals(2, coalescer.getLeaderCalls());
+        assertEquals(0, coalescer.getInFlightCount());
+    }
+
+    @Test
+    void interruptedWaiterLeavesTheLeaderRunning() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = callers.submit(() -> coalescer.execute("k", () -> {
+            await(release);
+            return "answer";
+        }));
+        awaitCount(coalescer::getLeaderCalls, 1);
+        CountDownLatch waiterDone = new CountDownLatch(1);
+        AtomicInteger interruptedAfter = new AtomicInteger();
+        Thread waiter = Thread.ofVirtual().start(() -> {
+            try {
+                coalescer.execute("k", () -> "own call");
+            } catch (CancellationException e) {
+                interruptedAfter.set(Thread.currentThread().isInterrupted() ? 1 : -1);
+            } finally {
+                waiterDone.countDown();
+            }
+        });
+        awaitCount(coalescer::getCoalescedCalls, 1);
+        waiter.interrupt();
+        assertTrue(waiterDone.await(5, TimeUnit.SECONDS));
+        assertEquals(1, interruptedAfter.get());
+
+        release.countDown();
+        assertEquals("answer", leader.get(5, TimeUnit.SECONDS));
+        assertEquals(1, coalescer.getLeaderCalls());
+    }
+
+    @Test
+    void failureReachesWaitersWithoutARetry() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = callers.submit(() -> coalescer.execute("k", () -> {
+            await(release);
+            throw new IllegalStateException("remote failed");
+        }));
+        awaitCount(coalescer::getLeaderCalls, 1);
+        Future<String> waiter = callers.submit(() -> coalescer.execute("k", () -> "own call"));
+        awaitCount(coalescer::getCoalescedCalls, 1);
+        release.countDown();
+
+        assertInstanceOf(IllegalStateException.class,
+                assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS)).getCause());
+        assertInstanceOf(IllegalStateException.class,
+                assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS)).getCause());
+        assertEquals(1, coalescer.getLeaderCalls());
+    }
+
+    @Test
+    void completedCallsAreNotCached() {
+        AtomicInteger calls = new AtomicInteger();
+        coalescer.execute("k", () -> "call " + calls.incrementAndGet());
+        assertEquals("call 2", coalescer.execute("k", () -> "call " + calls.incrementAndGet()));
+    }
+
+    @Test
+    void normalizeFoldsCaseAndWhitespace() {
+        assertEquals("what is estafa?", RequestCoalescer.normalize("  What is \n estafa?"));
+        assertEquals("", RequestCoalescer.normalize(null));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("interrupted");
+        }
+    }
+}
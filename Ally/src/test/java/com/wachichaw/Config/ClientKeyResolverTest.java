@@ -0,0 +1,59 @@
+package com.wachichaw.Config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class ClientKeyResolverTest {
+
+    private static ClientKeyResolver resolver(String trustedProxies) {
+        ClientKeyResolver resolver = new ClientKeyResolver(mock(JwtUtil.class));
+        ReflectionTestUtils.setField(resolver, "trustedProxies", trustedProxies);
+        resolver.init();
+        return resolver;
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddr);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        return request;
+    }
+
+    @Test
+    void forwardedForIsIgnoredWithoutTrustedProxies() {
+        ClientKeyResolver resolver = resolver("");
+        assertEquals("ip:203.0.113.7", resolver.resolve(request("203.0.113.7", "198.51.100.1")));
+    }
+
+    @Test
+    void forwardedForIsIgnoredFromAnUntrustedPeer() {
+        ClientKeyResolver resolver = resolver("10.0.0.0/8");
+        assertEquals("ip:203.0.113.7", resolver.resolve(request("203.0.113.7", "198.51.100.1")));
+    }
+
+    @Test
+    void trustedProxyPassesOnTheClientAddress() {
+        ClientKeyResolver resolver = resolver("10.0.0.5");
+        assertEquals("ip:198.51.100.1", resolver.resolve(request("10.0.0.5", "198.51.100.1")));
+    }
+
+    @Test
+    void valuesTheClientPrependedAreSkipped() {
+        ClientKeyResolver resolver = resolver("10.0.0.0/8");
+        // The client sent "1.2.3.4"; the edge proxy appended the real peer, an inner proxy appended the edge
+        assertEquals("ip:198.51.100.1",
+                resolver.resolve(request("10.0.0.5", "1.2.3.4, 198.51.100.1, 10.0.0.9")));
+    }
+
+    @Test
+    void forgedNonAddressEndsTheWalk() {
+        ClientKeyResolver resolver = resolver("10.0.0.5");
+        assertEquals("ip:not-an-ip", resolver.resolve(request("10.0.0.5", "not-an-ip")));
+    }
+}
@@ -0,0 +1,57 @@
+package com.wachichaw.Config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class TokenBucketTest {
+
+    @Test
+    void grantsTheBurstThenReportsTheWaitForOneInterval() {
+        // One token a minute: the waits are far longer than the test takes
+        TokenBucket bucket = new TokenBucket(3, 1);
+        assertEquals(0, bucket.tryConsume());
+        assertEquals(0, bucket.tryConsume());
+        assertEquals(0, bucket.tryConsume());
+
+        long wait = bucket.tryConsume();
+        assertTrue(wait > TimeUnit.SECONDS.toNanos(50) && wait <= TimeUnit.MINUTES.toNanos(1), "wait " + wait);
+        // A refused request takes nothing
+        assertTrue(bucket.tryConsume() <= wait);
+    }
+
+    @Test
+    void fractionalRateStretchesTheInterval() {
+        TokenBucket bucket = new TokenBucket(1, 0.5);
+        assertEquals(0, bucket.tryConsume());
+        long wait = bucket.tryConsume();
+        assertTrue(wait > TimeUnit.SECONDS.toNanos(110) && wait <= TimeUnit.MINUTES.toNanos(2), "wait " + wait);
+    }
+
+    @Test
+    void fullOnlyOnceEveryTokenHasComeBack() throws InterruptedException {
+        TokenBucket idle = new TokenBucket(5, 1);
+        assertTrue(idle.isFull());
+        idle.tryConsume();
+        assertFalse(idle.isFull());
+
+        // 600000 a minute is one token every 100 microseconds
+        TokenBucket fast = new TokenBucket(2, 600_000);
+        fast.tryConsume();
+        fast.tryConsume();
+        Thread.sleep(5);
+        assertTrue(fast.isFull());
+        assertEquals(0, fast.tryConsume());
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 0));
+    }
+}
@@ -0,0 +1,115 @@
+package com.wachichaw.Schedule.Service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.wachichaw.Schedule.DTO.ScheduleSnapshot;
+import com.wachichaw.Schedule.Entity.AppointmentStatus;
+import com.wachichaw.Schedule.Entity.ReminderKind;
+import com.wachichaw.Schedule.Entity.ScheduleEntity;
+import com.wachichaw.Schedule.Entity.SchedulerCheckpointEntity;
+import com.wachichaw.Schedule.Repo.ScheduleRepository;
+import com.wachichaw.Schedule.Repo.SchedulerCheckpointRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Restart replay of reminders: the reminder lead is 24 hours.
+ */
+class AppointmentLifecycleSchedulerTest {
+
+    private ScheduleRepository scheduleRepository;
+    private SchedulerCheckpointRepository checkpointRepository;
+    private ReminderService reminderService;
+    private AppointmentLifecycleScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduleRepository = mock(ScheduleRepository.class);
+        checkpointRepository = mock(SchedulerCheckpointRepository.class);
+        reminderService = mock(ReminderService.class);
+        scheduler = new AppointmentLifecycleScheduler(scheduleRepository, checkpointRepository, mock(ReminderTask.class),
+                reminderService, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(scheduler, "tickMs", 1000L);
+        ReflectionTestUtils.setField(scheduler, "horizonHours", 48L);
+        ReflectionTestUtils.setField(scheduler, "reminderLeadHours", 24L);
+        ReflectionTestUtils.setField(scheduler, "checkpointIntervalMs", 60000L);
+        scheduler.init();
+    }
+
+    private void checkpointAt(LocalDateTime processedUntil) {
+        SchedulerCheckpointEntity checkpoint = new SchedulerCheckpointEntity();
+        checkpoint.setName("appointment-lifecycle");
+        checkpoint.setProcessedUntil(processedUntil);
+        when(checkpointRepository.findById("appointment-lifecycle")).thenReturn(Optional.of(checkpoint));
+    }
+
+    private LocalDateTime remindersLoadedFrom() {
+        ArgumentCaptor<LocalDateTime> from = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(scheduleRepository).findSnapshotsStartingBetween(eq(AppointmentStatus.ACCEPTED), from.capture(), any());
+        return from.getValue();
+    }
+
+    @Test
+    void firstStartLoadsOnlyRemindersStillAhead() {
+        LocalDateTime before = LocalDateTime.now();
+        scheduler.rebuild();
+        assertFalse(remindersLoadedFrom().isBefore(before.plusHours(24)));
+    }
+
+    @Test
+    void restartReplaysRemindersDueSinceTheCheckpoint() {
+        LocalDateTime checkpoint = LocalDateTime.now().minusMinutes(10).truncatedTo(ChronoUnit.SECONDS);
+        checkpointAt(checkpoint);
+        scheduler.rebuild();
+        assertTrue(remindersLoadedFrom().isEqual(checkpoint.plusHours(24)));
+    }
+
+    @Test
+    void longDowntimeReplaysOnlyAppointmentsNotStartedYet() {
+        checkpointAt(LocalDateTime.now().minusDays(3));
+        LocalDateTime before = LocalDateTime.now();
+        scheduler.rebuild();
+        LocalDateTime from = remindersLoadedFrom();
+        assertFalse(from.isBefore(before));
+        assertTrue(from.isBefore(before.plusHours(1)));
+    }
+
+    @Test
+    void replayedReminderIsQueuedOnTheFirstTickAndTheCheckpointMoves() {
+        LocalDateTime start = LocalDateTime.now().plusHours(24).minusMinutes(5).truncatedTo(ChronoUnit.SECONDS);
+        checkpointAt(LocalDateTime.now().minusMinutes(10));
+        ScheduleSnapshot snapshot = new ScheduleSnapshot(7, 1, 2, start, start.plusHours(1), AppointmentStatus.ACCEPTED);
+        when(scheduleRepository.findSnapshotsStartingBetween(eq(AppointmentStatus.ACCEPTED), any(), any()))
+                .thenReturn(List.of(snapshot));
+        ScheduleEntity schedule = new ScheduleEntity();
+        schedule.setScheduleId(7);
+        schedule.setBookingStartTime(start);
+        schedule.setStatus(AppointmentStatus.ACCEPTED);
+        when(scheduleRepository.findAllById(List.of(7))).thenReturn(List.of(schedule));
+
+        scheduler.rebuild();
+        verify(reminderService, never()).enqueueAppointmentReminders(any(), any());
+        scheduler.tick();
+
+        verify(reminderService).enqueueAppointmentReminders(schedule, ReminderKind.UPCOMING);
+        verify(checkpointRepository).advance(anyString(), any());
+    }
+}
@@ -0,0 +1,163 @@
+package com.wachichaw.Schedule.Service;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.wachichaw.Lawyer.Entity.LawyerEntity;
+import com.wachichaw.Lawyer.Repo.LawyerRepo;
+import com.wachichaw.Schedule.DTO.AvailabilityRulesDTO;
+import com.wachichaw.Schedule.DTO.BreakDTO;
+import com.wachichaw.Schedule.DTO.WorkingHoursDTO;
+import com.wachichaw.Schedule.Entity.BreakEntity;
+import com.wachichaw.Schedule.Entity.WorkingHoursEntity;
+import com.wachichaw.Schedule.Repo.BreakRepository;
+import com.wachichaw.Schedule.Repo.TimeOffRepository;
+import com.wachichaw.Schedule.Repo.WorkingHoursRepository;
+
+/**
+ * Rule validation and compiled-rule caching, against mocked repositories. Lawyer 1 works
+ * Mondays 09:00 - 12:00 in 30-minute slots with a break at 10:00 - 10:30.
+ */
+class AvailabilityRulesServiceTest {
+
+    private static final int LAWYER_ID = 1;
+    private static final LocalDate MONDAY = LocalDate.now().plusWeeks(1).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+
+    private WorkingHoursRepository workingHoursRepository;
+    private BreakRepository breakRepository;
+    private AvailabilityRulesService service;
+
+    @BeforeEach
+    void setUp() {
+        workingHoursRepository = mock(WorkingHoursRepository.class);
+        breakRepository = mock(BreakRepository.class);
+        TimeOffRepository timeOffRepository = mock(TimeOffRepository.class);
+        LawyerRepo lawyerRepo = mock(LawyerRepo.class);
+        when(lawyerRepo.findById(LAWYER_ID)).thenReturn(Optional.of(new LawyerEntity()));
+        when(workingHoursRepository.findByLawyerUserId(LAWYER_ID)).thenReturn(List.of(hours(DayOfWeek.MONDAY, 9, 12, 30)));
+        when(breakRepository.findByLawyerUserId(LAWYER_ID)).thenReturn(List.of(lunch()));
+
+        service = new AvailabilityRulesService(workingHoursRepository, breakRepository, timeOffRepository, lawyerRepo,
+                mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(service, "cacheSize", 100);
+        ReflectionTestUtils.setField(service, "cacheTtlSeconds", 300L);
+    }
+
+    private static WorkingHoursEntity hours(DayOfWeek day, int startHour, int endHour, int slotMinutes) {
+        WorkingHoursEntity hours = new WorkingHoursEntity();
+        hours.setDayOfWeek(day);
+        hours.setStartTime(LocalTime.of(startHour, 0));
+        hours.setEndTime(LocalTime.of(endHour, 0));
+        hours.setSlotMinutes(slotMinutes);
+        return hours;
+    }
+
+    private static BreakEntity lunch() {
+        BreakEntity lawyerBreak = new BreakEntity();
+        lawyerBreak.setStartTime(LocalTime.of(10, 0));
+        lawyerBreak.setEndTime(LocalTime.of(10, 30));
+        return lawyerBreak;
+    }
+
+    private static AvailabilityRulesDTO rules(WorkingHoursDTO... weeklyHours) {
+        return new AvailabilityRulesDTO(List.of(weeklyHours), List.<BreakDTO>of(), null);
+    }
+
+    @Test
+    void acceptsWholeSlotsOutsideBreaks() {
+        assertDoesNotThrow(() -> service.validateRange(LAWYER_ID, MONDAY.atTime(9, 0), MONDAY.atTime(10, 0)));
+        assertDoesNotThrow(() -> service.validateRange(LAWYER_ID, MONDAY.atTime(11, 30), MONDAY.atTime(12, 0)));
+        assertEquals(MONDAY.atTime(11, 0), service.slotEnd(LAWYER_ID, MONDAY.atTime(10, 30)));
+    }
+
+    @Test
+    void rejectsRangesOffTheGrid() {
+        LocalDateTime nine = MONDAY.atTime(9, 0);
+        // Closed day
+        assertThrows(RuntimeException.class, () -> service.validateRange(LAWYER_ID, nine.plusDays(1), nine.plusDays(1).plusMinutes(30)));
+        // Not a slot start
+        assertThrows(RuntimeException.class, () -> service.validateRange(LAWYER_ID, nine.plusMinutes(15), nine.plusMinutes(45)));
+        // Part of a slot
+        assertThrows(RuntimeException.class, () -> service.validateRange(LAWYER_ID, nine, nine.plusMinutes(40)));
+        // Past the end of the day
+        assertThrows(RuntimeException.class, () -> service.validateRange(LAWYER_ID, MONDAY.atTime(11, 30), MONDAY.atTime(12, 30)));
+        // Over the break
+        assertThrows(RuntimeException.class, () -> service.validateRange(LAWYER_ID, MONDAY.atTime(9, 30), MONDAY.atTime(10, 30)));
+        // Empty
+        assertThrows(RuntimeException.class, () -> service.validateRange(LAWYER_ID, nine, nine));
+    }
+
+    @Test
+    void lawyerWithoutWeeklyHoursGetsTheStandardWeek() {
+        when(workingHoursRepository.findByLawyerUserId(2)).thenReturn(List.of());
+        assertEquals(SlotGrid.STANDARD, service.rulesFor(2).grid(MONDAY));
+        assertEquals(SlotGrid.CLOSED, service.rulesFor(2).grid(MONDAY.plusDays(5)));
+    }
+
+    @Test
+    void rejectsInvalidWeeklyHours() {
+        assertThrows(RuntimeException.class, () -> service.updateRules(LAWYER_ID,
+                rules(new WorkingHoursDTO("MONDAY", "12:00", "09:00", 30))));
+        assertThrows(RuntimeException.class, () -> service.updateRules(LAWYER_ID,
+                rules(new WorkingHoursDTO("MONDAY", "09:00", "12:00", 1))));
+        assertThrows(RuntimeException.class, () -> service.updateRules(LAWYER_ID,
+                rules(new WorkingHoursDTO("MONDAY", "09:00", "09:20", 30))));
+        // 13 hours in 10-minute slots is 78 slots, more than a day's bitset holds
+        assertThrows(RuntimeException.class, () -> service.updateRules(LAWYER_ID,
+                rules(new WorkingHoursDTO("MONDAY", "07:00", "20:00", 10))));
+        assertThrows(RuntimeException.class, () -> service.updateRules(LAWYER_ID,
+                rules(new WorkingHoursDTO("MONDAY", "09:00", "12:00", 30), new WorkingHoursDTO("monday", "13:00", "17:00", 30))));
+        verify(workingHoursRepository, times(0)).deleteByLawyerId(anyInt());
+    }
+
+    @Test
+    void compiledRulesAreCachedUntilChanged() {
+        service.rulesFor(LAWYER_ID);
+        service.rulesFor(LAWYER_ID);
+        verify(workingHoursRepository, times(1)).findByLawyerUserId(LAWYER_ID);
+
+        service.updateRules(LAWYER_ID, rules(new WorkingHoursDTO("MONDAY", "09:00", "12:00", 30)));
+        service.rulesFor(LAWYER_ID);
+        // One read by getRules() after the update, one compile
+        verify(workingHoursRepository, times(3)).findByLawyerUserId(LAWYER_ID);
+    }
+
+    @Test
+    void rulesCompiledWhileTheyChangeAreNotCached() {
+        AtomicBoolean changing = new AtomicBoolean(true);
+        // The update commits and invalidates after the compile read the old rows
+        doAnswer(invocation -> {
+            if (changing.getAndSet(false)) {
+                service.updateRules(LAWYER_ID, rules(new WorkingHoursDTO("MONDAY", "13:00", "17:00", 60)));
+            }
+            return List.of(lunch());
+        }).when(breakRepository).findByLawyerUserId(LAWYER_ID);
+
+        assertEquals(LocalTime.of(9, 0), service.rulesFor(LAWYER_ID).grid(MONDAY).getFirstStart());
+        when(workingHoursRepository.findByLawyerUserId(LAWYER_ID)).thenReturn(List.of(hours(DayOfWeek.MONDAY, 13, 17, 60)));
+        assertEquals(LocalTime.of(13, 0), service.rulesFor(LAWYER_ID).grid(MONDAY).getFirstStart());
+        verify(workingHoursRepository).saveAll(any());
+    }
+}
@@ -0,0 +1,245 @@
+package com.wachichaw.Schedule.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.wachichaw.Client.Entity.ClientEntity;
+import com.wachichaw.Client.Repo.ClientRepo;
+import com.wachichaw.Lawyer.Entity.LawyerEntity;
+import com.wachichaw.Lawyer.Repo.LawyerRepo;
+import com.wachichaw.Schedule.DTO.BookedInterval;
+import com.wachichaw.Schedule.Entity.ScheduleEntity;
+import com.wachichaw.Schedule.Entity.WorkingHoursEntity;
+import com.wachichaw.Schedule.Repo.BreakRepository;
+import com.wachichaw.Schedule.Repo.ScheduleRepository;
+import com.wachichaw.Schedule.Repo.TimeOffRepository;
+import com.wachichaw.Schedule.Repo.WorkingHoursRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Fires thousands of parallel bookings at ScheduleService over an in-memory schedule table.
+ * The table's save yields between the conflict check and the insert, so without the booking
+ * guard double bookings show up within a few hundred attempts.
+ */
+class BookingConcurrencyTest {
+
+    private static final int LAWYERS = 40;
+    private static final int SLOTS_PER_LAWYER = 20;
+    private static final int CLIENTS_PER_SLOT = 4;
+
+    private final List<ScheduleEntity> table = new CopyOnWriteArrayList<>();
+    private final AtomicInteger nextScheduleId = new AtomicInteger(1);
+
+    private LawyerRepo lawyerRepo;
+    private BookingGuard bookingGuard;
+    private ScheduleService scheduleService;
+
+    @BeforeEach
+    void setUp() {
+        ScheduleRepository scheduleRepository = mock(ScheduleRepository.class);
+        when(scheduleRepository.save(any(ScheduleEntity.class))).thenAnswer(invocation -> {
+            ScheduleEntity schedule = invocation.getArgument(0);
+            Thread.yield();
+            if (schedule.getScheduleId() == 0) {
+                schedule.setScheduleId(nextScheduleId.getAndIncrement());
+                table.add(schedule);
+            }
+            return schedule;
+        });
+        when(scheduleRepository.existsBlockingConflict(anyInt(), any(), any(), any(), anyInt(), any()))
+                .thenAnswer(invocation -> table.stream().anyMatch(s -> s.getLawyer().getUserId() == (int) invocation.getArgument(0)
+                        && s.getStatus().holdsSlot()
+                        && s.getScheduleId() != (int) invocation.getArgument(4)
+                        && s.getBookingStartTime().isBefore(invocation.getArgument(2))
+                        && s.getBookingEndTime().isAfter(invocation.getArgument(1))));
+        when(scheduleRepository.findBlockingIntervals(anyInt(), any(), any(), any()))
+                .thenAnswer(invocation -> table.stream()
+                        .filter(s -> s.getLawyer().getUserId() == (int) invocation.getArgument(0) && s.getStatus().holdsSlot())
+                        .map(s -> new BookedInterval(s.getScheduleId(), s.getBookingStartTime(), s.getBookingEndTime()))
+                        .toList());
+
+        Map<Integer, LawyerEntity> lawyers = new HashMap<>();
+        for (int id = 1; id <= LAWYERS; id++) {
+            LawyerEntity lawyer = new LawyerEntity();
+            lawyer.setUserId(id);
+            lawyers.put(id, lawyer);
+        }
+        lawyerRepo = mock(LawyerRepo.class);
+        when(lawyerRepo.findById(anyInt())).thenAnswer(invocation -> Optional.ofNullable(lawyers.get((int) invocation.getArgument(0))));
+        when(lawyerRepo.findWithLockByUserId(anyInt())).thenAnswer(invocation -> Optional.ofNullable(lawyers.get((int) invocation.getArgument(0))));
+
+        ClientRepo clientRepo = mock(ClientRepo.class);
+        when(clientRepo.findById(anyInt())).thenAnswer(invocation -> {
+            ClientEntity client = new ClientEntity();
+            client.setUserId(invocation.getArgument(0));
+            return Optional.of(client);
+        });
+
+        // Every lawyer works every day, 00:00 to 23:00 in 1-hour slots
+        WorkingHoursRepository workingHoursRepository = mock(WorkingHoursRepository.class);
+        when(workingHoursRepository.findByLawyerUserId(anyInt())).thenAnswer(invocation -> {
+            List<WorkingHoursEntity> week = new ArrayList<>();
+            for (DayOfWeek day : DayOfWeek.values()) {
+                WorkingHoursEntity hours = new WorkingHoursEntity();
+                hours.setDayOfWeek(day);
+                hours.setStartTime(LocalTime.MIDNIGHT);
+                hours.setEndTime(LocalTime.of(23, 0));
+                hours.setSlotMinutes(60);
+                week.add(hours);
+            }
+            return week;
+        });
+        AvailabilityRulesService availabilityRules = new AvailabilityRulesService(workingHoursRepository,
+                mock(BreakRepository.class), mock(TimeOffRepository.class), lawyerRepo, mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(availabilityRules, "cacheSize", 10000);
+        ReflectionTestUtils.setField(availabilityRules, "cacheTtlSeconds", 300L);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        LawyerIntervalIndex intervalIndex = new LawyerIntervalIndex(scheduleRepository, meterRegistry);
+        ReflectionTestUtils.setField(intervalIndex, "maxLawyers", 10000);
+        ReflectionTestUtils.setField(intervalIndex, "ttlSeconds", 300L);
+        ReflectionTestUtils.setField(intervalIndex, "maxAppointmentHours", 24L);
+        intervalIndex.init();
+
+        bookingGuard = new BookingGuard(lawyerRepo, mock(PlatformTransactionManager.class), meterRegistry);
+        ReflectionTestUtils.setField(bookingGuard, "stripeCount", 256);
+        ReflectionTestUtils.setField(bookingGuard, "lockTimeoutMs", 30000L);
+        bookingGuard.init();
+
+        ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+        doAnswer(invocation -> {
+            intervalIndex.onScheduleChanged(invocation.getArgument(0));
+            return null;
+        }).when(eventPublisher).publishEvent(any(Object.class));
+
+        scheduleService = new ScheduleService(scheduleRepository);
+        ReflectionTestUtils.setField(scheduleService, "clientRepo", clientRepo);
+        ReflectionTestUtils.setField(scheduleService, "lawyerRepo", lawyerRepo);
+        ReflectionTestUtils.setField(scheduleService, "intervalIndex", intervalIndex);
+        ReflectionTestUtils.setField(scheduleService, "bookingGuard", bookingGuard);
+        ReflectionTestUtils.setField(scheduleService, "availabilityRules", availabilityRules);
+        ReflectionTestUtils.setField(scheduleService, "eventPublisher", eventPublisher);
+    }
+
+    @Test
+    void parallelBookingsNeverDoubleBookASlot() throws Exception {
+        LocalDateTime firstSlot = LocalDate.now().plusDays(1).atStartOfDay();
+        List<Runnable> attempts = new ArrayList<>();
+        int clientId = 1;
+        for (int lawyerId = 1; lawyerId <= LAWYERS; lawyerId++) {
+            for (int slot = 0; slot < SLOTS_PER_LAWYER; slot++) {
+                for (int i = 0; i < CLIENTS_PER_SLOT; i++) {
+                    int lawyer = lawyerId;
+                    int client = clientId++;
+                    LocalDateTime start = firstSlot.plusHours(slot);
+                    attempts.add(() -> scheduleService.createAppointment(client, lawyer, start));
+                }
+            }
+        }
+
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Runnable attempt : attempts) {
+                futures.add(executor.submit(() -> {
+                    go.await();
+                    try {
+                        attempt.run();
+                        booked.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        assertEquals("Lawyer is not available at the requested time slot", e.getMessage());
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            go.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        }
+
+        assertEquals(attempts.size(), booked.get() + rejected.get());
+        // Each slot goes to exactly one of its contenders
+        assertEquals(LAWYERS * SLOTS_PER_LAWYER, booked.get());
+        assertEquals(booked.get(), table.size());
+
+        Map<Integer, List<ScheduleEntity>> byLawyer = new HashMap<>();
+        for (ScheduleEntity schedule : table) {
+            byLawyer.computeIfAbsent(schedule.getLawyer().getUserId(), id -> new ArrayList<>()).add(schedule);
+        }
+        for (List<ScheduleEntity> schedules : byLawyer.values()) {
+            for (int i = 0; i < schedules.size(); i++) {
+                for (int j = i + 1; j < schedules.size(); j++) {
+                    ScheduleEntity a = schedules.get(i);
+                    ScheduleEntity b = schedules.get(j);
+                    assertTrue(!a.getBookingStartTime().isBefore(b.getBookingEndTime())
+                            || !b.getBookingStartTime().isBefore(a.getBookingEndTime()),
+                            "Overlapping bookings " + a.getScheduleId() + " and " + b.getScheduleId());
+                }
+            }
+        }
+    }
+
+    @Test
+    void bookingsForDifferentLawyersDoNotWaitForEachOther() throws Exception {
+        CountDownLatch firstInside = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<?> first = executor.submit(() -> bookingGuard.book(1, () -> {
+                firstInside.countDown();
+                try {
+                    releaseFirst.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }));
+            assertTrue(firstInside.await(5, TimeUnit.SECONDS));
+
+            // Lawyer 1's booking is still open; lawyer 2's must not queue behind it
+            Set<Integer> finished = new HashSet<>();
+            for (int lawyerId = 2; lawyerId <= LAWYERS; lawyerId++) {
+                int id = lawyerId;
+                executor.submit(() -> bookingGuard.book(id, () -> finished.add(id))).get(5, TimeUnit.SECONDS);
+            }
+            assertEquals(LAWYERS - 1, finished.size());
+
+            releaseFirst.countDown();
+            first.get(5, TimeUnit.SECONDS);
+        }
+    }
+}
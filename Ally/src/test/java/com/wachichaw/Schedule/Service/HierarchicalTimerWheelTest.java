@@ -0,0 +1,93 @@
+package com.wachichaw.Schedule.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The wheel runs on a caller-supplied clock, so every case here is exact: 1 ms ticks,
+ * level 0 covers 64 ticks, level 1 4096, level 2 262144.
+ */
+class HierarchicalTimerWheelTest {
+
+    @Test
+    void firesEachDeadlineOnItsTickAcrossLevelBoundaries() {
+        HierarchicalTimerWheel<Long> wheel = new HierarchicalTimerWheel<>(1, 3, 0);
+        long[] deadlines = {1, 63, 64, 65, 4095, 4096, 4097, 262_143, 262_144, 300_000};
+        for (long deadline : deadlines) {
+            wheel.schedule(deadline, deadline);
+        }
+        for (long deadline : deadlines) {
+            assertEquals(List.of(), wheel.advance(deadline - 1), "early at " + (deadline - 1));
+            assertEquals(List.of(deadline), wheel.advance(deadline));
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void deadlinesAlreadyPassedFireOnTheNextAdvance() {
+        HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(1, 2, 1000);
+        wheel.schedule(10, "past");
+        wheel.schedule(1000, "now");
+        assertEquals(2, wheel.advance(1000).size());
+    }
+
+    @Test
+    void cancelWorksAfterTheTimeoutCascaded() {
+        HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(1, 3, 0);
+        HierarchicalTimerWheel<String>.Timeout cancelled = wheel.schedule(5000, "cancelled");
+        wheel.schedule(5001, "kept");
+        // Past 4096 both have moved from level 2 down to level 1, and past 4992 to level 0
+        assertEquals(List.of(), wheel.advance(4999));
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("kept"), wheel.advance(6000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelAfterFiringReportsFalse() {
+        HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(1, 2, 0);
+        HierarchicalTimerWheel<String>.Timeout timeout = wheel.schedule(3, "fired");
+        assertEquals(List.of("fired"), wheel.advance(3));
+        assertFalse(timeout.cancel());
+    }
+
+    @Test
+    void longGapFiresEverythingInDeadlineOrder() {
+        HierarchicalTimerWheel<Long> wheel = new HierarchicalTimerWheel<>(1, 2, 0);
+        // Two levels cover 4096 ticks; the last two start in the overflow list
+        long[] deadlines = {9_000, 50, 4_000, 5_000, 700};
+        for (long deadline : deadlines) {
+            wheel.schedule(deadline, deadline);
+        }
+        assertEquals(List.of(50L, 700L, 4_000L, 5_000L, 9_000L), wheel.advance(1_000_000));
+        assertEquals(0, wheel.size());
+
+        // The clock moved with the gap, so a new deadline is relative to the new time
+        wheel.schedule(1_000_010, 1_000_010L);
+        assertEquals(List.of(), wheel.advance(1_000_009));
+        assertEquals(List.of(1_000_010L), wheel.advance(1_000_010));
+    }
+
+    @Test
+    void idleWheelSkipsTheGapInOneStep() {
+        HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(1, 2, 0);
+        assertEquals(List.of(), wheel.advance(Long.MAX_VALUE / 2));
+        wheel.schedule(Long.MAX_VALUE / 2 + 1, "next");
+        assertEquals(List.of("next"), wheel.advance(Long.MAX_VALUE / 2 + 1));
+    }
+
+    @Test
+    void ticksCoarserThanAMillisecondRoundDown() {
+        HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(1000, 2, 0);
+        wheel.schedule(2500, "at tick 2");
+        assertEquals(List.of(), wheel.advance(1999));
+        assertEquals(List.of("at tick 2"), wheel.advance(2000));
+    }
+}
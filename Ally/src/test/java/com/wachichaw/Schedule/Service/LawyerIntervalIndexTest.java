@@ -0,0 +1,120 @@
+package com.wachichaw.Schedule.Service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.wachichaw.Schedule.DTO.BookedInterval;
+import com.wachichaw.Schedule.Entity.AppointmentStatus;
+import com.wachichaw.Schedule.Repo.ScheduleRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Lawyer 1 has appointments tomorrow 09:00 - 10:00 (id 10) and 13:00 - 15:00 (id 11),
+ * and a long one from 20:00 tomorrow to 08:00 the day after (id 12).
+ */
+class LawyerIntervalIndexTest {
+
+    private static final int LAWYER_ID = 1;
+    private static final LocalDateTime DAY = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.DAYS);
+
+    private ScheduleRepository scheduleRepository;
+    private LawyerIntervalIndex index;
+
+    @BeforeEach
+    void setUp() {
+        scheduleRepository = mock(ScheduleRepository.class);
+        when(scheduleRepository.findBlockingIntervals(eq(LAWYER_ID), any(), any(), any())).thenReturn(List.of(
+                new BookedInterval(10, DAY.withHour(9), DAY.withHour(10)),
+                new BookedInterval(11, DAY.withHour(13), DAY.withHour(15)),
+                new BookedInterval(12, DAY.withHour(20), DAY.plusDays(1).withHour(8))));
+        index = new LawyerIntervalIndex(scheduleRepository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(index, "maxLawyers", 100);
+        ReflectionTestUtils.setField(index, "ttlSeconds", 300L);
+        ReflectionTestUtils.setField(index, "maxAppointmentHours", 24L);
+        index.init();
+    }
+
+    private boolean overlaps(int fromHour, int toHour) {
+        return index.overlaps(LAWYER_ID, DAY.plusHours(fromHour), DAY.plusHours(toHour), 0);
+    }
+
+    private ScheduleChangedEvent event(int scheduleId, int fromHour, int toHour, AppointmentStatus status) {
+        return new ScheduleChangedEvent(scheduleId, LAWYER_ID, 2, DAY.plusHours(fromHour), DAY.plusHours(toHour),
+                status, null, null);
+    }
+
+    @Test
+    void findsOverlapsButNotTouchingIntervals() {
+        assertTrue(overlaps(9, 10));
+        assertTrue(overlaps(8, 14));
+        assertTrue(overlaps(14, 16));
+        assertFalse(overlaps(10, 13));
+        assertFalse(overlaps(15, 16));
+        assertFalse(overlaps(7, 9));
+    }
+
+    @Test
+    void longAppointmentIsFoundFarFromItsStart() {
+        // Starts 11 hours before the requested slot
+        assertTrue(index.overlaps(LAWYER_ID, DAY.plusDays(1).withHour(7), DAY.plusDays(1).withHour(8), 0));
+        assertFalse(index.overlaps(LAWYER_ID, DAY.plusDays(1).withHour(8), DAY.plusDays(1).withHour(9), 0));
+    }
+
+    @Test
+    void excludedScheduleDoesNotConflictWithItself() {
+        assertFalse(index.overlaps(LAWYER_ID, DAY.withHour(14), DAY.withHour(15), 11));
+        assertTrue(index.overlaps(LAWYER_ID, DAY.withHour(14), DAY.withHour(15), 10));
+    }
+
+    @Test
+    void eventsKeepALoadedCalendarCurrent() {
+        assertFalse(overlaps(10, 11));
+        index.onScheduleChanged(event(20, 10, 11, AppointmentStatus.PENDING));
+        assertTrue(overlaps(10, 11));
+
+        // Cancelled: the slot is free again
+        index.onScheduleChanged(event(20, 10, 11, AppointmentStatus.CANCELLED));
+        assertFalse(overlaps(10, 11));
+
+        // Moved: only the new time is taken
+        index.onScheduleChanged(event(10, 16, 17, AppointmentStatus.ACCEPTED));
+        assertFalse(overlaps(9, 10));
+        assertTrue(overlaps(16, 17));
+        verify(scheduleRepository, times(1)).findBlockingIntervals(anyInt(), any(), any(), any());
+    }
+
+    @Test
+    void eventBeforeTheFirstLoadIsLeftToTheLoad() {
+        index.onScheduleChanged(event(20, 10, 11, AppointmentStatus.PENDING));
+        // The load reads the committed rows, which the mock does not include
+        assertFalse(overlaps(10, 11));
+    }
+
+    @Test
+    void invalidateAndTtlReloadFromTheDatabase() {
+        overlaps(9, 10);
+        index.invalidate(LAWYER_ID);
+        overlaps(9, 10);
+        verify(scheduleRepository, times(2)).findBlockingIntervals(anyInt(), any(), any(), any());
+
+        ReflectionTestUtils.setField(index, "ttlSeconds", -1L);
+        overlaps(9, 10);
+        verify(scheduleRepository, times(3)).findBlockingIntervals(anyInt(), any(), any(), any());
+    }
+}
@@ -0,0 +1,139 @@
+package com.wachichaw.Schedule.Service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.wachichaw.Client.Entity.ClientEntity;
+import com.wachichaw.EmailConfig.Service.EmailService;
+import com.wachichaw.Lawyer.Entity.LawyerEntity;
+import com.wachichaw.Schedule.Entity.AppointmentStatus;
+import com.wachichaw.Schedule.Entity.ReminderKind;
+import com.wachichaw.Schedule.Entity.ReminderLedgerEntity;
+import com.wachichaw.Schedule.Entity.ReminderRecipient;
+import com.wachichaw.Schedule.Entity.ReminderStatus;
+import com.wachichaw.Schedule.Entity.ScheduleEntity;
+import com.wachichaw.Schedule.Repo.ReminderLedgerRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Which reminders are still sent once a worker has claimed them. Sending is driven
+ * directly, without the queue and its workers.
+ */
+class ReminderDispatcherTest {
+
+    private static final int REMINDER_ID = 11;
+    private static final int SCHEDULE_ID = 5;
+
+    private ReminderLedgerRepository ledgerRepository;
+    private EmailService emailService;
+    private ReminderDispatcher dispatcher;
+    private ScheduleEntity schedule;
+    private LocalDateTime start;
+
+    @BeforeEach
+    void setUp() {
+        ledgerRepository = mock(ReminderLedgerRepository.class);
+        emailService = mock(EmailService.class);
+        dispatcher = new ReminderDispatcher(ledgerRepository, emailService, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+        ReflectionTestUtils.setField(dispatcher, "initialBackoffMs", 1000L);
+        ReflectionTestUtils.setField(dispatcher, "maxBackoffMs", 60_000L);
+        ReflectionTestUtils.setField(dispatcher, "claimTimeoutMs", 60_000L);
+
+        start = LocalDateTime.now().plusDays(1).withNano(0);
+        ClientEntity client = new ClientEntity();
+        client.setEmail("client@example.com");
+        LawyerEntity lawyer = new LawyerEntity();
+        lawyer.setEmail("lawyer@example.com");
+        schedule = new ScheduleEntity();
+        schedule.setScheduleId(SCHEDULE_ID);
+        schedule.setClient(client);
+        schedule.setLawyer(lawyer);
+        schedule.setBookingStartTime(start);
+        schedule.setBookingEndTime(start.plusHours(1));
+        when(ledgerRepository.claim(eq(REMINDER_ID), any(), any())).thenReturn(1);
+    }
+
+    private void send(ReminderKind kind, AppointmentStatus status, int changeSeq) {
+        schedule.setStatus(status);
+        ReminderLedgerEntity reminder = new ReminderLedgerEntity();
+        reminder.setReminderId(REMINDER_ID);
+        reminder.setSchedule(schedule);
+        reminder.setRecipient(ReminderRecipient.CLIENT);
+        reminder.setKind(kind);
+        reminder.setAppointmentStart(start);
+        reminder.setChangeSeq(changeSeq);
+        when(ledgerRepository.findForSending(REMINDER_ID)).thenReturn(Optional.of(reminder));
+        ReflectionTestUtils.invokeMethod(dispatcher, "send", REMINDER_ID);
+    }
+
+    private void verifySent() {
+        verify(emailService).sendAppointmentReminder(eq("client@example.com"), any(), eq(start), eq("client"));
+        verify(ledgerRepository).recordAttempt(eq(REMINDER_ID), eq(ReminderStatus.SENT), any(), any(), isNull());
+    }
+
+    private void verifySkipped() {
+        verify(emailService, never()).sendAppointmentReminder(any(), any(), any(), any());
+        verify(ledgerRepository).recordAttempt(eq(REMINDER_ID), eq(ReminderStatus.SKIPPED), isNull(), any(), isNull());
+    }
+
+    @Test
+    void upcomingReminderForAnAcceptedAppointmentIsSent() {
+        send(ReminderKind.UPCOMING, AppointmentStatus.ACCEPTED, 0);
+        verifySent();
+    }
+
+    @Test
+    void completedAppointmentGetsNoReminder() {
+        send(ReminderKind.UPCOMING, AppointmentStatus.COMPLETED, 0);
+        verifySkipped();
+    }
+
+    @Test
+    void acceptedNoticeIsSkippedOnceTheAppointmentWasMovedBackToPending() {
+        send(ReminderKind.ACCEPTED, AppointmentStatus.PENDING, 1);
+        verifySkipped();
+    }
+
+    @Test
+    void rescheduledNoticeIsSentWhileTheLawyerHasNotAnswered() {
+        send(ReminderKind.RESCHEDULED, AppointmentStatus.PENDING, 1);
+        verifySent();
+    }
+
+    @Test
+    void rescheduledNoticeIsSkippedOnceALaterMoveWasQueued() {
+        when(ledgerRepository.existsByScheduleScheduleIdAndRecipientAndKindAndChangeSeqGreaterThan(
+                SCHEDULE_ID, ReminderRecipient.CLIENT, ReminderKind.RESCHEDULED, 1)).thenReturn(true);
+        send(ReminderKind.RESCHEDULED, AppointmentStatus.PENDING, 1);
+        verifySkipped();
+    }
+
+    @Test
+    void reminderForAnEarlierTimeIsSkipped() {
+        start = start.minusHours(2);
+        send(ReminderKind.UPCOMING, AppointmentStatus.ACCEPTED, 0);
+        verifySkipped();
+    }
+
+    @Test
+    void unclaimedReminderIsLeftAlone() {
+        when(ledgerRepository.claim(eq(REMINDER_ID), any(), any())).thenReturn(0);
+        ReflectionTestUtils.invokeMethod(dispatcher, "send", REMINDER_ID);
+        verify(ledgerRepository, never()).findForSending(anyInt());
+    }
+}
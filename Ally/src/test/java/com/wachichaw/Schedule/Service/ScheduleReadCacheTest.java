@@ -0,0 +1,84 @@
+package com.wachichaw.Schedule.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.wachichaw.Schedule.Entity.AppointmentStatus;
+import com.wachichaw.Schedule.Entity.ScheduleEntity;
+import com.wachichaw.Schedule.Repo.ScheduleRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ScheduleReadCacheTest {
+
+    private static final int CLIENT_ID = 7;
+
+    private ScheduleReadCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ScheduleReadCache(mock(ScheduleRepository.class), mock(LawyerIntervalIndex.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "maxDays", 100);
+        ReflectionTestUtils.setField(cache, "maxLists", 100);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 600L);
+        loads = new AtomicInteger();
+    }
+
+    private Supplier<List<ScheduleEntity>> loader(Runnable whileLoading) {
+        return () -> {
+            loads.incrementAndGet();
+            whileLoading.run();
+            return List.of();
+        };
+    }
+
+    private void changed() {
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        cache.onScheduleChanged(new ScheduleChangedEvent(1, 3, CLIENT_ID, start, start.plusHours(1),
+                AppointmentStatus.ACCEPTED, null, null));
+    }
+
+    @Test
+    void listLoadedAgainOnlyAfterAChange() {
+        cache.upcomingForClient(CLIENT_ID, loader(() -> { }));
+        cache.upcomingForClient(CLIENT_ID, loader(() -> { }));
+        assertEquals(1, loads.get());
+
+        changed();
+        cache.upcomingForClient(CLIENT_ID, loader(() -> { }));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void listLoadedWhileTheUserChangedIsNotServedLater() {
+        cache.upcomingForClient(CLIENT_ID, loader(this::changed));
+        cache.upcomingForClient(CLIENT_ID, loader(() -> { }));
+        assertEquals(2, loads.get());
+        cache.upcomingForClient(CLIENT_ID, loader(() -> { }));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void changesAreForgottenOnceOlderThanTheTtl() {
+        changed();
+        Map<?, ?> changes = (Map<?, ?>) ReflectionTestUtils.getField(cache, "changes");
+        assertEquals(2, changes.size());
+        cache.evictExpired();
+        assertEquals(2, changes.size());
+
+        ReflectionTestUtils.setField(cache, "ttlSeconds", -1L);
+        cache.evictExpired();
+        assertEquals(0, changes.size());
+    }
+}
@@ -0,0 +1,81 @@
+package com.wachichaw.Schedule.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import org.junit.jupiter.api.Test;
+
+import com.wachichaw.Schedule.DTO.BookedInterval;
+
+class SlotGridTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 3, 4);
+
+    private static BookedInterval interval(LocalTime start, LocalTime end) {
+        return new BookedInterval(0, DAY.atTime(start), DAY.atTime(end));
+    }
+
+    @Test
+    void standardDayHasNineHourlySlots() {
+        assertEquals(0x1FFL, SlotGrid.STANDARD.allSlots());
+        assertEquals("09:00 AM", SlotGrid.STANDARD.label(0));
+        assertEquals("06:00 PM", SlotGrid.STANDARD.label(9));
+        assertEquals("9:00 AM - 6:00 PM", SlotGrid.STANDARD.workingHours());
+        assertEquals("Closed", SlotGrid.CLOSED.workingHours());
+        assertEquals(0L, SlotGrid.CLOSED.allSlots());
+    }
+
+    @Test
+    void slotAtFindsOnlyExactSlotStarts() {
+        SlotGrid grid = new SlotGrid(LocalTime.of(9, 0), Duration.ofMinutes(30), 6);
+        assertEquals(0, grid.slotAt(DAY, DAY.atTime(9, 0)));
+        assertEquals(5, grid.slotAt(DAY, DAY.atTime(11, 30)));
+        assertEquals(-1, grid.slotAt(DAY, DAY.atTime(9, 15)));
+        assertEquals(-1, grid.slotAt(DAY, DAY.atTime(8, 30)));
+        assertEquals(-1, grid.slotAt(DAY, DAY.atTime(12, 0)));
+        assertEquals(DAY.atTime(10, 30), grid.slotStart(DAY, 3));
+    }
+
+    @Test
+    void occupiedMaskCoversPartlyOverlappedSlots() {
+        SlotGrid grid = SlotGrid.STANDARD;
+        assertEquals(0b1L, grid.occupiedMask(DAY, interval(LocalTime.of(9, 0), LocalTime.of(10, 0))));
+        // 9:30 - 11:15 touches the 9, 10 and 11 o'clock slots
+        assertEquals(0b111L, grid.occupiedMask(DAY, interval(LocalTime.of(9, 30), LocalTime.of(11, 15))));
+        // Clipped to the grid at both ends
+        assertEquals(0x1FFL, grid.occupiedMask(DAY, interval(LocalTime.of(7, 0), LocalTime.of(20, 0))));
+        assertEquals(0L, grid.occupiedMask(DAY, interval(LocalTime.of(18, 0), LocalTime.of(19, 0))));
+        assertEquals(0L, SlotGrid.CLOSED.occupiedMask(DAY, interval(LocalTime.of(9, 0), LocalTime.of(10, 0))));
+    }
+
+    @Test
+    void intervalFromThePreviousDayOccupiesTheMorning() {
+        BookedInterval overnight = new BookedInterval(0, DAY.minusDays(1).atTime(23, 0), DAY.atTime(10, 30));
+        assertEquals(0b11L, SlotGrid.STANDARD.occupiedMask(DAY, overnight));
+    }
+
+    @Test
+    void fullDayOfSixtyFourSlotsUsesEveryBit() {
+        SlotGrid grid = new SlotGrid(LocalTime.of(6, 0), Duration.ofMinutes(15), SlotGrid.MAX_SLOTS);
+        assertEquals(-1L, grid.allSlots());
+        assertEquals(-1L, SlotGrid.rangeMask(0, 64));
+        assertEquals(0x8000_0000_0000_0000L, SlotGrid.rangeMask(63, 64));
+        assertEquals(0b1100L, grid.mask(LocalTime.of(6, 30), LocalTime.of(7, 0)));
+    }
+
+    @Test
+    void rejectsInvalidGrids() {
+        assertThrows(IllegalArgumentException.class, () -> new SlotGrid(LocalTime.NOON, Duration.ofMinutes(5), 65));
+        assertThrows(IllegalArgumentException.class, () -> new SlotGrid(LocalTime.NOON, Duration.ZERO, 4));
+    }
+
+    @Test
+    void gridsAreEqualByShape() {
+        assertEquals(SlotGrid.STANDARD, new SlotGrid(LocalTime.of(9, 0), Duration.ofHours(1), 9));
+        assertEquals(SlotGrid.STANDARD.hashCode(), new SlotGrid(LocalTime.of(9, 0), Duration.ofHours(1), 9).hashCode());
+    }
+}